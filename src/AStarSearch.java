@@ -0,0 +1,142 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Represents an A* search of a maze from a start tile to a goal tile, expanding one tile per step
+// tiles are expanded in order of their distance from the start plus their Manhattan distance
+// to the goal, held in a primitive binary heap; a tile may be queued more than once when a
+// shorter way to it is found, and later copies are skipped once it has been expanded
+class AStarSearch implements ISolver {
+  private MazeGrid grid;
+  private int start;
+  private int goal;
+  private IntPriorityQueue open;
+  private int[] distances;
+  private int[] cameFrom;
+  private BitSet seen;
+  private int seenCount;
+  private int[] order;
+  private int[] neighbors;
+  private int[] path;
+  private BitSet onPath;
+  private boolean complete;
+
+  AStarSearch(MazeGrid grid, int start, int goal) {
+    if (grid.size() == 0) {
+      throw new IllegalArgumentException("This maze has no tiles");
+    }
+
+    this.grid = grid;
+    this.start = start;
+    this.goal = goal;
+    this.open = new IntPriorityQueue();
+    this.distances = new int[grid.size()];
+    this.cameFrom = new int[grid.size()];
+    this.seen = new BitSet(grid.size());
+    this.seenCount = 0;
+    this.order = new int[grid.size()];
+    this.neighbors = new int[4];
+    this.path = new int[0];
+    this.onPath = new BitSet();
+    this.complete = false;
+
+    Arrays.fill(this.distances, Integer.MAX_VALUE);
+    this.distances[start] = 0;
+    this.open.add(start, this.estimate(start));
+  }
+
+  // returns the Manhattan distance from the given tile to the goal
+  int estimate(int tile) {
+    return Math.abs(this.grid.xOf(tile) - this.grid.xOf(this.goal))
+        + Math.abs(this.grid.yOf(tile) - this.grid.yOf(this.goal));
+  }
+
+  // expands the queued tile with the smallest estimated path length
+  public boolean step() {
+    if (this.complete) {
+      return true;
+    }
+    if (this.open.isEmpty()) {
+      this.complete = true;
+      return true;
+    }
+
+    int tile = this.open.removeMin();
+    if (this.seen.get(tile)) {
+      return false;
+    }
+    this.seen.set(tile);
+    this.order[this.seenCount] = tile;
+    this.seenCount += 1;
+
+    if (tile == this.goal) {
+      this.findPath(tile);
+      this.complete = true;
+      return true;
+    }
+
+    // queues every neighbor this tile gives a shorter way to
+    int count = this.grid.openNeighbors(tile, this.neighbors);
+    for (int i = 0; i < count; i += 1) {
+      int neighbor = this.neighbors[i];
+      int distance = this.distances[tile] + 1;
+
+      if (distance < this.distances[neighbor]) {
+        this.distances[neighbor] = distance;
+        this.cameFrom[neighbor] = tile;
+        this.open.add(neighbor, distance + this.estimate(neighbor));
+      }
+    }
+    return false;
+  }
+
+  // given the goal tile, records the path back to the start
+  void findPath(int tile) {
+    this.path = new int[this.distances[tile] + 1];
+    int current = tile;
+    for (int i = 0; i < this.path.length; i += 1) {
+      this.path[i] = current;
+      this.onPath.set(current);
+      current = this.cameFrom[current];
+    }
+  }
+
+  // returns whether the search has reached the goal or run out of tiles
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns whether the given tile has been expanded
+  public boolean wasSeen(int tile) {
+    return this.seen.get(tile);
+  }
+
+  // returns the tile that was expanded index-th (counting from 0)
+  public int seenTile(int index) {
+    return this.order[index];
+  }
+
+  // returns whether the given tile is on the path found
+  public boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns the number of tiles expanded so far
+  public int seenCount() {
+    return this.seenCount;
+  }
+
+  // returns the number of entries waiting to be expanded
+  public int frontierSize() {
+    return this.open.size();
+  }
+
+  // returns the number of tiles on the path found
+  public int pathLength() {
+    return this.path.length;
+  }
+
+  // returns the tiles of the path found, from the goal back to the start
+  public int[] path() {
+    return this.path;
+  }
+}
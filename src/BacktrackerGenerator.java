@@ -0,0 +1,44 @@
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// Builds mazes with the recursive backtracker: a random walk from the top left tile that never
+// revisits a tile, backing up to the last tile with an unvisited neighbor when it is stuck
+// the walk is kept on an explicit stack, so the depth of the maze is not limited by the
+// call stack
+class BacktrackerGenerator implements IMazeGenerator {
+
+  // opens the walls of the given grid along a spanning tree drawn from the given seed
+  public void carve(MazeGrid grid, long seed) {
+    if (grid.size() == 0) {
+      return;
+    }
+
+    SplittableRandom random = new SplittableRandom(seed);
+    BitSet visited = new BitSet(grid.size());
+    IntDeque stack = new IntDeque();
+    int[] choices = new int[4];
+    visited.set(0);
+    stack.addLast(0);
+
+    while (!stack.isEmpty()) {
+      int tile = stack.removeLast();
+
+      int count = 0;
+      for (int dir = MazeGrid.NORTH; dir <= MazeGrid.WEST; dir += 1) {
+        if (grid.hasNeighbor(tile, dir) && !visited.get(grid.neighbor(tile, dir))) {
+          choices[count] = dir;
+          count += 1;
+        }
+      }
+
+      // keeps the tile on the stack until all of its neighbors have been visited
+      if (count > 0) {
+        int next = grid.neighbor(tile, choices[random.nextInt(count)]);
+        grid.connect(tile, next);
+        visited.set(next);
+        stack.addLast(tile);
+        stack.addLast(next);
+      }
+    }
+  }
+}
@@ -0,0 +1,199 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Represents a breadth first search that grows from the start and the goal at once and
+// meets in the middle, expanding one tile per step
+// the sides take turns expanding whole levels, the side with the smaller frontier going next;
+// once a level touches the other side, the rest of that level is still expanded so the
+// shortest meeting point is kept, then the search stops
+class BidirectionalSearch implements ISolver {
+  private static final int FROM_START = 0;
+  private static final int FROM_GOAL = 1;
+
+  private MazeGrid grid;
+  private int start;
+  private int goal;
+  private IntDeque[] frontiers;
+  private int[][] distances;
+  private int[][] cameFrom;
+  private BitSet seen;
+  private int seenCount;
+  private int[] order;
+  private int[] neighbors;
+  private int side;
+  private int levelRemaining;
+  private int bestLength;
+  private int meetFromStart;
+  private int meetFromGoal;
+  private int[] path;
+  private BitSet onPath;
+  private boolean complete;
+
+  BidirectionalSearch(MazeGrid grid, int start, int goal) {
+    if (grid.size() == 0) {
+      throw new IllegalArgumentException("This maze has no tiles");
+    }
+
+    this.grid = grid;
+    this.start = start;
+    this.goal = goal;
+    this.frontiers = new IntDeque[] {new IntDeque(), new IntDeque()};
+    this.distances = new int[2][grid.size()];
+    this.cameFrom = new int[2][grid.size()];
+    this.seen = new BitSet(grid.size());
+    this.seenCount = 0;
+    this.order = new int[grid.size()];
+    this.neighbors = new int[4];
+    this.levelRemaining = 0;
+    this.bestLength = Integer.MAX_VALUE;
+    this.path = new int[0];
+    this.onPath = new BitSet();
+    this.complete = false;
+
+    Arrays.fill(this.distances[FROM_START], -1);
+    Arrays.fill(this.distances[FROM_GOAL], -1);
+    this.distances[FROM_START][start] = 0;
+    this.distances[FROM_GOAL][goal] = 0;
+    this.frontiers[FROM_START].addLast(start);
+    this.frontiers[FROM_GOAL].addLast(goal);
+
+    if (start == goal) {
+      this.meetFromStart = start;
+      this.meetFromGoal = goal;
+      this.bestLength = 0;
+      this.findPath();
+      this.complete = true;
+    }
+  }
+
+  // expands the next tile of the current level
+  public boolean step() {
+    if (this.complete) {
+      return true;
+    }
+
+    // starts a new level on the side with the smaller frontier
+    if (this.levelRemaining == 0) {
+      if (this.frontiers[FROM_START].isEmpty() || this.frontiers[FROM_GOAL].isEmpty()) {
+        this.complete = true;
+        return true;
+      }
+      if (this.frontiers[FROM_START].size() <= this.frontiers[FROM_GOAL].size()) {
+        this.side = FROM_START;
+      }
+      else {
+        this.side = FROM_GOAL;
+      }
+      this.levelRemaining = this.frontiers[this.side].size();
+    }
+
+    int other = 1 - this.side;
+    int tile = this.frontiers[this.side].removeFirst();
+    this.levelRemaining -= 1;
+    if (!this.seen.get(tile)) {
+      this.seen.set(tile);
+      this.order[this.seenCount] = tile;
+      this.seenCount += 1;
+    }
+
+    int count = this.grid.openNeighbors(tile, this.neighbors);
+    for (int i = 0; i < count; i += 1) {
+      int neighbor = this.neighbors[i];
+
+      if (this.distances[this.side][neighbor] == -1) {
+        this.distances[this.side][neighbor] = this.distances[this.side][tile] + 1;
+        this.cameFrom[this.side][neighbor] = tile;
+        this.frontiers[this.side].addLast(neighbor);
+      }
+
+      // records the shortest way found to join the two sides
+      if (this.distances[other][neighbor] != -1) {
+        int length = this.distances[this.side][tile] + 1 + this.distances[other][neighbor];
+        if (length < this.bestLength) {
+          this.bestLength = length;
+          if (this.side == FROM_START) {
+            this.meetFromStart = tile;
+            this.meetFromGoal = neighbor;
+          }
+          else {
+            this.meetFromStart = neighbor;
+            this.meetFromGoal = tile;
+          }
+        }
+      }
+    }
+
+    if (this.levelRemaining == 0 && this.bestLength != Integer.MAX_VALUE) {
+      this.findPath();
+      this.complete = true;
+    }
+    return this.complete;
+  }
+
+  // joins the two halves at the meeting point into the path from the goal back to the start
+  void findPath() {
+    this.path = new int[this.bestLength + 1];
+    int index = this.distances[FROM_START][this.meetFromStart];
+
+    // the half from the meeting point back to the start fills the end of the path
+    for (int current = this.meetFromStart; index >= 0; index -= 1) {
+      this.path[this.path.length - 1 - index] = current;
+      if (current != this.start) {
+        current = this.cameFrom[FROM_START][current];
+      }
+    }
+
+    // the half from the meeting point on to the goal fills the front of the path
+    int current = this.meetFromGoal;
+    for (int i = this.distances[FROM_GOAL][this.meetFromGoal]; i >= 0; i -= 1) {
+      this.path[i] = current;
+      if (current != this.goal) {
+        current = this.cameFrom[FROM_GOAL][current];
+      }
+    }
+
+    for (int tile : this.path) {
+      this.onPath.set(tile);
+    }
+  }
+
+  // returns whether the search has found the path or run out of tiles
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns whether the given tile has been expanded from either side
+  public boolean wasSeen(int tile) {
+    return this.seen.get(tile);
+  }
+
+  // returns the tile that was expanded index-th (counting from 0)
+  public int seenTile(int index) {
+    return this.order[index];
+  }
+
+  // returns whether the given tile is on the path found
+  public boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns the number of tiles expanded so far
+  public int seenCount() {
+    return this.seenCount;
+  }
+
+  // returns the number of entries waiting to be expanded
+  public int frontierSize() {
+    return this.frontiers[FROM_START].size() + this.frontiers[FROM_GOAL].size();
+  }
+
+  // returns the number of tiles on the path found
+  public int pathLength() {
+    return this.path.length;
+  }
+
+  // returns the tiles of the path found, from the goal back to the start
+  public int[] path() {
+    return this.path;
+  }
+}
@@ -0,0 +1,56 @@
+// Represents a min-priority queue of int values whose priorities are small ints in
+// [0, priorities), kept as one stack per priority
+// adding is constant time, and removing only scans forward from the lowest bucket that may
+// be occupied, so a queue over a handful of priorities beats a heap
+class BucketQueue {
+  private IntDeque[] buckets;
+  private int lowest;
+  private int size;
+
+  BucketQueue(int priorities) {
+    if (priorities < 1) {
+      throw new IllegalArgumentException("A bucket queue needs at least one priority");
+    }
+
+    this.buckets = new IntDeque[priorities];
+    for (int priority = 0; priority < priorities; priority += 1) {
+      this.buckets[priority] = new IntDeque();
+    }
+    this.lowest = priorities;
+    this.size = 0;
+  }
+
+  // adds the given value with the given priority
+  void add(int value, int priority) {
+    if (priority < 0 || priority >= this.buckets.length) {
+      throw new IllegalArgumentException("Priority out of range: " + priority);
+    }
+
+    this.buckets[priority].addLast(value);
+    this.lowest = Math.min(this.lowest, priority);
+    this.size += 1;
+  }
+
+  // removes and returns a value with the lowest priority (the most recently added of them)
+  int removeMin() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Queue is empty");
+    }
+
+    while (this.buckets[this.lowest].isEmpty()) {
+      this.lowest += 1;
+    }
+    this.size -= 1;
+    return this.buckets[this.lowest].removeLast();
+  }
+
+  // returns whether this queue is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the number of values in this queue
+  int size() {
+    return this.size;
+  }
+}
@@ -0,0 +1,113 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import tester.Tester;
+
+// represents a value that knows roughly how many bytes it takes in a cache
+interface ISized {
+
+  // returns the number of bytes this value takes
+  long bytes();
+}
+
+// Keeps the most recently used values within a byte budget: once the values take more than
+// the budget, the least recently used are evicted
+// it is not synchronized; a cache shared by several threads synchronizes its uses of it
+// (see SolutionCache and ChunkCache)
+class BudgetCache<K, V extends ISized> {
+  private long budget;
+  private long bytes;
+  private long evictions;
+  private LinkedHashMap<K, V> entries;
+
+  // a cache whose values take at most the given number of bytes
+  BudgetCache(long budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Cache budget must not be negative");
+    }
+    this.budget = budget;
+    // access order makes iteration run from the least to the most recently used entry
+    this.entries = new LinkedHashMap<K, V>(16, 0.75f, true);
+  }
+
+  // returns the value with the given key, or null if there is none
+  V get(K key) {
+    return this.entries.get(key);
+  }
+
+  // returns whether there is a value with the given key, without counting as a use
+  boolean contains(K key) {
+    return this.entries.containsKey(key);
+  }
+
+  // adds the given value, evicting the least recently used values to stay in budget
+  // (a value larger than the whole budget is not kept)
+  void put(K key, V value) {
+    if (value.bytes() > this.budget) {
+      return;
+    }
+
+    V old = this.entries.put(key, value);
+    if (old != null) {
+      this.bytes -= old.bytes();
+    }
+    this.bytes += value.bytes();
+
+    Iterator<Map.Entry<K, V>> eldest = this.entries.entrySet().iterator();
+    while (this.bytes > this.budget) {
+      this.bytes -= eldest.next().getValue().bytes();
+      eldest.remove();
+      this.evictions += 1;
+    }
+  }
+
+  // returns the number of values kept
+  int size() {
+    return this.entries.size();
+  }
+
+  // returns the number of bytes the values kept take
+  long bytes() {
+    return this.bytes;
+  }
+
+  // returns the number of bytes the values may take
+  long budget() {
+    return this.budget;
+  }
+
+  // returns the number of values evicted to stay in budget
+  long evictions() {
+    return this.evictions;
+  }
+}
+
+class ExamplesBudgetCache {
+
+  // the least recently used values go first, and a value over the whole budget is not kept
+  void testEviction(Tester t) {
+    CachedSolution solution = new SolverFactory().solveForCache("bfs",
+        new MazeBuilder().buildMaze(20, 20, 2), 0, 399);
+    BudgetCache<String, CachedSolution> cache =
+        new BudgetCache<String, CachedSolution>(solution.bytes() * 2);
+    cache.put("a", solution);
+    cache.put("b", solution);
+    t.checkExpect(cache.get("a"), solution);
+    cache.put("c", solution);
+
+    t.checkExpect(cache.contains("b"), false);
+    t.checkExpect(cache.contains("a"), true);
+    t.checkExpect(cache.size(), 2);
+    t.checkExpect(cache.bytes(), solution.bytes() * 2);
+    t.checkExpect(cache.evictions(), 1L);
+
+    BudgetCache<String, CachedSolution> small =
+        new BudgetCache<String, CachedSolution>(solution.bytes() - 1);
+    small.put("a", solution);
+    t.checkExpect(small.size(), 0);
+    t.checkExpect(small.bytes(), 0L);
+    t.checkConstructorException(
+        new IllegalArgumentException("Cache budget must not be negative"), "BudgetCache", -1L);
+  }
+}
@@ -0,0 +1,235 @@
+import tester.Tester;
+
+// Represents which part of a maze is shown in a window of a fixed number of pixels, and how
+// large: zoomed in, each tile takes a square of pixels; zoomed out past one pixel per tile,
+// each pixel stands for a square of 2^level tiles
+// the view is given by its top left tile, kept so the view stays over the maze where it can;
+// every change counts up the stamp, so whoever draws the view can tell it moved
+class Camera {
+  static final int MAX_PIXELS_PER_TILE = 64;
+
+  final int viewWidth;
+  final int viewHeight;
+  private int mazeWidth;
+  private int mazeHeight;
+  private int pixelsPerTile;
+  private int level;
+  private int left;
+  private int top;
+  private int stamp;
+
+  // a view of the given number of pixels on a maze of the given number of tiles, with the
+  // given zoom, at the maze's top left corner
+  Camera(int mazeWidth, int mazeHeight, int viewWidth, int viewHeight, int pixelsPerTile) {
+    if (viewWidth < 1 || viewHeight < 1) {
+      throw new IllegalArgumentException("A view must be at least one pixel wide");
+    }
+    if (pixelsPerTile < 1 || pixelsPerTile > MAX_PIXELS_PER_TILE) {
+      throw new IllegalArgumentException("Tiles must be 1 to " + MAX_PIXELS_PER_TILE
+          + " pixels wide");
+    }
+    this.mazeWidth = mazeWidth;
+    this.mazeHeight = mazeHeight;
+    this.viewWidth = viewWidth;
+    this.viewHeight = viewHeight;
+    this.pixelsPerTile = pixelsPerTile;
+  }
+
+  // returns the number of pixels each tile takes (1 when zoomed out past that)
+  int pixelsPerTile() {
+    return this.pixelsPerTile;
+  }
+
+  // returns how far the view is zoomed out past one pixel per tile: each pixel stands for
+  // 2^level tiles across
+  int level() {
+    return this.level;
+  }
+
+  // returns the column of the top left tile shown
+  int left() {
+    return this.left;
+  }
+
+  // returns the row of the top left tile shown
+  int top() {
+    return this.top;
+  }
+
+  // returns the count of changes to the view
+  int stamp() {
+    return this.stamp;
+  }
+
+  // returns the number of tiles across the view (the last may be cut off)
+  int columns() {
+    return this.tilesIn(this.viewWidth);
+  }
+
+  // returns the number of tiles down the view (the last may be cut off)
+  int rows() {
+    return this.tilesIn(this.viewHeight);
+  }
+
+  // returns the number of tiles, whole or cut off, in the given number of pixels
+  int tilesIn(int pixels) {
+    return ((pixels << this.level) + this.pixelsPerTile - 1) / this.pixelsPerTile;
+  }
+
+  // returns whether the given tile is at least partly in view
+  boolean isVisible(int x, int y) {
+    return x >= this.left && x < this.left + this.columns() && y >= this.top
+        && y < this.top + this.rows();
+  }
+
+  // moves the view by the given number of steps across and down, each a quarter of the view
+  void scroll(int across, int down) {
+    this.moveTo(this.left + across * Math.max(1, this.columns() / 4),
+        this.top + down * Math.max(1, this.rows() / 4));
+  }
+
+  // doubles the size of the tiles, keeping the tile in the middle of the view in the middle
+  void zoomIn() {
+    if (this.level == 0 && this.pixelsPerTile * 2 > MAX_PIXELS_PER_TILE) {
+      return;
+    }
+    int middleX = this.left + this.columns() / 2;
+    int middleY = this.top + this.rows() / 2;
+    if (this.level > 0) {
+      this.level -= 1;
+    }
+    else {
+      this.pixelsPerTile *= 2;
+    }
+    this.centerOn(middleX, middleY);
+  }
+
+  // halves the size of the tiles, keeping the tile in the middle of the view in the middle
+  // (until the whole maze fits)
+  void zoomOut() {
+    if (this.columns() >= this.mazeWidth && this.rows() >= this.mazeHeight) {
+      return;
+    }
+    int middleX = this.left + this.columns() / 2;
+    int middleY = this.top + this.rows() / 2;
+    if (this.pixelsPerTile > 1) {
+      this.pixelsPerTile /= 2;
+    }
+    else {
+      this.level += 1;
+    }
+    this.centerOn(middleX, middleY);
+  }
+
+  // zooms out until the whole maze fits, or in until it just does
+  void fit() {
+    while (this.columns() < this.mazeWidth || this.rows() < this.mazeHeight) {
+      this.zoomOut();
+    }
+    while ((this.level > 0 || this.pixelsPerTile * 2 <= MAX_PIXELS_PER_TILE)
+        && this.fitsZoomedIn()) {
+      this.zoomIn();
+    }
+    this.moveTo(0, 0);
+  }
+
+  // returns whether the whole maze would still fit zoomed in once more
+  boolean fitsZoomedIn() {
+    if (this.level > 0) {
+      return this.mazeWidth <= ((long) this.viewWidth << (this.level - 1))
+          && this.mazeHeight <= ((long) this.viewHeight << (this.level - 1));
+    }
+    return (long) this.mazeWidth * this.pixelsPerTile * 2 <= this.viewWidth
+        && (long) this.mazeHeight * this.pixelsPerTile * 2 <= this.viewHeight;
+  }
+
+  // moves the view so the given tile is in its middle
+  void centerOn(int x, int y) {
+    this.moveTo(x - this.columns() / 2, y - this.rows() / 2);
+  }
+
+  // moves the view so the given tile is in it, with a margin of an eighth of the view, if it
+  // is not already
+  void follow(int x, int y) {
+    int marginX = this.columns() / 8;
+    int marginY = this.rows() / 8;
+    if (x < this.left + marginX || x >= this.left + this.columns() - marginX
+        || y < this.top + marginY || y >= this.top + this.rows() - marginY) {
+      this.centerOn(x, y);
+    }
+  }
+
+  // moves the top left of the view to the given tile, as near as keeps the view over the maze
+  void moveTo(int x, int y) {
+    this.left = Math.max(0, Math.min(x, this.mazeWidth - this.columns()));
+    this.top = Math.max(0, Math.min(y, this.mazeHeight - this.rows()));
+    this.stamp += 1;
+  }
+
+  // returns the zoom as a scale, such as "4:1" for four pixels per tile or "1:8" for eight
+  // tiles per pixel
+  String describe() {
+    if (this.level > 0) {
+      return "1:" + (1 << this.level);
+    }
+    return this.pixelsPerTile + ":1";
+  }
+}
+
+class ExamplesCamera {
+
+  void testZoom(Tester t) {
+    Camera camera = new Camera(1000, 500, 200, 100, 8);
+    t.checkExpect(camera.columns(), 25);
+    t.checkExpect(camera.rows(), 13);
+    camera.zoomOut();
+    camera.zoomOut();
+    camera.zoomOut();
+    t.checkExpect(camera.describe(), "1:1");
+    camera.zoomOut();
+    t.checkExpect(camera.describe(), "1:2");
+    t.checkExpect(camera.columns(), 400);
+    camera.zoomOut();
+    camera.zoomOut();
+    camera.zoomOut();
+    t.checkExpect(camera.describe(), "1:8");
+
+    // the whole maze fits at 1:8, so zooming out stops there
+    camera.zoomOut();
+    t.checkExpect(camera.describe(), "1:8");
+    t.checkExpect(camera.left(), 0);
+    camera.zoomIn();
+    t.checkExpect(camera.describe(), "1:4");
+    t.checkExpect(camera.left(), 200);
+
+    camera.fit();
+    t.checkExpect(camera.describe(), "1:8");
+    Camera small = new Camera(10, 10, 200, 100, 1);
+    small.fit();
+    t.checkExpect(small.describe(), "8:1");
+    t.checkConstructorException(
+        new IllegalArgumentException("Tiles must be 1 to 64 pixels wide"),
+        "Camera", 10, 10, 100, 100, 0);
+  }
+
+  void testScroll(Tester t) {
+    Camera camera = new Camera(100, 100, 200, 200, 10);
+    int stamp = camera.stamp();
+    camera.scroll(1, 2);
+    t.checkExpect(camera.left(), 5);
+    t.checkExpect(camera.top(), 10);
+    t.checkExpect(camera.stamp() > stamp, true);
+    t.checkExpect(camera.isVisible(24, 29), true);
+    t.checkExpect(camera.isVisible(25, 29), false);
+
+    // the view stays over the maze
+    camera.scroll(-5, 100);
+    t.checkExpect(camera.left(), 0);
+    t.checkExpect(camera.top(), 80);
+    camera.follow(50, 50);
+    t.checkExpect(camera.left(), 40);
+    t.checkExpect(camera.top(), 40);
+    camera.follow(52, 52);
+    t.checkExpect(camera.left(), 40);
+  }
+}
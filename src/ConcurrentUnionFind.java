@@ -0,0 +1,57 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// A disjoint-set forest over ids 0 .. size - 1 that several threads can join at once
+// roots are always linked under the larger id with a compare-and-set, so a union either
+// links two distinct roots or retries, and exactly one of two racing joins of the same
+// groups succeeds
+class ConcurrentUnionFind {
+  private AtomicIntegerArray parent;
+
+  // creates size singleton groups
+  ConcurrentUnionFind(int size) {
+    this.parent = new AtomicIntegerArray(size);
+
+    for (int id = 0; id < size; id += 1) {
+      this.parent.set(id, id);
+    }
+  }
+
+  // returns the current representative of the group the given id is in,
+  // halving the path to it on the way
+  int find(int id) {
+    int current = id;
+    int next = this.parent.get(current);
+
+    while (next != current) {
+      int grandparent = this.parent.get(next);
+      this.parent.compareAndSet(current, next, grandparent);
+      current = next;
+      next = this.parent.get(current);
+    }
+    return current;
+  }
+
+  // joins the groups of the two given ids
+  // returns false if they were already in the same group
+  boolean union(int id1, int id2) {
+    while (true) {
+      int root1 = this.find(id1);
+      int root2 = this.find(id2);
+
+      if (root1 == root2) {
+        return false;
+      }
+
+      int lower = Math.min(root1, root2);
+      int higher = Math.max(root1, root2);
+      if (this.parent.compareAndSet(lower, lower, higher)) {
+        return true;
+      }
+    }
+  }
+
+  // returns the number of ids in this forest
+  int size() {
+    return this.parent.length();
+  }
+}
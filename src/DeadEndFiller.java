@@ -0,0 +1,166 @@
+import java.util.BitSet;
+
+// Represents a dead-end filling solver: every dead end other than the start and goal is filled
+// in, one tile per step, and filling a tile may turn the tile it opened onto into a new dead end
+// once no dead ends remain, the unfilled tiles hold the path, which is traced from the goal
+// back to the start with a breadth first search over them
+class DeadEndFiller implements ISolver {
+  private MazeGrid grid;
+  private int start;
+  private int goal;
+  private byte[] openings;
+  private IntDeque deadEnds;
+  private BitSet filled;
+  private int filledCount;
+  private int[] order;
+  private int[] neighbors;
+  private int[] path;
+  private BitSet onPath;
+  private boolean complete;
+
+  DeadEndFiller(MazeGrid grid, int start, int goal) {
+    if (grid.size() == 0) {
+      throw new IllegalArgumentException("This maze has no tiles");
+    }
+
+    this.grid = grid;
+    this.start = start;
+    this.goal = goal;
+    this.openings = new byte[grid.size()];
+    this.deadEnds = new IntDeque();
+    this.filled = new BitSet(grid.size());
+    this.filledCount = 0;
+    this.order = new int[grid.size()];
+    this.neighbors = new int[4];
+    this.path = new int[0];
+    this.onPath = new BitSet();
+    this.complete = false;
+
+    for (int tile = 0; tile < grid.size(); tile += 1) {
+      this.openings[tile] = (byte) grid.degree(tile);
+      if (this.isDeadEnd(tile)) {
+        this.deadEnds.addLast(tile);
+      }
+    }
+  }
+
+  // returns whether the given tile is an unfilled dead end that may be filled
+  boolean isDeadEnd(int tile) {
+    return this.openings[tile] <= 1 && tile != this.start && tile != this.goal
+        && !this.filled.get(tile);
+  }
+
+  // fills the next dead end
+  public boolean step() {
+    if (this.complete) {
+      return true;
+    }
+    if (this.deadEnds.isEmpty()) {
+      this.tracePath();
+      this.complete = true;
+      return true;
+    }
+
+    int tile = this.deadEnds.removeFirst();
+    if (!this.isDeadEnd(tile)) {
+      return false;
+    }
+    this.filled.set(tile);
+    this.order[this.filledCount] = tile;
+    this.filledCount += 1;
+
+    // closes this tile off from its unfilled neighbor, which may become a dead end
+    int count = this.grid.openNeighbors(tile, this.neighbors);
+    for (int i = 0; i < count; i += 1) {
+      int neighbor = this.neighbors[i];
+      if (!this.filled.get(neighbor)) {
+        this.openings[neighbor] -= 1;
+        if (this.isDeadEnd(neighbor)) {
+          this.deadEnds.addLast(neighbor);
+        }
+      }
+    }
+    return false;
+  }
+
+  // traces the path from the goal back to the start through the unfilled tiles
+  void tracePath() {
+    int[] cameFrom = new int[this.grid.size()];
+    BitSet reached = new BitSet(this.grid.size());
+    IntDeque queue = new IntDeque();
+    queue.addLast(this.goal);
+    reached.set(this.goal);
+
+    while (!queue.isEmpty() && !reached.get(this.start)) {
+      int tile = queue.removeFirst();
+      int count = this.grid.openNeighbors(tile, this.neighbors);
+
+      for (int i = 0; i < count; i += 1) {
+        int neighbor = this.neighbors[i];
+        if (!this.filled.get(neighbor) && !reached.get(neighbor)) {
+          reached.set(neighbor);
+          cameFrom[neighbor] = tile;
+          queue.addLast(neighbor);
+        }
+      }
+    }
+
+    if (!reached.get(this.start)) {
+      return;
+    }
+
+    int length = 1;
+    for (int current = this.start; current != this.goal; current = cameFrom[current]) {
+      length += 1;
+    }
+
+    // walks from the start towards the goal, filling the path from its end
+    this.path = new int[length];
+    int current = this.start;
+    for (int i = length - 1; i >= 0; i -= 1) {
+      this.path[i] = current;
+      this.onPath.set(current);
+      current = cameFrom[current];
+    }
+  }
+
+  // returns whether every dead end has been filled and the path traced
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns whether the given tile has been filled
+  public boolean wasSeen(int tile) {
+    return this.filled.get(tile);
+  }
+
+  // returns the tile that was filled index-th (counting from 0)
+  public int seenTile(int index) {
+    return this.order[index];
+  }
+
+  // returns whether the given tile is on the path found
+  public boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns the number of tiles filled so far
+  public int seenCount() {
+    return this.filledCount;
+  }
+
+  // returns the number of entries waiting to be filled
+  public int frontierSize() {
+    return this.deadEnds.size();
+  }
+
+  // returns the number of tiles on the path found
+  public int pathLength() {
+    return this.path.length;
+  }
+
+  // returns the tiles of the path found, from the goal back to the start
+  public int[] path() {
+    return this.path;
+  }
+}
@@ -0,0 +1,371 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+
+import tester.Tester;
+
+// Represents a min-priority queue of tiles by their distance from the start of a search
+interface IDistanceQueue {
+
+  // adds the given tile at the given distance
+  void add(int tile, int distance);
+
+  // removes and returns a tile with the smallest distance
+  int removeMin();
+
+  // returns whether this queue is empty
+  boolean isEmpty();
+
+  // returns the number of tiles in this queue
+  int size();
+}
+
+// Represents a monotone bucket queue (Dial's queue) for distances that grow by at most a
+// small maximum step: one bucket per distance, kept in a ring of step + 1 buckets
+// a tile is only ever added at most one step beyond the distance last removed, so the ring
+// never wraps onto a bucket still in use, and adding and removing are both constant time
+// distances may not go down, which Dijkstra's search never asks for
+class DialQueue implements IDistanceQueue {
+  private IntDeque[] buckets;
+  private int current;
+  private int size;
+
+  DialQueue(int maxStep) {
+    if (maxStep < 1) {
+      throw new IllegalArgumentException("Steps must be at least 1");
+    }
+
+    this.buckets = new IntDeque[maxStep + 1];
+    for (int i = 0; i < this.buckets.length; i += 1) {
+      this.buckets[i] = new IntDeque();
+    }
+    this.current = 0;
+    this.size = 0;
+  }
+
+  // adds the given tile at the given distance, which must be no smaller than the distance
+  // last removed and no more than one step beyond it
+  public void add(int tile, int distance) {
+    if (distance < this.current || distance - this.current >= this.buckets.length) {
+      throw new IllegalArgumentException("Distance " + distance + " is not within a step of "
+          + this.current);
+    }
+
+    this.buckets[distance % this.buckets.length].addLast(tile);
+    this.size += 1;
+  }
+
+  // removes and returns a tile with the smallest distance, moving past empty buckets
+  public int removeMin() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Queue is empty");
+    }
+
+    while (this.buckets[this.current % this.buckets.length].isEmpty()) {
+      this.current += 1;
+    }
+    this.size -= 1;
+    return this.buckets[this.current % this.buckets.length].removeFirst();
+  }
+
+  // returns whether this queue is empty
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the number of tiles in this queue
+  public int size() {
+    return this.size;
+  }
+}
+
+// Represents a distance queue kept in a java.util.PriorityQueue of boxed entries, each the
+// distance and the tile packed into one long; the baseline the bucket queue is measured against
+class HeapDistanceQueue implements IDistanceQueue {
+  private PriorityQueue<Long> heap;
+
+  HeapDistanceQueue() {
+    this.heap = new PriorityQueue<Long>();
+  }
+
+  // adds the given tile at the given distance
+  public void add(int tile, int distance) {
+    this.heap.add(((long) distance << 32) | tile);
+  }
+
+  // removes and returns a tile with the smallest distance
+  public int removeMin() {
+    if (this.heap.isEmpty()) {
+      throw new IllegalStateException("Queue is empty");
+    }
+    return (int) this.heap.poll().longValue();
+  }
+
+  // returns whether this queue is empty
+  public boolean isEmpty() {
+    return this.heap.isEmpty();
+  }
+
+  // returns the number of tiles in this queue
+  public int size() {
+    return this.heap.size();
+  }
+}
+
+// Represents Dijkstra's search of a maze with weighted tiles, from a start tile to a goal tile,
+// expanding one tile per step
+// a move costs what the tile moved onto costs to enter, so the cheapest path may be longer
+// than the shortest one in a braided maze; a tile may be queued more than once when a cheaper
+// way to it is found, and later copies are skipped once it has been expanded
+class DijkstraSearch implements ISolver {
+  private MazeGrid grid;
+  private TerrainCosts terrain;
+  private int goal;
+  private IDistanceQueue open;
+  private int[] costs;
+  private int[] cameFrom;
+  private BitSet seen;
+  private int seenCount;
+  private int[] order;
+  private int[] neighbors;
+  private int[] path;
+  private BitSet onPath;
+  private boolean complete;
+
+  // searches with a bucket queue sized for the terrain
+  DijkstraSearch(MazeGrid grid, TerrainCosts terrain, int start, int goal) {
+    this(grid, terrain, start, goal, new DialQueue(terrain.maxCost()));
+  }
+
+  DijkstraSearch(MazeGrid grid, TerrainCosts terrain, int start, int goal, IDistanceQueue open) {
+    if (grid.size() == 0) {
+      throw new IllegalArgumentException("This maze has no tiles");
+    }
+    if (terrain.width != grid.width || terrain.height != grid.height) {
+      throw new IllegalArgumentException("Terrain does not match the maze");
+    }
+
+    this.grid = grid;
+    this.terrain = terrain;
+    this.goal = goal;
+    this.open = open;
+    this.costs = new int[grid.size()];
+    this.cameFrom = new int[grid.size()];
+    this.seen = new BitSet(grid.size());
+    this.seenCount = 0;
+    this.order = new int[grid.size()];
+    this.neighbors = new int[4];
+    this.path = new int[0];
+    this.onPath = new BitSet();
+    this.complete = false;
+
+    Arrays.fill(this.costs, Integer.MAX_VALUE);
+    this.costs[start] = 0;
+    this.cameFrom[start] = -1;
+    this.open.add(start, 0);
+  }
+
+  // expands the queued tile with the smallest cost from the start
+  public boolean step() {
+    if (this.complete) {
+      return true;
+    }
+    if (this.open.isEmpty()) {
+      this.complete = true;
+      return true;
+    }
+
+    int tile = this.open.removeMin();
+    if (this.seen.get(tile)) {
+      return false;
+    }
+    this.seen.set(tile);
+    this.order[this.seenCount] = tile;
+    this.seenCount += 1;
+
+    if (tile == this.goal) {
+      this.findPath(tile);
+      this.complete = true;
+      return true;
+    }
+
+    // queues every neighbor this tile gives a cheaper way to
+    int count = this.grid.openNeighbors(tile, this.neighbors);
+    for (int i = 0; i < count; i += 1) {
+      int neighbor = this.neighbors[i];
+      int cost = this.costs[tile] + this.terrain.cost(neighbor);
+
+      if (cost < this.costs[neighbor]) {
+        this.costs[neighbor] = cost;
+        this.cameFrom[neighbor] = tile;
+        this.open.add(neighbor, cost);
+      }
+    }
+    return false;
+  }
+
+  // runs the search to completion
+  // returns this search
+  DijkstraSearch solve() {
+    while (!this.step()) {
+      // keeps stepping
+    }
+    return this;
+  }
+
+  // given the goal tile, records the path back to the start
+  void findPath(int tile) {
+    int length = 0;
+    for (int current = tile; current != -1; current = this.cameFrom[current]) {
+      length += 1;
+    }
+    this.path = new int[length];
+    int current = tile;
+    for (int i = 0; i < length; i += 1) {
+      this.path[i] = current;
+      this.onPath.set(current);
+      current = this.cameFrom[current];
+    }
+  }
+
+  // returns the cost of the path found, or -1 if there is none (yet)
+  int cost() {
+    if (this.path.length == 0) {
+      return -1;
+    }
+    return this.costs[this.goal];
+  }
+
+  // returns whether the search has reached the goal or run out of tiles
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns whether the given tile has been expanded
+  public boolean wasSeen(int tile) {
+    return this.seen.get(tile);
+  }
+
+  // returns the tile that was expanded index-th (counting from 0)
+  public int seenTile(int index) {
+    return this.order[index];
+  }
+
+  // returns whether the given tile is on the path found
+  public boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns the number of tiles expanded so far
+  public int seenCount() {
+    return this.seenCount;
+  }
+
+  // returns the number of entries waiting to be expanded
+  public int frontierSize() {
+    return this.open.size();
+  }
+
+  // returns the number of tiles on the path found
+  public int pathLength() {
+    return this.path.length;
+  }
+
+  // returns the tiles of the path found, from the goal back to the start
+  public int[] path() {
+    return this.path;
+  }
+}
+
+class ExamplesDijkstraSearch {
+
+  // a braided maze on patchy terrain
+  MazeGrid braided(int width, int height, long seed) {
+    MazeGrid grid = new MazeGrid(width, height);
+    new BraidedGenerator(new MazeBuilder(), 0.2).carve(grid, seed);
+    return grid;
+  }
+
+  // returns whether the two tiles have an open wall between them
+  boolean adjacent(MazeGrid grid, int from, int to) {
+    int[] neighbors = new int[4];
+    int count = grid.openNeighbors(from, neighbors);
+    for (int i = 0; i < count; i += 1) {
+      if (neighbors[i] == to) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // with every tile costing 1, the cheapest path is the shortest one
+  void testUniform(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(40, 30, 5);
+    DijkstraSearch search = new DijkstraSearch(grid, TerrainCosts.uniform(40, 30), 0,
+        grid.size() - 1).solve();
+    int[] distances = new DistanceField(grid).computeDistances(0);
+
+    t.checkExpect(search.cost(), distances[grid.size() - 1]);
+    t.checkExpect(search.pathLength(), distances[grid.size() - 1] + 1);
+  }
+
+  // the bucket queue and the heap find paths of the same cost, and the path walks through
+  // open walls and costs what its tiles cost to enter
+  void testMatchesHeap(Tester t) {
+    for (long seed = 1; seed <= 4; seed += 1) {
+      MazeGrid grid = this.braided(50, 40, seed);
+      TerrainCosts terrain = TerrainCosts.patches(50, 40, 4, seed);
+      DijkstraSearch dial = new DijkstraSearch(grid, terrain, 0, grid.size() - 1).solve();
+      DijkstraSearch heap = new DijkstraSearch(grid, terrain, 0, grid.size() - 1,
+          new HeapDistanceQueue()).solve();
+
+      t.checkExpect(dial.cost(), heap.cost());
+      int[] path = dial.path();
+      int cost = 0;
+      boolean connected = true;
+      for (int i = 0; i + 1 < path.length; i += 1) {
+        cost += terrain.cost(path[i]);
+        connected = connected && this.adjacent(grid, path[i], path[i + 1]);
+      }
+      t.checkExpect(path[path.length - 1], 0);
+      t.checkExpect(cost, dial.cost());
+      t.checkExpect(connected, true);
+    }
+  }
+
+  // a cheap detour around water beats the direct way through it
+  void testDetour(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 2);
+    grid.open(0, 0, MazeGrid.EAST);
+    grid.open(1, 0, MazeGrid.EAST);
+    grid.open(0, 0, MazeGrid.SOUTH);
+    grid.open(0, 1, MazeGrid.EAST);
+    grid.open(1, 1, MazeGrid.EAST);
+    grid.open(2, 0, MazeGrid.SOUTH);
+    byte[] costs = {1, 7, 1, 1, 1, 1};
+    DijkstraSearch search = new DijkstraSearch(grid, new TerrainCosts(3, 2, costs), 0, 2);
+    search.solve();
+
+    t.checkExpect(search.cost(), 4);
+    t.checkExpect(search.path(), new int[] {2, 5, 4, 3, 0});
+    t.checkExpect(search.isOnPath(1), false);
+  }
+
+  void testDialQueue(Tester t) {
+    DialQueue queue = new DialQueue(3);
+    queue.add(10, 2);
+    queue.add(11, 0);
+    queue.add(12, 3);
+    t.checkExpect(queue.removeMin(), 11);
+    t.checkExpect(queue.removeMin(), 10);
+    queue.add(13, 5);
+    t.checkExpect(queue.removeMin(), 12);
+    t.checkExpect(queue.removeMin(), 13);
+    t.checkExpect(queue.isEmpty(), true);
+    t.checkException(new IllegalArgumentException("Distance 4 is not within a step of 5"),
+        queue, "add", 14, 4);
+    t.checkException(new IllegalStateException("Queue is empty"), queue, "removeMin");
+    t.checkConstructorException(new IllegalArgumentException("Steps must be at least 1"),
+        "DialQueue", 0);
+  }
+}
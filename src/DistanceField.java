@@ -0,0 +1,154 @@
+import tester.Tester;
+
+// Represents the distances of every tile in a maze from its start and end tiles
+// each set of distances is only computed the first time it is asked for, sequentially or,
+// if the field is given a ParallelBfs, in parallel
+class DistanceField {
+  private MazeGrid grid;
+  private ParallelBfs bfs;
+  private int[] toStart;
+  private int[] toEnd;
+  private int maxToStart;
+  private int maxToEnd;
+
+  DistanceField(MazeGrid grid) {
+    this(grid, null);
+  }
+
+  // computes the distances with the given parallel search (or sequentially, given null)
+  DistanceField(MazeGrid grid, ParallelBfs bfs) {
+    this.grid = grid;
+    this.bfs = bfs;
+  }
+
+  // returns the distance of every tile from the start tile, indexed by tile id
+  int[] toStart() {
+    if (this.toStart == null) {
+      Phase phase = Metrics.begin("distances");
+      this.toStart = this.computeDistances(0);
+      this.maxToStart = this.max(this.toStart);
+      phase.end();
+    }
+    return this.toStart;
+  }
+
+  // returns the distance of every tile from the end tile, indexed by tile id
+  int[] toEnd() {
+    if (this.toEnd == null) {
+      Phase phase = Metrics.begin("distances");
+      this.toEnd = this.computeDistances(this.grid.size() - 1);
+      this.maxToEnd = this.max(this.toEnd);
+      phase.end();
+    }
+    return this.toEnd;
+  }
+
+  // returns the maximum distance from the start tile
+  int maxToStart() {
+    this.toStart();
+    return this.maxToStart;
+  }
+
+  // returns the maximum distance from the end tile
+  int maxToEnd() {
+    this.toEnd();
+    return this.maxToEnd;
+  }
+
+  // returns whether the distances from the start tile have been computed yet
+  boolean hasStartDistances() {
+    return this.toStart != null;
+  }
+
+  // returns whether the distances from the end tile have been computed yet
+  boolean hasEndDistances() {
+    return this.toEnd != null;
+  }
+
+  // given the id of a tile, returns the distance of every tile from it
+  // (tiles that cannot be reached are left at -1)
+  int[] computeDistances(int from) {
+    if (this.bfs != null && this.grid.size() > 0) {
+      return this.bfs.distances(this.grid, from);
+    }
+    return this.sequentialDistances(from);
+  }
+
+  // given the id of a tile, returns the distance of every tile from it,
+  // walking the maze breadth first with an array used as the queue
+  // (tiles that cannot be reached are left at -1)
+  int[] sequentialDistances(int from) {
+    int size = this.grid.size();
+    int[] distances = new int[size];
+    int[] queue = new int[size];
+    int[] neighbors = new int[4];
+
+    for (int id = 0; id < size; id += 1) {
+      distances[id] = -1;
+    }
+
+    if (size == 0) {
+      return distances;
+    }
+
+    int head = 0;
+    int tail = 0;
+    distances[from] = 0;
+    queue[tail] = from;
+    tail += 1;
+
+    while (head < tail) {
+      int tile = queue[head];
+      head += 1;
+
+      int count = this.grid.openNeighbors(tile, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        if (distances[neighbors[i]] == -1) {
+          distances[neighbors[i]] = distances[tile] + 1;
+          queue[tail] = neighbors[i];
+          tail += 1;
+        }
+      }
+    }
+    return distances;
+  }
+
+  // returns the largest of the given distances
+  private int max(int[] distances) {
+    int max = 0;
+    for (int distance : distances) {
+      max = Math.max(distance, max);
+    }
+    return max;
+  }
+}
+
+class ExamplesDistanceField {
+
+  void testDistances(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 2);
+    grid.open(0, 0, MazeGrid.EAST);
+    grid.open(1, 0, MazeGrid.SOUTH);
+    grid.open(1, 1, MazeGrid.WEST);
+    DistanceField distances = new DistanceField(grid);
+
+    t.checkExpect(distances.hasStartDistances(), false);
+    t.checkExpect(distances.toStart(), new int[] {0, 1, 3, 2});
+    t.checkExpect(distances.toEnd(), new int[] {2, 1, 1, 0});
+    t.checkExpect(distances.maxToStart(), 3);
+    t.checkExpect(distances.maxToEnd(), 2);
+  }
+
+  // a corridor a million tiles long used to overflow the stack when walked recursively
+  void testLongCorridor(Tester t) {
+    int length = 1000000;
+    MazeGrid grid = new MazeGrid(length, 1);
+    for (int x = 0; x < length - 1; x += 1) {
+      grid.open(x, 0, MazeGrid.EAST);
+    }
+    DistanceField distances = new DistanceField(grid);
+
+    t.checkExpect(distances.toEnd()[0], length - 1);
+    t.checkExpect(distances.maxToStart(), length - 1);
+  }
+}
@@ -0,0 +1,118 @@
+import tester.Tester;
+
+// represents an algorithm that turns a grid with every wall closed into a perfect maze
+// (exactly one path between any two tiles) by opening walls along a spanning tree
+interface IMazeGenerator {
+
+  // opens the walls of the given grid along a spanning tree drawn from the given seed
+  // (the same seed always opens the same walls)
+  void carve(MazeGrid grid, long seed);
+}
+
+// Creates generators by name, so they can be picked from the keyboard or the command line
+class GeneratorFactory {
+  static final String[] GENERATORS = {"kruskal", "prim", "backtracker", "wilson", "parallel"};
+
+  // returns the named generator
+  IMazeGenerator create(String name) {
+    if (name.equals("kruskal")) {
+      return new MazeBuilder();
+    }
+    else if (name.equals("prim")) {
+      return new PrimGenerator();
+    }
+    else if (name.equals("backtracker")) {
+      return new BacktrackerGenerator();
+    }
+    else if (name.equals("wilson")) {
+      return new WilsonGenerator();
+    }
+    else if (name.equals("parallel")) {
+      return new ParallelMazeBuilder();
+    }
+    throw new IllegalArgumentException("Unknown generator: " + name);
+  }
+
+  // builds a maze of the given size from the given seed with the named generator
+  MazeGrid buildMaze(String name, int width, int height, long seed) {
+    Phase phase = Metrics.begin("buildGrid");
+    MazeGrid grid = new MazeGrid(width, height);
+    phase.end();
+    this.create(name).carve(grid, seed);
+    return grid;
+  }
+
+  // builds a maze with the named generator and reports what it cost
+  GenerateReport generate(String name, int width, int height, long seed) {
+    IMazeGenerator generator = this.create(name);
+    long allocatedBefore = Metrics.allocatedBytes();
+    long begin = System.nanoTime();
+    MazeGrid grid = new MazeGrid(width, height);
+    generator.carve(grid, seed);
+    long elapsed = System.nanoTime() - begin;
+    long allocated = Metrics.allocatedBytes() - allocatedBefore;
+    return new GenerateReport(name, grid, elapsed, allocated);
+  }
+
+  // builds the same maze size with each of the named generators, reporting on each
+  GenerateReport[] compare(String[] names, int width, int height, long seed) {
+    GenerateReport[] reports = new GenerateReport[names.length];
+    for (int i = 0; i < names.length; i += 1) {
+      reports[i] = this.generate(names[i], width, height, seed);
+    }
+    return reports;
+  }
+}
+
+// Represents what building a maze with one generator cost
+class GenerateReport {
+  final String generator;
+  final MazeGrid grid;
+  final long nanos;
+  final long allocatedBytes;
+
+  GenerateReport(String generator, MazeGrid grid, long nanos, long allocatedBytes) {
+    this.generator = generator;
+    this.grid = grid;
+    this.nanos = nanos;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  // returns a one line summary of this report
+  String describe() {
+    return "built " + this.grid.width + "x" + this.grid.height + " maze with " + this.generator
+        + " in " + String.format("%.2f", this.nanos / 1e6) + " ms ("
+        + String.format("%.1f", this.grid.size() * 1e3 / Math.max(this.nanos, 1))
+        + " tiles/us, " + String.format("%.1f", this.allocatedBytes / 1048576.0)
+        + " MB allocated)";
+  }
+}
+
+class ExamplesGenerator {
+
+  // every generator builds a spanning tree: one fewer opening than tiles, all reachable,
+  // and the same maze again from the same seed
+  void testPerfectMazes(Tester t) {
+    GeneratorFactory factory = new GeneratorFactory();
+    int[][] sizes = {{1, 1}, {1, 7}, {7, 1}, {31, 17}};
+
+    for (String name : GeneratorFactory.GENERATORS) {
+      for (int[] size : sizes) {
+        MazeGrid grid = factory.buildMaze(name, size[0], size[1], 9);
+        new ExamplesMazeGrid().checkSpanningTree(t, grid, name);
+        t.checkExpect(factory.buildMaze(name, size[0], size[1], 9), grid, name);
+      }
+    }
+  }
+
+  void testReports(Tester t) {
+    GeneratorFactory factory = new GeneratorFactory();
+    GenerateReport[] reports = factory.compare(new String[] {"prim", "wilson"}, 20, 10, 4);
+
+    t.checkExpect(reports.length, 2);
+    t.checkExpect(reports[1].generator, "wilson");
+    t.checkExpect(reports[1].grid.size(), 200);
+    t.checkException(new IllegalArgumentException("Unknown generator: eller"),
+        factory, "create", "eller");
+  }
+}
@@ -0,0 +1,183 @@
+import java.util.BitSet;
+
+import tester.Tester;
+
+// Represents a search of a maze from a start tile to a goal tile that expands one tile per
+// step, in the order its worklist hands them out (depth first with a MazeStack,
+// breadth first with a MazeQueue)
+// seen tiles are kept in a bitset and the tile each was reached from in an array,
+// so a step allocates nothing
+class GridSearch implements ISolver {
+  private MazeGrid grid;
+  private IWorkList workList;
+  private int start;
+  private int goal;
+  private BitSet seen;
+  private int seenCount;
+  private int[] order;
+  private int[] cameFrom;
+  private int[] neighbors;
+  private int[] path;
+  private BitSet onPath;
+  private boolean complete;
+
+  GridSearch(MazeGrid grid, IWorkList workList, int start, int goal) {
+    if (grid.size() == 0) {
+      throw new IllegalArgumentException("This maze has no tiles");
+    }
+
+    this.grid = grid;
+    this.workList = workList;
+    this.start = start;
+    this.goal = goal;
+    this.seen = new BitSet(grid.size());
+    this.seenCount = 0;
+    this.order = new int[grid.size()];
+    this.cameFrom = new int[grid.size()];
+    this.neighbors = new int[4];
+    this.path = new int[0];
+    this.onPath = new BitSet();
+    this.complete = false;
+    this.workList.add(start);
+  }
+
+  // iterates the next step of the search
+  // returns whether the search is complete
+  public boolean step() {
+    if (this.complete) {
+      return true;
+    }
+    if (this.workList.isEmpty()) {
+      this.complete = true;
+      return true;
+    }
+
+    int tile = this.workList.remove();
+    if (this.seen.get(tile)) {
+      return false;
+    }
+    this.seen.set(tile);
+    this.order[this.seenCount] = tile;
+    this.seenCount += 1;
+
+    if (tile == this.goal) {
+      this.findPath(tile);
+      this.complete = true;
+      return true;
+    }
+
+    // adds unseen neighbor tiles to the worklist and records where they came from
+    int count = this.grid.openNeighbors(tile, this.neighbors);
+    for (int i = 0; i < count; i += 1) {
+      if (!this.seen.get(this.neighbors[i])) {
+        this.workList.add(this.neighbors[i]);
+        this.cameFrom[this.neighbors[i]] = tile;
+      }
+    }
+    return false;
+  }
+
+  // performs steps until the search is complete
+  void finish() {
+    while (!this.step()) {
+      // keeps stepping
+    }
+  }
+
+  // given the goal tile, records the path back to the start through the tiles
+  // each tile was reached from
+  void findPath(int tile) {
+    int length = 1;
+    for (int current = tile; current != this.start; current = this.cameFrom[current]) {
+      length += 1;
+    }
+
+    this.path = new int[length];
+    int current = tile;
+    for (int i = 0; i < length; i += 1) {
+      this.path[i] = current;
+      this.onPath.set(current);
+      current = this.cameFrom[current];
+    }
+  }
+
+  // returns whether the search has reached the goal or run out of tiles
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns whether the goal has been reached
+  boolean foundGoal() {
+    return this.path.length > 0;
+  }
+
+  // returns whether the given tile has been expanded
+  public boolean wasSeen(int tile) {
+    return this.seen.get(tile);
+  }
+
+  // returns the tile that was expanded index-th (counting from 0)
+  public int seenTile(int index) {
+    return this.order[index];
+  }
+
+  // returns whether the given tile is on the path found
+  public boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns the number of tiles expanded so far
+  public int seenCount() {
+    return this.seenCount;
+  }
+
+  // returns the number of entries waiting to be expanded
+  public int frontierSize() {
+    return this.workList.size();
+  }
+
+  // returns the number of tiles on the path found (0 until the goal is reached)
+  public int pathLength() {
+    return this.path.length;
+  }
+
+  // returns the tiles of the path found, from the goal back to the start
+  public int[] path() {
+    return this.path;
+  }
+}
+
+class ExamplesGridSearch {
+
+  // the path through a perfect maze is unique, so both searches find the one
+  // the distance field measures
+  void testSearches(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(120, 90, 5);
+    int expected = new DistanceField(grid).toEnd()[0] + 1;
+    GridSearch depthFirst = new GridSearch(grid, new MazeStack(), 0, grid.size() - 1);
+    GridSearch breadthFirst = new GridSearch(grid, new MazeQueue(), 0, grid.size() - 1);
+
+    depthFirst.finish();
+    breadthFirst.finish();
+
+    t.checkExpect(depthFirst.pathLength(), expected);
+    t.checkExpect(breadthFirst.pathLength(), expected);
+    t.checkExpect(breadthFirst.path()[0], grid.size() - 1);
+    t.checkExpect(breadthFirst.path()[expected - 1], 0);
+    t.checkExpect(breadthFirst.isOnPath(grid.size() - 1), true);
+    t.checkExpect(breadthFirst.wasSeen(0), true);
+  }
+
+  void testStepOrder(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 1);
+    grid.open(0, 0, MazeGrid.EAST);
+    grid.open(1, 0, MazeGrid.EAST);
+    GridSearch search = new GridSearch(grid, new MazeQueue(), 1, 2);
+
+    t.checkExpect(search.step(), false);
+    t.checkExpect(search.seenCount(), 1);
+    t.checkExpect(search.step(), true);
+    t.checkExpect(search.wasSeen(0), false);
+    t.checkExpect(search.path(), new int[] {2, 1});
+  }
+}
@@ -0,0 +1,494 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import tester.Tester;
+
+// Represents a maze with no edges, split into square chunks that are generated when first
+// needed
+// each chunk is a perfect maze of its own, carved from a seed mixed from the maze's seed and
+// the chunk's coordinates, so a chunk that was evicted comes back exactly as it was; each
+// border between two chunks has one door, at a place mixed from the seed and the border's
+// coordinates, so both chunks agree on it without either being generated (and every chunk
+// can be reached from every other)
+// chunks are generated on a background executor and kept in a ChunkCache; looking a tile up
+// never waits for generation: a chunk that is not loaded yet is requested and reported as
+// not loaded, and prefetchAround requests every chunk near a place, nearest first, so the
+// chunks around the player are loaded before the player gets there
+class InfiniteMaze {
+  static final int DEFAULT_CHUNK_SIZE = 64;
+  static final int DEFAULT_RADIUS = 2;
+
+  // what wall() reports about a wall
+  static final int CLOSED = 0;
+  static final int OPEN = 1;
+  static final int NOT_LOADED = -1;
+
+  final long seed;
+  final int chunkSize;
+  private IMazeGenerator generator;
+  private ChunkCache cache;
+  private ExecutorService executor;
+  private Set<Long> pending;
+  private int radius;
+
+  // the chunk prefetching is centered on; requests for chunks that have fallen well outside
+  // the prefetched area by the time they run are dropped
+  private volatile int centerX;
+  private volatile int centerY;
+
+  // a maze with the default chunk size and prefetch radius, keeping at most the given number
+  // of bytes of chunks
+  InfiniteMaze(long seed, String generator, long budget) {
+    this(seed, DEFAULT_CHUNK_SIZE, generator, budget, DEFAULT_RADIUS,
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+  }
+
+  InfiniteMaze(long seed, int chunkSize, String generator, long budget, int radius,
+      int threads) {
+    if (chunkSize < 2) {
+      throw new IllegalArgumentException("Chunks must be at least 2 tiles wide");
+    }
+    if (radius < 0) {
+      throw new IllegalArgumentException("Prefetch radius must not be negative");
+    }
+
+    this.seed = seed;
+    this.chunkSize = chunkSize;
+    this.generator = new GeneratorFactory().create(generator);
+    this.cache = new ChunkCache(budget);
+    this.pending = ConcurrentHashMap.newKeySet();
+    this.radius = radius;
+    this.executor = Executors.newFixedThreadPool(threads, task -> {
+      Thread thread = new Thread(task, "maze-chunks");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // returns the key of the chunk at the given chunk coordinates
+  static long key(int chunkX, int chunkY) {
+    return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+  }
+
+  // scrambles the bits of the given value (the finalizer of SplitMix64)
+  static long mix(long value) {
+    long z = value;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  // returns the seed the given chunk is carved from
+  long chunkSeed(int chunkX, int chunkY) {
+    return mix(this.seed ^ mix(key(chunkX, chunkY)));
+  }
+
+  // returns the row of the door through the east border of the given chunk
+  // (the west border of the chunk east of it)
+  int eastDoor(int chunkX, int chunkY) {
+    return (int) Math.floorMod(mix(this.chunkSeed(chunkX, chunkY) + 1), (long) this.chunkSize);
+  }
+
+  // returns the column of the door through the south border of the given chunk
+  // (the north border of the chunk south of it)
+  int southDoor(int chunkX, int chunkY) {
+    return (int) Math.floorMod(mix(this.chunkSeed(chunkX, chunkY) + 2), (long) this.chunkSize);
+  }
+
+  // returns the chunk coordinate holding the given tile coordinate
+  int chunkOf(long coordinate) {
+    return (int) Math.floorDiv(coordinate, (long) this.chunkSize);
+  }
+
+  // returns the given tile coordinate within its chunk
+  int withinChunk(long coordinate) {
+    return (int) Math.floorMod(coordinate, (long) this.chunkSize);
+  }
+
+  // carves the given chunk, on the calling thread
+  MazeChunk generate(int chunkX, int chunkY) {
+    Phase phase = Metrics.begin("chunk");
+    MazeGrid grid = new MazeGrid(this.chunkSize, this.chunkSize);
+    this.generator.carve(grid, this.chunkSeed(chunkX, chunkY));
+    MazeChunk chunk = new MazeChunk(chunkX, chunkY, grid, this.eastDoor(chunkX, chunkY),
+        this.southDoor(chunkX, chunkY), this.eastDoor(chunkX - 1, chunkY),
+        this.southDoor(chunkX, chunkY - 1));
+    phase.end();
+    return chunk;
+  }
+
+  // returns the given chunk if it is loaded, or requests it and returns null
+  MazeChunk chunkIfLoaded(int chunkX, int chunkY) {
+    MazeChunk chunk = this.cache.get(key(chunkX, chunkY));
+    if (chunk == null) {
+      this.request(chunkX, chunkY);
+    }
+    return chunk;
+  }
+
+  // generates the given chunk in the background unless it is loaded or already requested
+  void request(int chunkX, int chunkY) {
+    long key = key(chunkX, chunkY);
+    if (this.cache.contains(key) || !this.pending.add(key)) {
+      return;
+    }
+
+    this.executor.execute(() -> {
+      try {
+        // the player has moved on, so the chunk will be asked for again if it is needed
+        if (Math.abs(chunkX - this.centerX) <= this.radius + 1
+            && Math.abs(chunkY - this.centerY) <= this.radius + 1) {
+          this.cache.put(key, this.generate(chunkX, chunkY));
+        }
+      }
+      finally {
+        this.pending.remove(key);
+      }
+    });
+  }
+
+  // requests every chunk within the prefetch radius of the chunk holding the given tile,
+  // in rings outward from it
+  void prefetchAround(long x, long y) {
+    int chunkX = this.chunkOf(x);
+    int chunkY = this.chunkOf(y);
+    this.centerX = chunkX;
+    this.centerY = chunkY;
+
+    this.chunkIfLoaded(chunkX, chunkY);
+    for (int ring = 1; ring <= this.radius; ring += 1) {
+      for (int i = -ring; i < ring; i += 1) {
+        this.chunkIfLoaded(chunkX + i, chunkY - ring);
+        this.chunkIfLoaded(chunkX + ring, chunkY + i);
+        this.chunkIfLoaded(chunkX - i, chunkY + ring);
+        this.chunkIfLoaded(chunkX - ring, chunkY - i);
+      }
+    }
+  }
+
+  // returns whether the wall on the given side of the given tile is OPEN or CLOSED, or
+  // NOT_LOADED if the tile's chunk is not loaded yet (it is then requested)
+  int wall(long x, long y, int dir) {
+    MazeChunk chunk = this.chunkIfLoaded(this.chunkOf(x), this.chunkOf(y));
+    if (chunk == null) {
+      return NOT_LOADED;
+    }
+    return chunk.isOpen(this.withinChunk(x), this.withinChunk(y), dir) ? OPEN : CLOSED;
+  }
+
+  // returns the cache holding the loaded chunks
+  ChunkCache cache() {
+    return this.cache;
+  }
+
+  // returns the number of chunks requested and not generated yet
+  int pendingCount() {
+    return this.pending.size();
+  }
+
+  // waits up to the given number of milliseconds for every requested chunk to be generated
+  // returns whether they all were
+  boolean awaitPending(long millis) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    while (!this.pending.isEmpty()) {
+      if (System.nanoTime() - deadline >= 0) {
+        return false;
+      }
+      Thread.sleep(1);
+    }
+    return true;
+  }
+
+  // stops generating chunks
+  void shutdown() {
+    this.executor.shutdownNow();
+  }
+}
+
+// Represents one chunk of an InfiniteMaze: a perfect maze with a door through each border
+class MazeChunk implements ISized {
+  // roughly what a chunk and its grid take beyond the grid's words
+  static final long OVERHEAD = 160;
+
+  final int chunkX;
+  final int chunkY;
+  final MazeGrid grid;
+  final int eastDoor;
+  final int southDoor;
+  final int westDoor;
+  final int northDoor;
+
+  MazeChunk(int chunkX, int chunkY, MazeGrid grid, int eastDoor, int southDoor, int westDoor,
+      int northDoor) {
+    this.chunkX = chunkX;
+    this.chunkY = chunkY;
+    this.grid = grid;
+    this.eastDoor = eastDoor;
+    this.southDoor = southDoor;
+    this.westDoor = westDoor;
+    this.northDoor = northDoor;
+  }
+
+  // returns whether the wall on the given side of the tile at the given place in this chunk is
+  // open, through a door where it is on the chunk's border
+  boolean isOpen(int x, int y, int dir) {
+    if (dir == MazeGrid.EAST && x == this.grid.width - 1) {
+      return y == this.eastDoor;
+    }
+    else if (dir == MazeGrid.WEST && x == 0) {
+      return y == this.westDoor;
+    }
+    else if (dir == MazeGrid.SOUTH && y == this.grid.height - 1) {
+      return x == this.southDoor;
+    }
+    else if (dir == MazeGrid.NORTH && y == 0) {
+      return x == this.northDoor;
+    }
+    return this.grid.isOpen(x, y, dir);
+  }
+
+  // returns roughly how many bytes this chunk takes
+  public long bytes() {
+    return this.grid.wordCount() * 8L + OVERHEAD;
+  }
+}
+
+// Keeps the most recently used chunks of an InfiniteMaze within a byte budget
+// all methods are synchronized, since chunks are added from the generating threads while
+// the player's thread looks them up; none of them generates anything, so none waits long
+class ChunkCache {
+  static final long DEFAULT_BUDGET = 16L << 20;
+
+  private BudgetCache<Long, MazeChunk> chunks;
+
+  // a cache whose chunks take at most the given number of bytes
+  ChunkCache(long budget) {
+    this.chunks = new BudgetCache<Long, MazeChunk>(budget);
+  }
+
+  // returns the chunk with the given key, or null if it is not loaded
+  synchronized MazeChunk get(long key) {
+    return this.chunks.get(key);
+  }
+
+  // returns whether the chunk with the given key is loaded, without counting as a use
+  synchronized boolean contains(long key) {
+    return this.chunks.contains(key);
+  }
+
+  // adds the given chunk, evicting the least recently used chunks to stay in budget
+  // (a chunk larger than the whole budget is not kept)
+  synchronized void put(long key, MazeChunk chunk) {
+    this.chunks.put(key, chunk);
+  }
+
+  // returns the number of chunks loaded
+  synchronized int size() {
+    return this.chunks.size();
+  }
+
+  // returns the number of bytes the loaded chunks take
+  synchronized long bytes() {
+    return this.chunks.bytes();
+  }
+
+  // returns the number of chunks evicted to stay in budget
+  synchronized long evictions() {
+    return this.chunks.evictions();
+  }
+
+  // returns a one line summary of this cache
+  synchronized String describe() {
+    return "chunks: " + this.chunks.size() + " loaded, " + (this.chunks.bytes() >> 10)
+        + " of " + (this.chunks.budget() >> 10) + " KB, " + this.chunks.evictions()
+        + " evicted";
+  }
+}
+
+// Represents the player's walk through an InfiniteMaze
+// a move into a tile whose chunk is not loaded yet is refused rather than waited for (and
+// counted), and every move prefetches the chunks around the player's new place
+class InfiniteWalk {
+  private InfiniteMaze maze;
+  private long x;
+  private long y;
+  private int moves;
+  private int stalls;
+
+  // starts a walk at the top left tile of chunk (0, 0)
+  InfiniteWalk(InfiniteMaze maze) {
+    this.maze = maze;
+    maze.prefetchAround(0, 0);
+  }
+
+  // moves the player one tile in the given direction if the wall there is open and the
+  // tile's chunk is loaded
+  // returns whether the player moved
+  boolean move(int dir) {
+    int wall = this.maze.wall(this.x, this.y, dir);
+    if (wall == InfiniteMaze.NOT_LOADED) {
+      this.stalls += 1;
+      return false;
+    }
+    if (wall == InfiniteMaze.CLOSED) {
+      return false;
+    }
+
+    if (dir == MazeGrid.NORTH) {
+      this.y -= 1;
+    }
+    else if (dir == MazeGrid.SOUTH) {
+      this.y += 1;
+    }
+    else if (dir == MazeGrid.WEST) {
+      this.x -= 1;
+    }
+    else {
+      this.x += 1;
+    }
+    this.moves += 1;
+    this.maze.prefetchAround(this.x, this.y);
+    return true;
+  }
+
+  // returns the column of the player's tile
+  long x() {
+    return this.x;
+  }
+
+  // returns the row of the player's tile
+  long y() {
+    return this.y;
+  }
+
+  // returns the number of moves made
+  int moves() {
+    return this.moves;
+  }
+
+  // returns the number of moves refused because a chunk was not loaded yet
+  int stalls() {
+    return this.stalls;
+  }
+}
+
+class ExamplesInfiniteMaze {
+
+  // a maze of 8x8 chunks that keeps every chunk it generates
+  InfiniteMaze small(long seed) {
+    return new InfiniteMaze(seed, 8, "kruskal", 1L << 30, 1, 1);
+  }
+
+  // chunks are the same whenever and however often they are generated, and neighbors agree
+  // on the doors between them
+  void testDeterministic(Tester t) {
+    InfiniteMaze first = this.small(5);
+    InfiniteMaze second = this.small(5);
+    t.checkExpect(first.generate(-3, 7).grid, second.generate(-3, 7).grid);
+    t.checkExpect(first.generate(0, 0).grid.fingerprint()
+        == first.generate(1, 0).grid.fingerprint(), false);
+
+    MazeChunk west = first.generate(-1, 2);
+    MazeChunk east = first.generate(0, 2);
+    MazeChunk south = first.generate(-1, 3);
+    t.checkExpect(west.eastDoor, east.westDoor);
+    t.checkExpect(west.southDoor, south.northDoor);
+    t.checkExpect(west.isOpen(7, west.eastDoor, MazeGrid.EAST), true);
+    t.checkExpect(east.isOpen(0, west.eastDoor, MazeGrid.WEST), true);
+    t.checkExpect(west.isOpen(7, (west.eastDoor + 1) % 8, MazeGrid.EAST), false);
+    t.checkExpect(first.chunkOf(-1), -1);
+    t.checkExpect(first.withinChunk(-1), 7);
+    first.shutdown();
+    second.shutdown();
+  }
+
+  // every tile of a block of chunks can be reached from every other without leaving it
+  void testConnected(Tester t) throws InterruptedException {
+    InfiniteMaze maze = this.small(11);
+    for (int chunkY = -1; chunkY <= 1; chunkY += 1) {
+      for (int chunkX = -1; chunkX <= 1; chunkX += 1) {
+        maze.request(chunkX, chunkY);
+      }
+    }
+    t.checkExpect(maze.awaitPending(10000), true);
+
+    // a breadth first search of the 24x24 tiles from -8 to 15 on each axis
+    boolean[] seen = new boolean[24 * 24];
+    IntDeque queue = new IntDeque();
+    queue.addLast(0);
+    seen[0] = true;
+    int reached = 0;
+    int[] dx = {0, 1, 0, -1};
+    int[] dy = {-1, 0, 1, 0};
+    while (!queue.isEmpty()) {
+      int tile = queue.removeFirst();
+      reached += 1;
+      for (int dir = 0; dir < 4; dir += 1) {
+        int x = tile % 24 + dx[dir];
+        int y = tile / 24 + dy[dir];
+        if (x >= 0 && x < 24 && y >= 0 && y < 24 && !seen[y * 24 + x]
+            && maze.wall(tile % 24 - 8, tile / 24 - 8, dir) == InfiniteMaze.OPEN) {
+          seen[y * 24 + x] = true;
+          queue.addLast(y * 24 + x);
+        }
+      }
+    }
+    t.checkExpect(reached, 24 * 24);
+    maze.shutdown();
+  }
+
+  // the least recently used chunks are evicted to stay in budget
+  void testCache(Tester t) {
+    InfiniteMaze maze = this.small(2);
+    ChunkCache cache = new ChunkCache(3 * maze.generate(0, 0).bytes());
+    for (int chunkX = 0; chunkX < 3; chunkX += 1) {
+      cache.put(InfiniteMaze.key(chunkX, 0), maze.generate(chunkX, 0));
+    }
+    t.checkExpect(cache.get(InfiniteMaze.key(0, 0)).chunkX, 0);
+    cache.put(InfiniteMaze.key(0, -1), maze.generate(0, -1));
+
+    t.checkExpect(cache.size(), 3);
+    t.checkExpect(cache.evictions(), 1L);
+    t.checkExpect(cache.contains(InfiniteMaze.key(1, 0)), false);
+    t.checkExpect(cache.contains(InfiniteMaze.key(0, 0)), true);
+    t.checkExpect(InfiniteMaze.key(-1, -1) == InfiniteMaze.key(-1, 0), false);
+    maze.shutdown();
+  }
+
+  // walking never waits for a chunk: a move into one not loaded yet is refused, and allowed
+  // once it has been generated in the background
+  void testWalk(Tester t) throws InterruptedException {
+    InfiniteMaze maze = this.small(3);
+    t.checkExpect(maze.wall(100, 100, MazeGrid.EAST), InfiniteMaze.NOT_LOADED);
+    InfiniteWalk walk = new InfiniteWalk(maze);
+    t.checkExpect(maze.awaitPending(10000), true);
+    t.checkExpect(maze.cache().contains(InfiniteMaze.key(-1, 1)), true);
+    t.checkExpect(maze.cache().contains(InfiniteMaze.key(2, 0)), false);
+
+    // the chunk asked for far from the player was dropped before it was generated
+    t.checkExpect(maze.cache().contains(InfiniteMaze.key(12, 12)), false);
+
+    // follows open walls until the walk has gone some way
+    int[] order = {MazeGrid.EAST, MazeGrid.SOUTH, MazeGrid.NORTH, MazeGrid.WEST};
+    int back = -1;
+    for (int i = 0; i < 40; i += 1) {
+      for (int dir : order) {
+        if (dir != back && maze.wall(walk.x(), walk.y(), dir) == InfiniteMaze.OPEN) {
+          t.checkExpect(walk.move(dir), true);
+          back = (dir + 2) % 4;
+          break;
+        }
+      }
+      maze.awaitPending(10000);
+    }
+    t.checkExpect(walk.moves() > 0, true);
+    t.checkExpect(walk.stalls(), 0);
+    t.checkConstructorException(
+        new IllegalArgumentException("Chunks must be at least 2 tiles wide"),
+        "InfiniteMaze", 1L, 1, "kruskal", 100L, 1, 1);
+    maze.shutdown();
+  }
+}
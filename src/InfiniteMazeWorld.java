@@ -0,0 +1,135 @@
+import java.awt.Color;
+import javalib.impworld.World;
+import javalib.impworld.WorldScene;
+import javalib.worldimages.ComputedPixelImage;
+import javalib.worldimages.TextImage;
+
+// represents the player walking an InfiniteMaze, showing a window of tiles centered on the
+// player that moves with them
+// each frame draws only the tiles in the window, so it costs the same however far the player
+// has walked; tiles whose chunk is not loaded yet are drawn gray, and neither drawing nor
+// moving ever waits for a chunk to be generated
+class InfiniteMazeWorld extends World {
+  static final Color NOT_LOADED_COLOR = Color.LIGHT_GRAY;
+
+  private InfiniteMaze maze;
+  private InfiniteWalk walk;
+  private int columns;
+  private int rows;
+  private int blockSize;
+  private ComputedPixelImage image;
+
+  // a window of the given number of tiles across and down on a new maze from the given seed
+  InfiniteMazeWorld(long seed, int columns, int rows, int blockSize) {
+    this(new InfiniteMaze(seed, "kruskal", ChunkCache.DEFAULT_BUDGET), columns, rows, blockSize);
+  }
+
+  InfiniteMazeWorld(InfiniteMaze maze, int columns, int rows, int blockSize) {
+    this.maze = maze;
+    this.walk = new InfiniteWalk(maze);
+    this.columns = columns;
+    this.rows = rows;
+    this.blockSize = blockSize;
+    this.image = new ComputedPixelImage(columns * blockSize, rows * blockSize);
+  }
+
+  // draws the tiles around the player and what the walk and the chunk cache have done
+  public WorldScene makeScene() {
+    WorldScene scene = new WorldScene(this.columns * this.blockSize,
+        this.rows * this.blockSize);
+    this.draw();
+    scene.placeImageXY(this.image, this.columns * this.blockSize / 2,
+        this.rows * this.blockSize / 2);
+    scene.placeImageXY(new TextImage("(" + this.walk.x() + ", " + this.walk.y() + ")   moves: "
+        + this.walk.moves() + "   refused moves: " + this.walk.stalls(), Color.BLACK),
+        this.columns * this.blockSize / 2, this.blockSize / 2);
+    scene.placeImageXY(new TextImage(this.maze.cache().describe() + ", "
+        + this.maze.pendingCount() + " pending", Color.BLACK),
+        this.columns * this.blockSize / 2, this.blockSize / 2 + 15);
+    return scene;
+  }
+
+  // paints every tile of the window, with the walls on its west and north sides
+  void draw() {
+    long left = this.walk.x() - this.columns / 2;
+    long top = this.walk.y() - this.rows / 2;
+    MazeChunk chunk = null;
+
+    for (int row = 0; row < this.rows; row += 1) {
+      for (int column = 0; column < this.columns; column += 1) {
+        long x = left + column;
+        long y = top + row;
+        int chunkX = this.maze.chunkOf(x);
+        int chunkY = this.maze.chunkOf(y);
+        // neighboring tiles mostly share a chunk, so it is only looked up again on leaving it
+        if (chunk == null || chunk.chunkX != chunkX || chunk.chunkY != chunkY) {
+          chunk = this.maze.chunkIfLoaded(chunkX, chunkY);
+        }
+        this.drawTile(column * this.blockSize, row * this.blockSize, x, y, chunk);
+      }
+    }
+  }
+
+  // paints the tile at the given place of the maze at the given pixels, from the given chunk
+  // (null if it is not loaded)
+  void drawTile(int pixelX, int pixelY, long x, long y, MazeChunk chunk) {
+    Color color = Color.WHITE;
+    if (chunk == null) {
+      color = NOT_LOADED_COLOR;
+    }
+    else if (x == this.walk.x() && y == this.walk.y()) {
+      color = Color.RED;
+    }
+    else if (x == 0 && y == 0) {
+      color = MazeRenderer.START_COLOR;
+    }
+    this.fill(pixelX, pixelY, this.blockSize, this.blockSize, color);
+
+    if (chunk != null) {
+      int withinX = this.maze.withinChunk(x);
+      int withinY = this.maze.withinChunk(y);
+      if (!chunk.isOpen(withinX, withinY, MazeGrid.WEST)) {
+        this.fill(pixelX, pixelY, 1, this.blockSize, Color.BLACK);
+      }
+      if (!chunk.isOpen(withinX, withinY, MazeGrid.NORTH)) {
+        this.fill(pixelX, pixelY, this.blockSize, 1, Color.BLACK);
+      }
+    }
+    this.image.setPixel(pixelX, pixelY, Color.BLACK);
+  }
+
+  // paints the given rectangle of pixels in the given color
+  void fill(int left, int top, int width, int height, Color color) {
+    for (int y = top; y < top + height; y += 1) {
+      for (int x = left; x < left + width; x += 1) {
+        this.image.setPixel(x, y, color);
+      }
+    }
+  }
+
+  // moves the player with the arrow keys
+  public void onKeyEvent(String key) {
+    if (key.equals("up")) {
+      this.walk.move(MazeGrid.NORTH);
+    }
+    else if (key.equals("down")) {
+      this.walk.move(MazeGrid.SOUTH);
+    }
+    else if (key.equals("left")) {
+      this.walk.move(MazeGrid.WEST);
+    }
+    else if (key.equals("right")) {
+      this.walk.move(MazeGrid.EAST);
+    }
+  }
+
+  // asks again for any chunk near the player that was evicted
+  public void onTick() {
+    this.maze.prefetchAround(this.walk.x(), this.walk.y());
+  }
+
+  // starts the animation at the given frequency
+  void start(double frequency) {
+    this.bigBang(this.columns * this.blockSize, this.rows * this.blockSize, frequency);
+  }
+}
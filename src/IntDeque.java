@@ -0,0 +1,82 @@
+// Represents a double ended queue of ints stored in a circular array that doubles when full
+// (the capacity is always a power of two, so positions wrap with a mask)
+class IntDeque {
+  private int[] elements;
+  private int head;
+  private int size;
+
+  IntDeque() {
+    this(16);
+  }
+
+  IntDeque(int capacity) {
+    this.elements = new int[Integer.highestOneBit(Math.max(capacity - 1, 1)) * 2];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // adds the given value to the front of this deque
+  void addFirst(int value) {
+    this.ensureRoom();
+    this.head = (this.head - 1) & (this.elements.length - 1);
+    this.elements[this.head] = value;
+    this.size += 1;
+  }
+
+  // adds the given value to the back of this deque
+  void addLast(int value) {
+    this.ensureRoom();
+    this.elements[(this.head + this.size) & (this.elements.length - 1)] = value;
+    this.size += 1;
+  }
+
+  // removes and returns the value at the front of this deque
+  int removeFirst() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Deque is empty");
+    }
+    int value = this.elements[this.head];
+    this.head = (this.head + 1) & (this.elements.length - 1);
+    this.size -= 1;
+    return value;
+  }
+
+  // removes and returns the value at the back of this deque
+  int removeLast() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Deque is empty");
+    }
+    this.size -= 1;
+    return this.elements[(this.head + this.size) & (this.elements.length - 1)];
+  }
+
+  // returns whether this deque is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the number of values in this deque
+  int size() {
+    return this.size;
+  }
+
+  // removes every value from this deque, keeping its capacity
+  void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // doubles the capacity of this deque if it is full, keeping the values in order
+  private void ensureRoom() {
+    if (this.size < this.elements.length) {
+      return;
+    }
+
+    int[] larger = new int[this.elements.length * 2];
+    for (int i = 0; i < this.size; i += 1) {
+      larger[i] = this.elements[(this.head + i) & (this.elements.length - 1)];
+    }
+    this.elements = larger;
+    this.head = 0;
+  }
+}
@@ -0,0 +1,98 @@
+import java.util.Arrays;
+
+// Represents a binary min-heap of int values ordered by non-negative int priorities
+// (ties go to the smaller value); each entry is packed into one long,
+// priority in the high half and value in the low half, so comparing entries is one comparison
+class IntPriorityQueue {
+  private long[] heap;
+  private int size;
+
+  IntPriorityQueue() {
+    this(16);
+  }
+
+  IntPriorityQueue(int capacity) {
+    this.heap = new long[Math.max(capacity, 1)];
+    this.size = 0;
+  }
+
+  // adds the given value with the given priority
+  void add(int value, int priority) {
+    if (priority < 0) {
+      throw new IllegalArgumentException("Priorities cannot be negative");
+    }
+    if (this.size == this.heap.length) {
+      this.heap = Arrays.copyOf(this.heap, this.size * 2);
+    }
+
+    long entry = ((long) priority << 32) | (value & 0xFFFFFFFFL);
+    int index = this.size;
+    this.size += 1;
+
+    // moves the entry up while it is smaller than its parent
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (this.heap[parent] <= entry) {
+        break;
+      }
+      this.heap[index] = this.heap[parent];
+      index = parent;
+    }
+    this.heap[index] = entry;
+  }
+
+  // returns the priority of the smallest entry
+  int peekPriority() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Queue is empty");
+    }
+    return (int) (this.heap[0] >>> 32);
+  }
+
+  // removes the entry with the smallest priority and returns its value
+  int removeMin() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Queue is empty");
+    }
+
+    long min = this.heap[0];
+    this.size -= 1;
+    long last = this.heap[this.size];
+    int index = 0;
+
+    // moves the last entry down from the root while a child is smaller
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= this.size) {
+        break;
+      }
+      if (child + 1 < this.size && this.heap[child + 1] < this.heap[child]) {
+        child += 1;
+      }
+      if (last <= this.heap[child]) {
+        break;
+      }
+      this.heap[index] = this.heap[child];
+      index = child;
+    }
+    if (this.size > 0) {
+      this.heap[index] = last;
+    }
+    return (int) min;
+  }
+
+  // returns whether this queue is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the number of entries in this queue
+  int size() {
+    return this.size;
+  }
+
+  // removes every entry, keeping the capacity
+  void clear() {
+    this.size = 0;
+  }
+}
@@ -0,0 +1,777 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+import tester.Tester;
+
+// Represents a maze contracted to its junctions: every tile with other than two open walls
+// (a junction, a dead end or a lone tile) is a node, and every corridor of two-way tiles
+// between two nodes is one edge, weighted by the steps it takes
+// only about 43% of the tiles of a perfect maze are corridor tiles, so about 57% remain as
+// nodes; searching the nodes is still two to two and a half times faster than searching the
+// tiles, since about half the nodes are dead ends, which a search never expands, and a
+// corridor costs one read of its edge instead of a step per tile
+// each corridor tile remembers its edge and how many steps it lies from the edge's first
+// node, so a search can start or end inside a corridor and its path can be expanded back to
+// tiles
+// a loop made only of corridor tiles (possible in a braided maze) gets one of its tiles made a
+// node, joined to itself by an edge
+// searches spend their time reading the edges of each node they expand, so those are laid out
+// together, three ints per edge: the node at the other end, the length and the edge; and dead
+// ends are numbered after every other node, so telling one apart takes no memory access
+class JunctionGraph {
+  // the ints kept for each edge of a node
+  static final int ENTRY = 3;
+
+  // the graph contracted last by of, with the grid and the fingerprint of the walls it was
+  // contracted from
+  private static JunctionGraph last;
+  private static MazeGrid lastGrid;
+  private static long lastFingerprint;
+
+  private MazeGrid grid;
+  private int[] nodeOf;
+  private int[] edgeOf;
+  private int[] offsetOf;
+  private int[] nodeTiles;
+  private int nodeCount;
+  private int deadEndsFrom;
+  private int deadEndsTo;
+  private int[] adjacencyStart;
+  private int[] adjacency;
+  private int[] edgeFirst;
+  private int[] edgeSecond;
+  private int[] edgeLength;
+  private int[] edgeTilesStart;
+  private int edgeCount;
+  private int longestEdge;
+  private int[] corridorTiles;
+  private int corridorCount;
+  private int[] neighbors;
+  private boolean tree;
+
+  // contracts the given maze
+  JunctionGraph(MazeGrid grid) {
+    Phase phase = Metrics.begin("contract");
+    int size = grid.size();
+    this.grid = grid;
+    this.nodeOf = new int[size];
+    this.edgeOf = new int[size];
+    this.offsetOf = new int[size];
+    this.nodeTiles = new int[size];
+    this.corridorTiles = new int[size];
+    this.neighbors = new int[4];
+    int capacity = 16;
+    this.edgeFirst = new int[capacity];
+    this.edgeSecond = new int[capacity];
+    this.edgeLength = new int[capacity];
+    this.edgeTilesStart = new int[capacity];
+    Arrays.fill(this.nodeOf, -1);
+    Arrays.fill(this.edgeOf, -1);
+
+    for (int tile = 0; tile < size; tile += 1) {
+      if (grid.degree(tile) != 2 && grid.degree(tile) != 1) {
+        this.addNode(tile);
+      }
+    }
+    this.deadEndsFrom = this.nodeCount;
+    for (int tile = 0; tile < size; tile += 1) {
+      if (grid.degree(tile) == 1) {
+        this.addNode(tile);
+      }
+    }
+    this.deadEndsTo = this.nodeCount;
+    for (int node = 0; node < this.nodeCount; node += 1) {
+      this.walkFrom(node);
+    }
+
+    // whatever is left lies on loops of corridor tiles
+    for (int tile = 0; tile < size; tile += 1) {
+      if (this.nodeOf[tile] == -1 && this.edgeOf[tile] == -1) {
+        this.walkFrom(this.addNode(tile));
+      }
+    }
+
+    this.nodeTiles = Arrays.copyOf(this.nodeTiles, this.nodeCount);
+    this.corridorTiles = Arrays.copyOf(this.corridorTiles, this.corridorCount);
+    this.buildAdjacency();
+    this.tree = this.checkTree();
+    phase.end();
+  }
+
+  // makes the given tile a node
+  // returns its node
+  int addNode(int tile) {
+    this.nodeOf[tile] = this.nodeCount;
+    this.nodeTiles[this.nodeCount] = tile;
+    this.nodeCount += 1;
+    return this.nodeCount - 1;
+  }
+
+  // follows every corridor leaving the given node that has not been followed yet, recording
+  // each as an edge
+  void walkFrom(int node) {
+    int tile = this.nodeTiles[node];
+    for (int dir = 0; dir < 4; dir += 1) {
+      if (!this.grid.hasNeighbor(tile, dir) || !this.grid.isOpen(tile, dir)) {
+        continue;
+      }
+
+      int next = this.grid.neighbor(tile, dir);
+      if (this.nodeOf[next] != -1) {
+        // two neighboring nodes are joined once, from the smaller tile
+        if (tile < next) {
+          this.addEdge(node, this.nodeOf[next], 1, this.corridorCount);
+        }
+        continue;
+      }
+      if (this.edgeOf[next] != -1) {
+        continue;
+      }
+
+      int edge = this.edgeCount;
+      int tilesStart = this.corridorCount;
+      int previous = tile;
+      int current = next;
+      int steps = 0;
+      while (this.nodeOf[current] == -1) {
+        steps += 1;
+        this.edgeOf[current] = edge;
+        this.offsetOf[current] = steps;
+        this.corridorTiles[this.corridorCount] = current;
+        this.corridorCount += 1;
+
+        this.grid.openNeighbors(current, this.neighbors);
+        int following = this.neighbors[0] == previous ? this.neighbors[1] : this.neighbors[0];
+        previous = current;
+        current = following;
+      }
+      this.addEdge(node, this.nodeOf[current], steps + 1, tilesStart);
+    }
+  }
+
+  // records an edge of the given length between the given nodes whose corridor tiles start at
+  // the given index
+  void addEdge(int first, int second, int length, int tilesStart) {
+    if (this.edgeCount == this.edgeFirst.length) {
+      int capacity = this.edgeCount * 2;
+      this.edgeFirst = Arrays.copyOf(this.edgeFirst, capacity);
+      this.edgeSecond = Arrays.copyOf(this.edgeSecond, capacity);
+      this.edgeLength = Arrays.copyOf(this.edgeLength, capacity);
+      this.edgeTilesStart = Arrays.copyOf(this.edgeTilesStart, capacity);
+    }
+    this.edgeFirst[this.edgeCount] = first;
+    this.edgeSecond[this.edgeCount] = second;
+    this.edgeLength[this.edgeCount] = length;
+    this.edgeTilesStart[this.edgeCount] = tilesStart;
+    this.edgeCount += 1;
+    this.longestEdge = Math.max(this.longestEdge, length);
+  }
+
+  // lists the edges of each node in one array, the edges of node n from entry
+  // adjacencyStart[n] up to entry adjacencyStart[n + 1]
+  void buildAdjacency() {
+    this.adjacencyStart = new int[this.nodeCount + 1];
+    for (int edge = 0; edge < this.edgeCount; edge += 1) {
+      this.adjacencyStart[this.edgeFirst[edge] + 1] += 1;
+      if (this.edgeSecond[edge] != this.edgeFirst[edge]) {
+        this.adjacencyStart[this.edgeSecond[edge] + 1] += 1;
+      }
+    }
+    for (int node = 0; node < this.nodeCount; node += 1) {
+      this.adjacencyStart[node + 1] += this.adjacencyStart[node];
+    }
+
+    this.adjacency = new int[this.adjacencyStart[this.nodeCount] * ENTRY];
+    int[] filled = Arrays.copyOf(this.adjacencyStart, this.nodeCount);
+    for (int edge = 0; edge < this.edgeCount; edge += 1) {
+      int first = this.edgeFirst[edge];
+      int second = this.edgeSecond[edge];
+      this.addEntry(filled[first], second, edge);
+      filled[first] += 1;
+      if (second != first) {
+        this.addEntry(filled[second], first, edge);
+        filled[second] += 1;
+      }
+    }
+  }
+
+  // records the given edge, leading to the given node, as the given entry
+  void addEntry(int entry, int other, int edge) {
+    this.adjacency[entry * ENTRY] = other;
+    this.adjacency[entry * ENTRY + 1] = this.edgeLength[edge];
+    this.adjacency[entry * ENTRY + 2] = edge;
+  }
+
+  // returns whether no edges of this graph close a loop
+  boolean checkTree() {
+    UnionFind components = new UnionFind(this.nodeCount);
+    for (int edge = 0; edge < this.edgeCount; edge += 1) {
+      if (!components.union(this.edgeFirst[edge], this.edgeSecond[edge])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // returns the graph of the given maze, contracting it only if it is not the maze contracted
+  // last or its walls have changed since (a graph never changes once built, so any number of
+  // searches may share it)
+  static synchronized JunctionGraph of(MazeGrid grid) {
+    long fingerprint = grid.fingerprint();
+    if (last == null || lastGrid != grid || lastFingerprint != fingerprint) {
+      last = new JunctionGraph(grid);
+      lastGrid = grid;
+      lastFingerprint = fingerprint;
+    }
+    return last;
+  }
+
+  // returns a search of this graph from the given tile to the given tile
+  JunctionSearch search(int start, int goal) {
+    return new JunctionSearch(this, start, goal);
+  }
+
+  // returns the number of tiles of the maze
+  int tileCount() {
+    return this.nodeOf.length;
+  }
+
+  // returns the number of nodes
+  int nodeCount() {
+    return this.nodeCount;
+  }
+
+  // returns the number of edges
+  int edgeCount() {
+    return this.edgeCount;
+  }
+
+  // returns the length of the longest edge (at least 1)
+  int longestEdge() {
+    return Math.max(this.longestEdge, 1);
+  }
+
+  // returns the node of the given tile, or -1 if it is a corridor tile
+  int nodeOf(int tile) {
+    return this.nodeOf[tile];
+  }
+
+  // returns the edge the given corridor tile lies on
+  int edgeOf(int tile) {
+    return this.edgeOf[tile];
+  }
+
+  // returns how many steps the given corridor tile lies from the first node of its edge
+  int offsetOf(int tile) {
+    return this.offsetOf[tile];
+  }
+
+  // returns whether there is only one way to each node (so the maze is perfect)
+  boolean isTree() {
+    return this.tree;
+  }
+
+  // returns whether the given node is a dead end
+  boolean isDeadEnd(int node) {
+    return node >= this.deadEndsFrom && node < this.deadEndsTo;
+  }
+
+  // returns the tile of the given node
+  int nodeTile(int node) {
+    return this.nodeTiles[node];
+  }
+
+  // returns the first entry (see adjacentNode) for the edges of the given node
+  int adjacencyStart(int node) {
+    return this.adjacencyStart[node];
+  }
+
+  // returns the node at the other end of the edge of the given entry
+  int adjacentNode(int entry) {
+    return this.adjacency[entry * ENTRY];
+  }
+
+  // returns the length of the edge of the given entry
+  int adjacentLength(int entry) {
+    return this.adjacency[entry * ENTRY + 1];
+  }
+
+  // returns the edge of the given entry
+  int adjacentEdge(int entry) {
+    return this.adjacency[entry * ENTRY + 2];
+  }
+
+  // returns the node the given edge starts at (its offset 0)
+  int first(int edge) {
+    return this.edgeFirst[edge];
+  }
+
+  // returns the node the given edge ends at (its offset length)
+  int second(int edge) {
+    return this.edgeSecond[edge];
+  }
+
+  // returns the number of steps along the given edge
+  int length(int edge) {
+    return this.edgeLength[edge];
+  }
+
+  // returns the tile the given number of steps along the given edge from its first node
+  int tileAt(int edge, int offset) {
+    if (offset == 0) {
+      return this.nodeTiles[this.edgeFirst[edge]];
+    }
+    else if (offset == this.edgeLength[edge]) {
+      return this.nodeTiles[this.edgeSecond[edge]];
+    }
+    return this.corridorTiles[this.edgeTilesStart[edge] + offset - 1];
+  }
+
+  // returns the number of nodes per tile of the maze
+  double contractionRatio() {
+    return (double) this.nodeCount / Math.max(this.tileCount(), 1);
+  }
+
+  // returns a one line summary of how far the maze contracted
+  String describe() {
+    return this.tileCount() + " tiles contracted to " + this.nodeCount + " nodes ("
+        + (this.deadEndsTo - this.deadEndsFrom) + " of them dead ends) and " + this.edgeCount
+        + " corridors, ratio " + String.format("%.3f", this.contractionRatio());
+  }
+}
+
+// Represents a shortest path search of a junction graph from a start tile to a goal tile,
+// expanding one node per step in order of its distance in tiles (Dijkstra's search on a
+// bucket queue with one bucket per step of the longest corridor, see DialQueue)
+// when the graph is a tree there is only one way to each node, so the nodes are taken first in
+// first out instead, and dead ends are never queued, since the only way on from one is back
+// a start inside a corridor is reached with the distances to both ends of it, and a goal
+// inside a corridor becomes one more node, reached from both ends of its corridor (or straight
+// along it from a start in the same corridor); every node remembers the node and the edge it
+// was reached from, so the path can be expanded back to tiles
+// only nodes are expanded, so seenTile lists the junctions (and the goal) the search reached
+class JunctionSearch implements ISolver {
+  private JunctionGraph graph;
+  private int start;
+  private int startOffset;
+  private int goal;
+  private int goalNode;
+  private int goalEdge;
+  private int goalOffset;
+  private IDistanceQueue open;
+  private int[] distances;
+  private int[] previous;
+  private int[] arriveEdge;
+  private BitSet settled;
+  private int[] order;
+  private int seenCount;
+  private int[] path;
+  private BitSet onPath;
+  private boolean complete;
+
+  JunctionSearch(JunctionGraph graph, int start, int goal) {
+    if (graph.tileCount() == 0) {
+      throw new IllegalArgumentException("This maze has no tiles");
+    }
+
+    int nodes = graph.nodeCount() + 1;
+    this.graph = graph;
+    this.start = start;
+    this.goal = goal;
+    if (graph.isTree()) {
+      this.open = new FifoDistanceQueue();
+    }
+    else {
+      this.open = new DialQueue(graph.longestEdge());
+    }
+    this.distances = new int[nodes];
+    this.previous = new int[nodes];
+    this.arriveEdge = new int[nodes];
+    this.settled = new BitSet(nodes);
+    this.order = new int[nodes];
+    this.seenCount = 0;
+    this.path = new int[0];
+    this.onPath = new BitSet();
+    this.complete = false;
+    Arrays.fill(this.distances, Integer.MAX_VALUE);
+
+    // a goal inside a corridor is the extra node at the end
+    this.goalNode = graph.nodeOf(goal);
+    this.goalEdge = -1;
+    if (this.goalNode == -1) {
+      this.goalNode = graph.nodeCount();
+      this.goalEdge = graph.edgeOf(goal);
+      this.goalOffset = graph.offsetOf(goal);
+    }
+
+    int startNode = graph.nodeOf(start);
+    if (startNode != -1) {
+      this.reach(startNode, 0, -1, -1);
+    }
+    else {
+      int edge = graph.edgeOf(start);
+      this.startOffset = graph.offsetOf(start);
+      if (edge == this.goalEdge) {
+        this.reach(this.goalNode, Math.abs(this.startOffset - this.goalOffset), -1, edge);
+      }
+      this.reach(graph.first(edge), this.startOffset, -1, edge);
+      this.reach(graph.second(edge), graph.length(edge) - this.startOffset, -1, edge);
+    }
+  }
+
+  // records the given distance to the given node if it is shorter than the one known, along
+  // with the node it came from (-1 for the start) and the edge it came along
+  void reach(int node, int distance, int from, int edge) {
+    if (distance < this.distances[node]) {
+      this.distances[node] = distance;
+      this.previous[node] = from;
+      this.arriveEdge[node] = edge;
+      this.open.add(node, distance);
+    }
+  }
+
+  // expands the queued node nearest the start
+  public boolean step() {
+    if (this.complete) {
+      return true;
+    }
+    if (this.open.isEmpty()) {
+      this.complete = true;
+      return true;
+    }
+
+    int node = this.open.removeMin();
+    if (this.settled.get(node)) {
+      return false;
+    }
+    this.settled.set(node);
+    this.order[this.seenCount] = node == this.graph.nodeCount() ? this.goal
+        : this.graph.nodeTile(node);
+    this.seenCount += 1;
+
+    if (node == this.goalNode) {
+      this.findPath();
+      this.complete = true;
+      return true;
+    }
+
+    // an edge from a node to itself never gives a shorter way to it, but may hold the goal
+    int distance = this.distances[node];
+    for (int i = this.graph.adjacencyStart(node); i < this.graph.adjacencyStart(node + 1);
+        i += 1) {
+      int other = this.graph.adjacentNode(i);
+      int length = this.graph.adjacentLength(i);
+      int edge = this.graph.adjacentEdge(i);
+      if (other == this.goalNode || !this.graph.isDeadEnd(other)) {
+        this.reach(other, distance + length, node, edge);
+      }
+
+      if (edge == this.goalEdge) {
+        if (this.graph.first(edge) == node) {
+          this.reach(this.goalNode, distance + this.goalOffset, node, edge);
+        }
+        if (this.graph.second(edge) == node) {
+          this.reach(this.goalNode, distance + length - this.goalOffset, node, edge);
+        }
+      }
+    }
+    return false;
+  }
+
+  // returns the offset along the edge the given node was reached by at which that node lies
+  int offsetIn(int edge, int node) {
+    if (node == -1) {
+      return this.startOffset;
+    }
+    else if (node == this.graph.nodeCount()) {
+      return this.goalOffset;
+    }
+    return this.graph.first(edge) == node ? 0 : this.graph.length(edge);
+  }
+
+  // expands the way to the goal back to tiles, walking each edge from the offset it was
+  // reached at back to the offset it was left from
+  void findPath() {
+    this.path = new int[this.distances[this.goalNode] + 1];
+    int index = 0;
+    int node = this.goalNode;
+    while (this.arriveEdge[node] != -1) {
+      int edge = this.arriveEdge[node];
+      int from = this.offsetIn(edge, this.previous[node]);
+      int at = this.offsetIn(edge, node);
+      // a loop from a node to itself may have been taken either way round
+      if (this.graph.first(edge) == this.graph.second(edge)) {
+        if (this.previous[node] == -1 && node != this.graph.nodeCount()
+            && this.distances[node] != this.startOffset) {
+          at = this.graph.length(edge);
+        }
+        else if (this.previous[node] != -1
+            && this.distances[node] - this.distances[this.previous[node]] != at) {
+          from = this.graph.length(edge);
+        }
+      }
+
+      int step = from < at ? -1 : 1;
+      for (int offset = at; offset != from; offset += step) {
+        this.path[index] = this.graph.tileAt(edge, offset);
+        index += 1;
+      }
+      if (this.previous[node] == -1) {
+        break;
+      }
+      node = this.previous[node];
+    }
+    this.path[index] = this.start;
+
+    for (int tile : this.path) {
+      this.onPath.set(tile);
+    }
+  }
+
+  // returns whether the search has reached the goal or run out of nodes
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns whether the given tile has been expanded (only junctions and the goal ever are)
+  public boolean wasSeen(int tile) {
+    int node = this.graph.nodeOf(tile);
+    if (node == -1) {
+      return tile == this.goal && this.settled.get(this.goalNode);
+    }
+    return this.settled.get(node);
+  }
+
+  // returns the tile that was expanded index-th (counting from 0)
+  public int seenTile(int index) {
+    return this.order[index];
+  }
+
+  // returns whether the given tile is on the path found
+  public boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns the number of nodes expanded so far
+  public int seenCount() {
+    return this.seenCount;
+  }
+
+  // returns the number of entries waiting to be expanded
+  public int frontierSize() {
+    return this.open.size();
+  }
+
+  // returns the number of tiles on the path found
+  public int pathLength() {
+    return this.path.length;
+  }
+
+  // returns the tiles of the path found, from the goal back to the start
+  public int[] path() {
+    return this.path;
+  }
+}
+
+// Represents a distance queue that hands out tiles first in first out, whatever their
+// distances, for searching graphs with only one way to each tile
+class FifoDistanceQueue implements IDistanceQueue {
+  private IntDeque tiles;
+
+  FifoDistanceQueue() {
+    this.tiles = new IntDeque();
+  }
+
+  // adds the given tile (its distance does not matter)
+  public void add(int tile, int distance) {
+    this.tiles.addLast(tile);
+  }
+
+  // removes and returns the tile added longest ago
+  public int removeMin() {
+    if (this.tiles.isEmpty()) {
+      throw new IllegalStateException("Queue is empty");
+    }
+    return this.tiles.removeFirst();
+  }
+
+  // returns whether this queue is empty
+  public boolean isEmpty() {
+    return this.tiles.isEmpty();
+  }
+
+  // returns the number of tiles in this queue
+  public int size() {
+    return this.tiles.size();
+  }
+}
+
+class ExamplesJunctionGraph {
+
+  // a 4x3 grid whose only junction is 7, with dead ends at 4, 5 and 8
+  //   0 - 1 - 2 - 3
+  //   |           |
+  //   4   5 - 6 - 7
+  //               |
+  //   8 - 9 - 10- 11
+  MazeGrid hook() {
+    MazeGrid grid = new MazeGrid(4, 3);
+    grid.open(0, 0, MazeGrid.EAST);
+    grid.open(1, 0, MazeGrid.EAST);
+    grid.open(2, 0, MazeGrid.EAST);
+    grid.open(0, 0, MazeGrid.SOUTH);
+    grid.open(3, 0, MazeGrid.SOUTH);
+    grid.open(2, 1, MazeGrid.EAST);
+    grid.open(1, 1, MazeGrid.EAST);
+    grid.open(3, 1, MazeGrid.SOUTH);
+    grid.open(0, 2, MazeGrid.EAST);
+    grid.open(1, 2, MazeGrid.EAST);
+    grid.open(2, 2, MazeGrid.EAST);
+    return grid;
+  }
+
+  // returns whether each tile of the given path has an open wall to the next
+  boolean connected(MazeGrid grid, int[] path) {
+    int[] neighbors = new int[4];
+    for (int i = 0; i + 1 < path.length; i += 1) {
+      int count = grid.openNeighbors(path[i], neighbors);
+      boolean found = false;
+      for (int j = 0; j < count; j += 1) {
+        found = found || neighbors[j] == path[i + 1];
+      }
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // runs the given search to completion
+  JunctionSearch solve(JunctionSearch search) {
+    while (!search.step()) {
+      // keeps stepping
+    }
+    return search;
+  }
+
+  void testContraction(Tester t) {
+    JunctionGraph graph = new JunctionGraph(this.hook());
+
+    t.checkExpect(graph.nodeCount(), 4);
+    t.checkExpect(graph.edgeCount(), 3);
+    t.checkExpect(graph.nodeOf(1), -1);
+    t.checkExpect(graph.nodeTile(graph.nodeOf(7)), 7);
+    t.checkExpect(graph.isDeadEnd(graph.nodeOf(7)), false);
+    t.checkExpect(graph.isDeadEnd(graph.nodeOf(4)), true);
+
+    // the corridor from 7 round to 4 is walked from the junction
+    t.checkExpect(graph.offsetOf(3), 1);
+    t.checkExpect(graph.offsetOf(0), 4);
+    t.checkExpect(graph.length(graph.edgeOf(2)), 5);
+    t.checkExpect(graph.tileAt(graph.edgeOf(2), 0), 7);
+    t.checkExpect(graph.tileAt(graph.edgeOf(2), 5), 4);
+    t.checkExpect(graph.tileAt(graph.edgeOf(2), graph.offsetOf(2)), 2);
+    t.checkExpect(graph.describe(), "12 tiles contracted to 4 nodes (3 of them dead ends)"
+        + " and 3 corridors, ratio 0.333");
+  }
+
+  // paths found on the junctions, expanded back to tiles, are the paths breadth first
+  // search finds on the tiles, wherever they start and end
+  void testMatchesBfs(Tester t) {
+    MazeGrid[] grids = {this.hook(), new MazeBuilder().buildMaze(30, 20, 8),
+        new MazeBuilder().buildMaze(1, 9, 2)};
+    for (MazeGrid grid : grids) {
+      JunctionGraph graph = new JunctionGraph(grid);
+      for (int start = 0; start < grid.size(); start += 3) {
+        for (int goal = 0; goal < grid.size(); goal += 5) {
+          ISolver bfs = new GridSearch(grid, new MazeQueue(), start, goal);
+          while (!bfs.step()) {
+            // keeps stepping
+          }
+          t.checkExpect(this.solve(graph.search(start, goal)).path(), bfs.path());
+        }
+      }
+    }
+  }
+
+  // searches of the same maze share its graph until its walls change
+  void testShared(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(20, 10, 3);
+    JunctionGraph graph = JunctionGraph.of(grid);
+    t.checkExpect(JunctionGraph.of(grid) == graph, true);
+    t.checkExpect(JunctionGraph.of(new MazeBuilder().buildMaze(20, 10, 3)) == graph, false);
+
+    Braider braider = new Braider();
+    grid = new MazeBuilder().buildMaze(20, 10, 3);
+    graph = JunctionGraph.of(grid);
+    braider.braid(grid, 0.5, 1);
+    t.checkExpect(JunctionGraph.of(grid) == graph, false);
+    t.checkExpect(JunctionGraph.of(grid).isTree(), false);
+  }
+
+  // the wrong moves of a search of the junctions only count the junctions it saw off the
+  // path, never the corridor tiles it stepped over
+  void testWrongMoves(Tester t) {
+    MazeModel corridor = new MazeModel(new MazeBuilder().buildMaze(1, 9, 2));
+    corridor.startSearch("junction");
+    corridor.finishSearch();
+    corridor.refreshSearch();
+    t.checkExpect(corridor.seenCount(), 2);
+    t.checkExpect(corridor.pathLength(), 9);
+    t.checkExpect(corridor.wrongMoves(), 0);
+
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(30, 20, 8));
+    model.startSearch("junction");
+    model.finishSearch();
+    model.refreshSearch();
+    int seenOffPath = 0;
+    for (int tile = 0; tile < model.grid().size(); tile += 1) {
+      if (model.wasSeen(tile) && !model.isOnPath(tile)) {
+        seenOffPath += 1;
+      }
+    }
+    t.checkExpect(model.wrongMoves(), seenOffPath);
+  }
+
+  // loops are contracted too, whether or not they hold a junction
+  void testLoops(Tester t) {
+    MazeGrid ring = new MazeGrid(2, 2);
+    ring.open(0, 0, MazeGrid.EAST);
+    ring.open(0, 0, MazeGrid.SOUTH);
+    ring.open(1, 0, MazeGrid.SOUTH);
+    ring.open(0, 1, MazeGrid.EAST);
+    JunctionGraph graph = new JunctionGraph(ring);
+    t.checkExpect(graph.nodeCount(), 1);
+    t.checkExpect(graph.edgeCount(), 1);
+    t.checkExpect(this.solve(graph.search(1, 2)).pathLength(), 3);
+    t.checkExpect(this.solve(graph.search(0, 3)).pathLength(), 3);
+
+    MazeGrid wide = new MazeGrid(3, 2);
+    wide.open(0, 0, MazeGrid.EAST);
+    wide.open(1, 0, MazeGrid.EAST);
+    wide.open(2, 0, MazeGrid.SOUTH);
+    wide.open(0, 1, MazeGrid.EAST);
+    wide.open(1, 1, MazeGrid.EAST);
+    wide.open(0, 0, MazeGrid.SOUTH);
+    JunctionGraph around = new JunctionGraph(wide);
+    t.checkExpect(this.solve(around.search(3, 0)).path(), new int[] {0, 3});
+    t.checkExpect(this.solve(around.search(0, 3)).path(), new int[] {3, 0});
+    t.checkExpect(this.solve(around.search(5, 3)).path(), new int[] {3, 4, 5});
+    t.checkExpect(this.solve(around.search(3, 1)).path(), new int[] {1, 0, 3});
+
+    MazeGrid braided = new MazeGrid(40, 30);
+    new BraidedGenerator(new MazeBuilder(), 0.3).carve(braided, 6);
+    JunctionGraph loops = new JunctionGraph(braided);
+    t.checkExpect(loops.isTree(), false);
+    boolean shortest = true;
+    for (int start = 0; start < braided.size(); start += 37) {
+      int[] distances = new DistanceField(braided).computeDistances(start);
+      for (int goal = 0; goal < braided.size(); goal += 7) {
+        int[] path = this.solve(loops.search(start, goal)).path();
+        shortest = shortest && path.length == distances[goal] + 1 && path[0] == goal
+            && path[path.length - 1] == start && this.connected(braided, path);
+      }
+    }
+    t.checkExpect(shortest, true);
+  }
+}
@@ -1,37 +1,38 @@
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 // A Class that determines which blocks are connected in the maze using Kruskal's algorithm
 class KruskalTreeBuilder {
-  HashMap<MazeTile, MazeTile> hash;
-  ArrayList<Edge> edges;
+  MazeGrid grid;
+  int[] edges;
   
-  // takes in a hashmap of tiles, and a Arraylist of edges, sorted by weight ascending
-  KruskalTreeBuilder(HashMap<MazeTile, MazeTile> hash, ArrayList<Edge> edges) {
-    this.hash = hash;
+  // takes in the grid of the maze, and the codes of its edges, sorted by weight ascending
+  KruskalTreeBuilder(MazeGrid grid, int[] edges) {
+    this.grid = grid;
     this.edges = edges;
   }
   
-  // Creates the tree, or list of edges
-  ArrayList<Edge> createTree() {
+  // Creates the tree, or the codes of the edges in it
+  int[] createTree() {
     
-    ArrayList<Edge> tree = new ArrayList<Edge>();
-    int numTiles = hash.size();
+    int numTiles = this.grid.size();
+    int[] tree = new int[Math.max(numTiles - 1, 0)];
+    int treeSize = 0;
+    UnionFind groups = new UnionFind(numTiles);
     
     // iterates through the edges and adds a edge to the tree if 
     // it's tiles are not already connected
-    // when adding, updates the hashmap
-    for (Edge edge : this.edges) {
-      if (!edge.isConnected(hash)) {
-        edge.join(hash);
-        tree.add(edge);
+    // joining them in the union-find when adding
+    for (int edge : this.edges) {
+      if (treeSize >= numTiles - 1) {
+        return tree;
       }
       
-      if (tree.size() >= numTiles - 1) {
-        return tree;
+      if (groups.union(this.grid.edgeFrom(edge), this.grid.edgeTo(edge))) {
+        tree[treeSize] = edge;
+        treeSize += 1;
       }
     }
-    return tree;
+    return Arrays.copyOf(tree, treeSize);
   }
   
 }
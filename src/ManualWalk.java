@@ -0,0 +1,239 @@
+import java.util.BitSet;
+import tester.Tester;
+
+// Represents the player's walk through a maze: where they are, the path they have taken
+// (stepping back onto the path backtracks along it), the tiles they have seen, and the moves
+// they have made, which can be undone and redone
+// every move, undo and redo takes constant time
+class ManualWalk {
+  // a move is recorded as its direction plus these flags
+  private static final int DIRECTION_MASK = 3;
+  private static final int PUSHED = 4;
+  private static final int NEWLY_SEEN = 8;
+
+  private MazeGrid grid;
+  private int x;
+  private int y;
+  private IntDeque path;
+  private BitSet onPath;
+  private BitSet seen;
+  private int seenCount;
+  private IntDeque history;
+  private IntDeque undone;
+
+  // starts a walk at the top left tile of the given maze
+  ManualWalk(MazeGrid grid) {
+    this.grid = grid;
+    this.x = 0;
+    this.y = 0;
+    this.path = new IntDeque();
+    this.onPath = new BitSet();
+    this.seen = new BitSet();
+    this.seenCount = 0;
+    this.history = new IntDeque();
+    this.undone = new IntDeque();
+  }
+
+  // returns the id of the tile the player is on
+  int position() {
+    return this.grid.id(this.x, this.y);
+  }
+
+  // returns the column of the tile the player is on
+  int x() {
+    return this.x;
+  }
+
+  // returns the row of the tile the player is on
+  int y() {
+    return this.y;
+  }
+
+  // returns whether the given tile is on the path taken
+  boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns whether the player has stepped on the given tile
+  boolean wasSeen(int tile) {
+    return this.seen.get(tile);
+  }
+
+  // returns the number of tiles on the path taken
+  int pathLength() {
+    return this.path.size();
+  }
+
+  // returns the number of tiles the player has stepped on
+  int seenCount() {
+    return this.seenCount;
+  }
+
+  // returns whether there is a move to undo
+  boolean canUndo() {
+    return !this.history.isEmpty();
+  }
+
+  // returns whether there is an undone move to redo
+  boolean canRedo() {
+    return !this.undone.isEmpty();
+  }
+
+  // moves the player one tile in the given direction if there is no wall in the way,
+  // forgetting any undone moves
+  // returns whether the player moved
+  boolean move(int dir) {
+    if (!this.grid.isOpen(this.x, this.y, dir)) {
+      return false;
+    }
+    this.undone.clear();
+    this.history.addLast(this.step(dir));
+    return true;
+  }
+
+  // takes back the last move
+  // returns whether there was a move to take back
+  boolean undo() {
+    if (this.history.isEmpty()) {
+      return false;
+    }
+
+    int move = this.history.removeLast();
+    int tile = this.position();
+
+    if ((move & NEWLY_SEEN) != 0) {
+      this.seen.clear(tile);
+      this.seenCount -= 1;
+    }
+    this.moveBy(this.opposite(move & DIRECTION_MASK));
+    if ((move & PUSHED) != 0) {
+      this.path.removeLast();
+      this.onPath.clear(tile);
+    }
+    else {
+      this.path.addLast(this.position());
+      this.onPath.set(this.position());
+    }
+
+    this.undone.addLast(move & DIRECTION_MASK);
+    return true;
+  }
+
+  // makes the last move taken back again
+  // returns whether there was a move to make again
+  boolean redo() {
+    if (this.undone.isEmpty()) {
+      return false;
+    }
+    this.history.addLast(this.step(this.undone.removeLast()));
+    return true;
+  }
+
+  // moves the player through the open wall in the given direction, backtracking if the tile
+  // entered is already on the path and extending the path otherwise
+  // returns the record of the move
+  int step(int dir) {
+    int record = dir;
+    int left = this.position();
+    this.moveBy(dir);
+    int entered = this.position();
+
+    if (this.onPath.get(entered)) {
+      this.path.removeLast();
+      this.onPath.clear(left);
+    }
+    else {
+      this.path.addLast(entered);
+      this.onPath.set(entered);
+      record |= PUSHED;
+    }
+
+    if (!this.seen.get(entered)) {
+      this.seen.set(entered);
+      this.seenCount += 1;
+      record |= NEWLY_SEEN;
+    }
+    return record;
+  }
+
+  // changes the player's coordinates by one tile in the given direction
+  void moveBy(int dir) {
+    if (dir == MazeGrid.NORTH) {
+      this.y -= 1;
+    }
+    else if (dir == MazeGrid.EAST) {
+      this.x += 1;
+    }
+    else if (dir == MazeGrid.SOUTH) {
+      this.y += 1;
+    }
+    else {
+      this.x -= 1;
+    }
+  }
+
+  // returns the direction opposite the given one
+  int opposite(int dir) {
+    return (dir + 2) % 4;
+  }
+}
+
+class ExamplesManualWalk {
+
+  // a 3x2 maze shaped like a U: (0,0) (0,1) (1,1) (2,1) (2,0)
+  MazeGrid uMaze() {
+    MazeGrid grid = new MazeGrid(3, 2);
+    grid.open(0, 0, MazeGrid.SOUTH);
+    grid.open(0, 1, MazeGrid.EAST);
+    grid.open(1, 1, MazeGrid.EAST);
+    grid.open(2, 0, MazeGrid.SOUTH);
+    return grid;
+  }
+
+  void testMoveAndBacktrack(Tester t) {
+    MazeGrid grid = this.uMaze();
+    ManualWalk walk = new ManualWalk(grid);
+
+    t.checkExpect(walk.move(MazeGrid.EAST), false);
+    t.checkExpect(walk.move(MazeGrid.SOUTH), true);
+    t.checkExpect(walk.move(MazeGrid.EAST), true);
+    t.checkExpect(walk.position(), grid.id(1, 1));
+    t.checkExpect(walk.pathLength(), 2);
+
+    // stepping back onto the path backtracks along it
+    t.checkExpect(walk.move(MazeGrid.WEST), true);
+    t.checkExpect(walk.pathLength(), 1);
+    t.checkExpect(walk.isOnPath(grid.id(1, 1)), false);
+    t.checkExpect(walk.seenCount(), 2);
+  }
+
+  void testUndoRedo(Tester t) {
+    MazeGrid grid = this.uMaze();
+    ManualWalk walk = new ManualWalk(grid);
+    walk.move(MazeGrid.SOUTH);
+    walk.move(MazeGrid.EAST);
+    walk.move(MazeGrid.WEST);
+
+    t.checkExpect(walk.undo(), true);
+    t.checkExpect(walk.position(), grid.id(1, 1));
+    t.checkExpect(walk.pathLength(), 2);
+    t.checkExpect(walk.isOnPath(grid.id(1, 1)), true);
+    t.checkExpect(walk.undo(), true);
+    t.checkExpect(walk.undo(), true);
+    t.checkExpect(walk.undo(), false);
+    t.checkExpect(walk.position(), 0);
+    t.checkExpect(walk.pathLength(), 0);
+    t.checkExpect(walk.seenCount(), 0);
+
+    t.checkExpect(walk.redo(), true);
+    t.checkExpect(walk.redo(), true);
+    t.checkExpect(walk.x(), 1);
+    t.checkExpect(walk.y(), 1);
+    t.checkExpect(walk.seenCount(), 2);
+
+    // a new move forgets the moves still undone
+    walk.move(MazeGrid.EAST);
+    t.checkExpect(walk.canRedo(), false);
+    t.checkExpect(walk.pathLength(), 3);
+  }
+}
@@ -5,146 +5,141 @@ import javalib.impworld.WorldScene;
 import javalib.worldimages.*;
 import tester.Tester;
 
-// represents a maze
+// represents a maze, displaying a MazeModel and responding to the player's input
 class Maze extends World {
+  // the largest window drawn, in pixels; larger mazes are scrolled and zoomed in it
+  static final int MAX_VIEW_WIDTH = 1200;
+  static final int MAX_VIEW_HEIGHT = 800;
+
   final int width;
   final int height;
   private int blockSize;
-  private ArrayList<ArrayList<MazeTile>> grid;
-  private Collection<MazeTile> path;
-  private ArrayList<MazeTile> seen;
-  private MazeTile currentPosition;
-  private boolean searchInProgress;
-  private IWorkList workList;
-  private HashMap<MazeTile, MazeTile> cameFrom;
-  private boolean searchComplete;
+  private MazeModel model;
+  private Camera camera;
+  private MazeRenderer renderer;
+  private SearchScheduler scheduler;
   private boolean showSeen;
+  private boolean showMetrics;
+  // whether the arrow keys scroll the view instead of moving the player
+  private boolean scrolling;
   
   // either "none" "to start" or "to end"
   private String gradientMode;
 
   Maze(int width, int height) {
-    this.blockSize = 20;
-    this.width = width;
-    this.height = height;
-    this.grid = new MazeBuilder().buildMaze(width, height);
-    this.currentPosition = this.grid.get(0).get(0);
-    this.path = new ArrayList<MazeTile>();
-    this.seen = new ArrayList<MazeTile>();
-    this.searchInProgress = false;
-    this.searchComplete = false;
-    this.showSeen = true;
-    this.gradientMode = "normal";
-    
+    this(width, height, 20);
   }
 
   Maze(int width, int height, int blockSize) {
+    this(new MazeModel(width, height), blockSize);
+  }
+
+  // displays an existing maze
+  Maze(MazeModel model, int blockSize) {
     this.blockSize = blockSize;
-    this.width = width;
-    this.height = height;
-    this.grid = new MazeBuilder().buildMaze(width, height);
-    this.currentPosition = this.grid.get(0).get(0);
-    this.path = new ArrayList<MazeTile>();
-    this.seen = new ArrayList<MazeTile>();
-    this.searchInProgress = false;
-    this.searchComplete = false;
+    this.width = model.width;
+    this.height = model.height;
+    this.model = model;
+    this.camera = new Camera(model.width, model.height,
+        (int) Math.min(MAX_VIEW_WIDTH, (long) model.width * blockSize),
+        (int) Math.min(MAX_VIEW_HEIGHT, (long) model.height * blockSize),
+        Math.min(blockSize, Camera.MAX_PIXELS_PER_TILE));
+    this.renderer = new MazeRenderer(model, this.camera);
+    this.scheduler = new SearchScheduler();
     this.showSeen = true;
     this.gradientMode = "normal";
   }
 
   // Resets maze to state before search
   void clear() {
-    this.path = new ArrayList<MazeTile>();
-    this.seen = new ArrayList<MazeTile>();
-    this.currentPosition = this.grid.get(0).get(0);
-    this.searchInProgress = false;
-    this.workList = null;
-    this.cameFrom = null;
-    this.searchComplete = false;
+    this.model.clear();
     this.gradientMode = "normal";
   }
 
+  // clears the maze and starts the named search on its own thread, paced by the scheduler
+  void search(String algorithm) {
+    this.clear();
+    this.model.startSearch(algorithm);
+    this.model.runInBackground();
+  }
+
   // Generates a new maze
   void newMaze() {
-    this.grid = new MazeBuilder().buildMaze(width, height);
+    this.model.newMaze();
     this.clear();
   }
 
-  // draws the maze and paths based on the gradient mode
-  public WorldScene makeScene() {
-
-    WorldScene scene = new WorldScene(this.width * this.blockSize, this.height * this.blockSize);
-    int maxToStart = this.maxDistanceFromStart();
-    int maxToEnd = this.maxDistanceFromEnd();
-    
-    for (ArrayList<MazeTile> column : grid) {
-      for (MazeTile tile : column) {
-        Color color;
-
-        // Priority: Start/End > Current Location > Path > Tries > Gradient Mode > Default
-        if (tile.isAt(0, 0)) {
-          color = Color.GREEN;
-        }
-        else if (tile.isAt(width - 1, height - 1)) {
-          color = new Color(150, 0, 255);
-        }
-        else if (tile.equals(this.currentPosition)) {
-          color = Color.RED;
-        }
-        else if (this.path.contains(tile)) {
-          color = Color.BLUE;
-        }
-        else if (this.seen.contains(tile) && this.showSeen) {
-          color = Color.CYAN;
-        }
-        else if (this.gradientMode.equals("to start")) {
-          color = tile.toStartColor(maxToStart);
-        } 
-        else if (this.gradientMode.equals("to end")) {
-          color = tile.toEndColor(maxToEnd);
-        }
-        else {
-          color = Color.WHITE;
-        }
-        tile.draw(scene, this.blockSize, color);
+  // switches to the generator after the current one, wrapping around
+  void nextGenerator() {
+    String[] generators = GeneratorFactory.GENERATORS;
+    for (int i = 0; i < generators.length; i += 1) {
+      if (generators[i].equals(this.model.generator())) {
+        this.model.setGenerator(generators[(i + 1) % generators.length]);
+        return;
       }
     }
+  }
+
+  // moves the player in the given direction, keeping them in view
+  void move(int dir) {
+    this.model.move(dir);
+    int position = this.model.currentPosition();
+    this.camera.follow(this.model.grid().xOf(position), this.model.grid().yOf(position));
+  }
+
+  // draws the part of the maze in view, and paths based on the gradient mode
+  // (the renderer keeps the drawn view between frames and only repaints the tiles that changed)
+  public WorldScene makeScene() {
+    int viewWidth = this.camera.viewWidth;
+    WorldScene scene = new WorldScene(viewWidth, this.camera.viewHeight);
+
+    scene.placeImageXY(this.renderer.render(this.gradientMode, this.showSeen),
+        viewWidth / 2, this.camera.viewHeight / 2);
 
     scene.placeImageXY(
-        new TextImage("Wrong moves: " + (this.seen.size() - this.path.size()), Color.BLACK), width * this.blockSize - 60,
+        new TextImage("Wrong moves: " + this.model.wrongMoves() + "   "
+            + this.scheduler.describe(), Color.BLACK), viewWidth - 160,
         this.blockSize / 2);
 
+    // reports the cost of the automatic search
+    String status = this.model.generator() + " maze, " + this.camera.describe();
+    if (this.model.algorithm() != null) {
+      status += ", " + this.model.algorithm() + ": " + this.model.seenCount()
+          + " expanded, " + (this.model.searchNanos() / 1000000) + " ms";
+      if (this.model.isReplay()) {
+        status += " (cached)";
+      }
+      if (this.model.isCancelled()) {
+        status += " (cancelled)";
+      }
+      else if (this.model.isPaused()) {
+        status += " (paused)";
+      }
+    }
+    scene.placeImageXY(new TextImage(status, Color.BLACK),
+        viewWidth - 120, this.blockSize / 2 + 15);
+
+    // lists what each phase and search has cost since the overlay was turned on
+    if (this.showMetrics) {
+      ArrayList<String> lines = Metrics.describe();
+      lines.add(this.model.solutionCache().describe());
+      for (int i = 0; i < lines.size(); i += 1) {
+        scene.placeImageXY(new TextImage(lines.get(i), Color.BLACK),
+            viewWidth / 2, this.blockSize / 2 + 35 + 15 * i);
+      }
+    }
+
     return scene;
   }
   
   // returns the maximum distance from the end tile
   int maxDistanceFromEnd() {
-    int max = 0;
-    
-    // iterates through 2d arraylist and 
-    // set max as the maximum of max and the tiles distance to end
-    for (ArrayList<MazeTile> column : this.grid) {
-      for (MazeTile tile : column) {
-        max = tile.biggerFromEnd(max);
-      }
-      
-    }
-    return max;
+    return this.model.distances().maxToEnd();
   }
   
   // returns the maximum distance from the start tile
   int maxDistanceFromStart() {
-    int max = 0;
-    
-    // iterates through 2d arraylist and 
-    // set max as the maximum of max and the tiles distance to start
-    for (ArrayList<MazeTile> column : this.grid) {
-      for (MazeTile tile : column) {
-        max = tile.biggerFromStart(max);
-      }
-      
-    }
-    return max;
+    return this.model.distances().maxToStart();
   }
   
 
@@ -152,19 +147,39 @@ class Maze extends World {
   public void onKeyEvent(String key) {
 
     if (key.equals("d")) {
-      this.clear();
-      this.startSearch(new MazeStack());
+      this.search("dfs");
     }
     else if (key.equals("b")) {
-      this.clear();
-      this.startSearch(new MazeQueue());
+      this.search("bfs");
+    }
+    else if (key.equals("a")) {
+      this.search("astar");
+    }
+    else if (key.equals("t")) {
+      this.search("bidirectional");
+    }
+    else if (key.equals("f")) {
+      this.search("deadend");
+    }
+    else if (key.equals("j")) {
+      this.search("junction");
     }
     else if (key.equals("c")) {
       this.clear();
     }
+    else if (key.equals("p")) {
+      this.model.togglePause();
+    }
+    else if (key.equals("x")) {
+      this.model.cancelSearch();
+    }
     else if (key.equals("n")) {
       this.newMaze();
     }
+    else if (key.equals("g")) {
+      this.nextGenerator();
+      this.newMaze();
+    }
     else if (key.equals("s")) {
       this.showSeen = !this.showSeen;
     }
@@ -177,160 +192,112 @@ class Maze extends World {
     else if (key.equals("k")) {
       this.gradientMode = "normal";
     }
-    else if (!this.searchComplete && !this.searchInProgress
-        && (key.equals("right") || key.equals("left") || key.equals("down") || key.equals("up"))) {
-
-      MazeTile nextPosition = this.currentPosition;
-
-      int currentX = -1;
-      int currentY = -1;
-
-      // goes through the 2d arraylist and finds the x y coordinates of this tile
-      for (int x = 0; x < this.grid.size(); x++) {
-        for (int y = 0; y < this.grid.get(x).size(); y++) {
-          if (this.grid.get(x).get(y) == this.currentPosition) {
-            currentX = x;
-            currentY = y;
-            break;
-          }
-        }
-        if (currentX != -1) {
-          break;
-        }
-      }
-
-      if (key.equals("up") && currentY > 0) {
-        if (this.currentPosition.isConnected(currentX, currentY - 1)) {
-          nextPosition = this.grid.get(currentX).get(currentY - 1);
-        }
-      }
-      else if (key.equals("down") && currentY < this.height - 1) {
-        if (this.currentPosition.isConnected(currentX, currentY + 1)) {
-          nextPosition = this.grid.get(currentX).get(currentY + 1);
-        }
-      }
-      else if (key.equals("left") && currentX > 0) {
-        if (this.currentPosition.isConnected(currentX - 1, currentY)) {
-          nextPosition = this.grid.get(currentX - 1).get(currentY);
-        }
-      }
-      else if (key.equals("right") && currentX < this.width - 1) {
-        if (this.currentPosition.isConnected(currentX + 1, currentY)) {
-          nextPosition = this.grid.get(currentX + 1).get(currentY);
-        }
-      }
-
-      if (!nextPosition.equals(this.currentPosition)) {
-        if (path.contains(nextPosition)) {
-          this.path.remove(this.currentPosition);
-        }
-        else {
-          this.path.add(nextPosition);
-        }
-        if (!this.seen.contains(nextPosition)) {
-          this.seen.add(nextPosition);
-        }
-        this.currentPosition = nextPosition;
-      }
-      if (this.currentPosition.isAt(this.width - 1, this.height - 1)) {
-        this.searchComplete = true;
-      }
+    else if (key.equals("i")) {
+      this.showMetrics = !this.showMetrics;
+      Metrics.reset();
+      Metrics.setEnabled(this.showMetrics);
     }
-
-  }
-
-  // performs a search step if needed
-  public void onTick() {
-    if (this.searchInProgress && !this.searchComplete) {
-      this.performSearchStep();
+    else if (key.equals("m")) {
+      this.scheduler.nextMode();
     }
-  }
-
-  // given the current tile and a hash map representing where tiles came from,
-  // returns a list of tiles in the path
-  ArrayList<MazeTile> findPath(MazeTile tile, HashMap<MazeTile, MazeTile> cameFrom) {
-    ArrayList<MazeTile> path = new ArrayList<MazeTile>();
-    MazeTile current = tile;
-
-    while (!current.isAt(0, 0)) {
-      path.add(current);
-
-      if (!cameFrom.containsKey(current)) {
-        throw new IllegalArgumentException("Could not trace maze path");
-      }
-
-      current = cameFrom.get(current);
+    else if (key.equals("+") || key.equals("=")) {
+      this.scheduler.faster();
+    }
+    else if (key.equals("-")) {
+      this.scheduler.slower();
+    }
+    else if (key.equals("u")) {
+      this.model.undoMove();
+    }
+    else if (key.equals("r")) {
+      this.model.redoMove();
+    }
+    else if (key.equals("v")) {
+      this.scrolling = !this.scrolling;
+    }
+    else if (key.equals("]")) {
+      this.camera.zoomIn();
+    }
+    else if (key.equals("[")) {
+      this.camera.zoomOut();
+    }
+    else if (key.equals("0")) {
+      this.camera.fit();
+    }
+    else if (key.equals("up")) {
+      this.arrow(MazeGrid.NORTH, 0, -1);
+    }
+    else if (key.equals("down")) {
+      this.arrow(MazeGrid.SOUTH, 0, 1);
+    }
+    else if (key.equals("left")) {
+      this.arrow(MazeGrid.WEST, -1, 0);
+    }
+    else if (key.equals("right")) {
+      this.arrow(MazeGrid.EAST, 1, 0);
     }
 
-    path.add(current);
-    return path;
   }
 
-  // iterates the next step of the serach
-  void performSearchStep() {
-    if (this.workList.isEmpty()) {
-      this.searchComplete = true;
-      return;
+  // moves the player in the given direction, or scrolls the view the given steps across and
+  // down if the arrow keys scroll
+  void arrow(int dir, int across, int down) {
+    if (this.scrolling) {
+      this.camera.scroll(across, down);
     }
-
-    MazeTile tile = this.workList.remove();
-    this.seen.add(tile);
-
-    if (tile.isAt(this.width - 1, this.height - 1)) {
-      this.path = this.findPath(tile, this.cameFrom);
-      this.searchComplete = true;
-      return;
+    else {
+      this.move(dir);
     }
-    tile.addUnseenConnectionsTo(this.workList, this.seen, this.cameFrom);
   }
 
-  // begins the serach
-  void startSearch(IWorkList workList) {
-    if (this.grid.size() == 0 || this.grid.get(0).size() == 0) {
-      throw new IllegalArgumentException("This maze has no tiles");
-    }
-
-    this.seen.clear();
-    this.path.clear();
-    this.searchInProgress = true;
-    this.workList = workList;
-    this.cameFrom = new HashMap<MazeTile, MazeTile>();
-    this.searchComplete = false;
-    this.workList.add(this.grid.get(0).get(0));
+  // grants the search its share of steps for this tick, as decided by the scheduler
+  // (the search runs on its own thread, so neither this nor drawing waits for it)
+  public void onTick() {
+    this.scheduler.tick(this.model);
   }
 
   // starts the animation at the given frequency
   void start(double frequency) {
-    this.bigBang(width * this.blockSize, height * this.blockSize, frequency);
+    this.bigBang(this.camera.viewWidth, this.camera.viewHeight, frequency);
   }
 }
 
 class ExamplesBigBang {
 
-  ArrayList<Edge> unsortedEdges;
-
   Maze maze = new Maze(3, 3);
 
-  void init() {
-    this.unsortedEdges = new ArrayList<Edge>();
-    this.unsortedEdges.add(new Edge(null, null, 10));
-    this.unsortedEdges.add(new Edge(null, null, 0));
-    this.unsortedEdges.add(new Edge(null, null, 100));
-    this.unsortedEdges.add(new Edge(null, null, 7));
-  }
+  // every pair of adjacent tiles gets exactly one edge, in the same order for the same seed
+  void testEdgeOrder(Tester t) {
+    MazeBuilder builder = new MazeBuilder();
+    MazeGrid grid = new MazeGrid(4, 3);
+    int[] edges = builder.buildEdges(grid, 42);
+    boolean[] found = new boolean[grid.size() * 2];
 
-  void testEdgeSort(Tester t) {
-    this.init();
-    this.unsortedEdges.sort(new BiggerWeight());
+    for (int edge : edges) {
+      found[edge] = true;
+    }
+
+    t.checkExpect(edges.length, 17);
+    t.checkExpect(found[grid.edge(grid.id(1, 2), MazeGrid.EAST)], true);
+    t.checkExpect(found[grid.edge(grid.id(3, 0), MazeGrid.SOUTH)], true);
+    t.checkExpect(found[grid.edge(grid.id(3, 1), MazeGrid.EAST)], false);
+    t.checkExpect(found[grid.edge(grid.id(1, 2), MazeGrid.SOUTH)], false);
+    t.checkExpect(builder.buildEdges(grid, 42), edges);
+  }
 
-    t.checkExpect(this.unsortedEdges, new ArrayList<Edge>(Arrays.asList(new Edge(null, null, 0),
-        new Edge(null, null, 7), new Edge(null, null, 10), new Edge(null, null, 100))));
+  void testSeededMaze(Tester t) {
+    t.checkExpect(new MazeBuilder().buildMaze(30, 20, 7), new MazeBuilder().buildMaze(30, 20, 7));
   }
 
   void testBigbang(Tester t) {
     Maze world = new Maze(20, 10);
     world.start(Double.MIN_VALUE);
   }
+
+  void testInfiniteBigbang(Tester t) {
+    InfiniteMazeWorld world = new InfiniteMazeWorld(1, 48, 32, 16);
+    world.start(0.1);
+  }
   
 
 }
\ No newline at end of file
@@ -0,0 +1,533 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+// A command line entry point that generates and solves mazes without opening a window
+// usage, one command per line with what it does below it (a maze is either built from
+// --w, --h and --seed or loaded with --in; --metrics after any command prints where the time
+// went, phase by phase):
+//   generate --w <width> --h <height> [--seed <seed>] [--parallel | --gen <generator>]
+//            [--braid <fraction>] [--out <file>]
+//       builds a maze with kruskal|prim|backtracker|wilson|parallel; --braid reopens that
+//       fraction of its closed walls, giving it loops; --out saves it, see MazeFile
+//   compare --w <width> --h <height> [--seed <seed>]
+//       builds the maze with each generator in turn
+//   query (--w <width> --h <height> [--seed <seed>] | --in <file>) [--pairs <count>]
+//         [--paths <count>]
+//       indexes the maze and times distance and path queries between random pairs of tiles
+//   stream --w <width> --h <height> [--seed <seed>] --out <file>
+//       writes the maze row by row without holding it in memory
+//   distances (--w <width> --h <height> [--seed <seed>] | --in <file>) [--cores <n,n,...>]
+//       times the distance fields from the start and end computed sequentially, then in
+//       parallel on each number of cores (by default 1, 2, 4, ... up to every core)
+//   offheap --w <width> --h <height> [--seed <seed>] [--distances]
+//       builds the maze outside the heap and searches it there, for billions of tiles (run
+//       with -XX:MaxDirectMemorySize set to fit)
+//   serve (--w <width> --h <height> [--seed <seed>] | --in <file>) [--port <port>]
+//       answers queries about the maze over HTTP until stopped, see MazeServer
+//   load [--port <port>] [--clients <count>] [--requests <count>] [--batch <count>]
+//       sends a server random distance queries from several clients and prints the
+//       throughput and latency
+//   weighted (--w <width> --h <height> [--seed <seed>] [--braid <fraction>] | --in <file>)
+//            [--patch <size>]
+//       lays ground, mud and water over the maze and times Dijkstra's search with a bucket
+//       queue against one with java.util.PriorityQueue
+//   junctions (--w <width> --h <height> [--seed <seed>] [--braid <fraction>] | --in <file>)
+//             [--pairs <count>]
+//       times searches on the maze's junctions (see JunctionGraph) against breadth first
+//       searches of its tiles, between random pairs of tiles
+//   solve (--w <width> --h <height> [--seed <seed>] [--parallel] | --in <file>)
+//         --algo dfs|bfs|astar|bidirectional|deadend|junction
+//       searches the maze from its start to its end
+class MazeCli {
+  private PrintStream out;
+
+  MazeCli(PrintStream out) {
+    this.out = out;
+  }
+
+  public static void main(String[] args) {
+    try {
+      new MazeCli(System.out).run(args);
+    }
+    catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+    catch (UncheckedIOException e) {
+      System.err.println("I/O error: " + e.getCause().getMessage());
+      System.exit(1);
+    }
+  }
+
+  // runs the command named by the first argument
+  void run(String[] args) {
+    if (args.length == 0) {
+      throw new IllegalArgumentException(
+          "usage: generate --w <width> --h <height> [--seed <seed>] [--parallel]"
+          + " [--gen <generator>] [--braid <fraction>] [--out <file>]\n"
+          + "       compare|stream|offheap --w <width> --h <height> [--seed <seed>]"
+          + " [--out <file>] [--distances]\n"
+          + "       query|distances|solve|serve|weighted|junctions (--w <width> --h <height>"
+          + " [--seed <seed>] | --in <file>)\n"
+          + "         [--pairs <count>] [--paths <count>] [--cores <n,n,...>]"
+          + " [--algo dfs|bfs|astar|bidirectional|deadend|junction]\n"
+          + "         [--port <port>] [--braid <fraction>] [--patch <size>]\n"
+          + "       load [--port <port>] [--clients <count>] [--requests <count>]"
+          + " [--batch <count>]\n"
+          + "       (any command also takes --metrics)");
+    }
+
+    HashMap<String, String> options = this.parseOptions(args);
+    Metrics.setEnabled(options.containsKey("metrics"));
+
+    if (args[0].equals("generate")) {
+      this.generate(options);
+    }
+    else if (args[0].equals("query")) {
+      this.query(this.generate(options),
+          Integer.parseInt(options.getOrDefault("pairs", "1000000")),
+          Integer.parseInt(options.getOrDefault("paths", "1000")), this.seedOption(options));
+    }
+    else if (args[0].equals("compare")) {
+      this.compare(options);
+    }
+    else if (args[0].equals("stream")) {
+      this.stream(options);
+    }
+    else if (args[0].equals("distances")) {
+      this.distances(this.generate(options), this.coresOption(options));
+    }
+    else if (args[0].equals("offheap")) {
+      this.offHeap(this.intOption(options, "w"), this.intOption(options, "h"),
+          this.seedOption(options), options.containsKey("distances"));
+    }
+    else if (args[0].equals("solve")) {
+      this.solve(this.generate(options), options.getOrDefault("algo", "bfs"));
+    }
+    else if (args[0].equals("serve")) {
+      this.serve(this.generate(options), Integer.parseInt(options.getOrDefault("port", "8080")));
+    }
+    else if (args[0].equals("load")) {
+      this.loadTest(Integer.parseInt(options.getOrDefault("port", "8080")),
+          Integer.parseInt(options.getOrDefault("clients", "8")),
+          Integer.parseInt(options.getOrDefault("requests", "10000")),
+          Integer.parseInt(options.getOrDefault("batch", "16")), this.seedOption(options));
+    }
+    else if (args[0].equals("weighted")) {
+      this.weighted(this.generate(options),
+          Integer.parseInt(options.getOrDefault("patch", "8")), this.seedOption(options));
+    }
+    else if (args[0].equals("junctions")) {
+      this.junctions(this.generate(options),
+          Integer.parseInt(options.getOrDefault("pairs", "200")), this.seedOption(options));
+    }
+    else {
+      throw new IllegalArgumentException("Unknown command: " + args[0]);
+    }
+
+    if (Metrics.isEnabled()) {
+      for (String line : Metrics.describe()) {
+        this.out.println(line);
+      }
+    }
+  }
+
+  // builds the maze described by the options (or loads it, given --in)
+  // and prints how long it took, saving it given --out
+  // options that would have no effect are refused rather than ignored
+  MazeGrid generate(HashMap<String, String> options) {
+    if (options.containsKey("in")) {
+      for (String option : new String[] {"gen", "parallel", "braid", "out"}) {
+        if (options.containsKey(option)) {
+          throw new IllegalArgumentException("usage: --" + option
+              + " only applies to a generated maze, not one loaded with --in");
+        }
+      }
+      return this.load(options.get("in"));
+    }
+    if (options.containsKey("parallel") && options.containsKey("gen")) {
+      throw new IllegalArgumentException(
+          "usage: --parallel builds with the parallel generator, so it cannot be combined with"
+          + " --gen (use --gen parallel)");
+    }
+
+    int width = this.intOption(options, "w");
+    int height = this.intOption(options, "h");
+    long seed = this.seedOption(options);
+
+    long start = System.nanoTime();
+    MazeGrid grid;
+    if (options.containsKey("parallel")) {
+      grid = new ParallelMazeBuilder().buildMaze(width, height, seed);
+    }
+    else {
+      grid = new GeneratorFactory().buildMaze(options.getOrDefault("gen", "kruskal"),
+          width, height, seed);
+    }
+    if (options.containsKey("braid")) {
+      new Braider().braid(grid, Double.parseDouble(options.get("braid")), ~seed);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    this.out.println("generated " + width + "x" + height + " maze (seed " + seed + ") in "
+        + this.millis(elapsed) + " ms");
+
+    if (options.containsKey("out")) {
+      this.save(grid, seed, options.get("out"));
+    }
+    return grid;
+  }
+
+  // indexes the given maze for path queries, then times distance queries between the given
+  // number of random pairs of tiles and path queries between the given number of pairs
+  // (a path is far longer to list than its length is to look up)
+  void query(MazeGrid grid, int pairs, int paths, long seed) {
+    long start = System.nanoTime();
+    PathIndex index = new PathIndex(grid);
+    this.out.println("indexed in " + this.millis(System.nanoTime() - start) + " ms");
+
+    SplittableRandom random = new SplittableRandom(seed);
+    long steps = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < pairs; i += 1) {
+      steps += index.distance(random.nextInt(grid.size()), random.nextInt(grid.size()));
+    }
+    long distanceNanos = System.nanoTime() - start;
+    this.out.println(pairs + " distance queries in " + this.millis(distanceNanos) + " ms ("
+        + String.format("%.0f", (double) distanceNanos / Math.max(pairs, 1)) + " ns each, "
+        + steps + " steps in all)");
+
+    steps = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < paths; i += 1) {
+      steps += index.path(random.nextInt(grid.size()), random.nextInt(grid.size())).length;
+    }
+    this.out.println(paths + " path queries in " + this.millis(System.nanoTime() - start)
+        + " ms (" + steps + " tiles listed)");
+  }
+
+  // builds the maze described by the options with every generator
+  // and prints what each one cost
+  void compare(HashMap<String, String> options) {
+    GenerateReport[] reports = new GeneratorFactory().compare(GeneratorFactory.GENERATORS,
+        this.intOption(options, "w"), this.intOption(options, "h"), this.seedOption(options));
+    for (GenerateReport report : reports) {
+      this.out.println(report.describe());
+    }
+  }
+
+  // streams the maze described by the options to the file named by --out,
+  // and prints how long it took
+  void stream(HashMap<String, String> options) {
+    int width = this.intOption(options, "w");
+    int height = this.intOption(options, "h");
+    long seed = this.seedOption(options);
+    if (!options.containsKey("out")) {
+      throw new IllegalArgumentException("Missing option --out");
+    }
+
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(Paths.get(options.get("out")),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      new StreamingMazeBuilder().buildMaze(width, height, seed, new FileRowSink(channel));
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.out.println("streamed " + width + "x" + height + " maze (seed " + seed + ") to "
+        + options.get("out") + " in " + this.millis(System.nanoTime() - start) + " ms");
+  }
+
+  // times both distance fields of the given maze computed sequentially, then in parallel on
+  // pools of each given number of cores, printing the speedup over the sequential time
+  // (each time is the best of three runs)
+  void distances(MazeGrid grid, int[] cores) {
+    DistanceField sequential = new DistanceField(grid);
+    int[] toStart = null;
+    int[] toEnd = null;
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < 3; run += 1) {
+      long start = System.nanoTime();
+      toStart = sequential.computeDistances(0);
+      toEnd = sequential.computeDistances(grid.size() - 1);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    this.out.println("sequential: " + this.millis(best) + " ms");
+
+    for (int count : cores) {
+      ForkJoinPool pool = new ForkJoinPool(count);
+      ParallelBfs bfs = new ParallelBfs(pool, ParallelBfs.DEFAULT_GRAIN);
+      long parallelBest = Long.MAX_VALUE;
+      boolean match = true;
+      for (int run = 0; run < 3; run += 1) {
+        long start = System.nanoTime();
+        int[][] both = bfs.distancesFromBoth(grid, 0, grid.size() - 1);
+        parallelBest = Math.min(parallelBest, System.nanoTime() - start);
+        match = match && Arrays.equals(both[0], toStart) && Arrays.equals(both[1], toEnd);
+      }
+      pool.shutdown();
+      this.out.println(count + " cores: " + this.millis(parallelBest) + " ms, speedup "
+          + String.format("%.2f", (double) best / parallelBest) + "x"
+          + (match ? "" : ", DISTANCES DIFFER"));
+    }
+  }
+
+  // returns the core counts given by --cores, or 1, 2, 4, ... up to every core
+  int[] coresOption(HashMap<String, String> options) {
+    if (options.containsKey("cores")) {
+      String[] counts = options.get("cores").split(",");
+      int[] cores = new int[counts.length];
+      for (int i = 0; i < counts.length; i += 1) {
+        cores[i] = Integer.parseInt(counts[i]);
+        if (cores[i] < 1) {
+          throw new IllegalArgumentException("Core counts must be positive");
+        }
+      }
+      return cores;
+    }
+
+    int available = Runtime.getRuntime().availableProcessors();
+    int count = 1;
+    while ((2 << (count - 1)) <= available) {
+      count += 1;
+    }
+    int[] cores = new int[count];
+    for (int i = 0; i < count; i += 1) {
+      cores[i] = 1 << i;
+    }
+    if (cores[count - 1] != available) {
+      cores = Arrays.copyOf(cores, count + 1);
+      cores[count] = available;
+    }
+    return cores;
+  }
+
+  // lays patches of terrain of the given size over the given maze and times Dijkstra's search
+  // from the start to the end with a bucket queue and then with java.util.PriorityQueue,
+  // printing the speedup and checking both find paths of the same cost
+  // (each time is the best of three runs)
+  void weighted(MazeGrid grid, int patchSize, long seed) {
+    TerrainCosts terrain = TerrainCosts.patches(grid.width, grid.height, patchSize, seed);
+    int goal = grid.size() - 1;
+
+    DijkstraSearch dial = null;
+    long dialBest = Long.MAX_VALUE;
+    for (int run = 0; run < 3; run += 1) {
+      long start = System.nanoTime();
+      dial = new DijkstraSearch(grid, terrain, 0, goal).solve();
+      dialBest = Math.min(dialBest, System.nanoTime() - start);
+    }
+
+    DijkstraSearch heap = null;
+    long heapBest = Long.MAX_VALUE;
+    for (int run = 0; run < 3; run += 1) {
+      long start = System.nanoTime();
+      heap = new DijkstraSearch(grid, terrain, 0, goal, new HeapDistanceQueue()).solve();
+      heapBest = Math.min(heapBest, System.nanoTime() - start);
+    }
+
+    this.out.println("bucket queue: " + this.millis(dialBest) + " ms (" + dial.seenCount()
+        + " tiles expanded, path of " + dial.pathLength() + " tiles costing " + dial.cost()
+        + ")");
+    this.out.println("priority queue: " + this.millis(heapBest) + " ms, speedup "
+        + String.format("%.2f", (double) heapBest / dialBest) + "x"
+        + (heap.cost() == dial.cost() ? "" : ", COSTS DIFFER"));
+  }
+
+  // contracts the given maze to its junctions, printing how far it contracted and how long
+  // it took, then times searches between the given number of random pairs of tiles on the
+  // junctions and breadth first on the tiles, printing the speedup and checking every pair
+  // gets a path of the same length
+  void junctions(MazeGrid grid, int pairs, long seed) {
+    long start = System.nanoTime();
+    JunctionGraph graph = new JunctionGraph(grid);
+    this.out.println(graph.describe() + " in " + this.millis(System.nanoTime() - start) + " ms");
+
+    SplittableRandom random = new SplittableRandom(seed);
+    int[] from = new int[pairs];
+    int[] to = new int[pairs];
+    for (int i = 0; i < pairs; i += 1) {
+      from[i] = random.nextInt(grid.size());
+      to[i] = random.nextInt(grid.size());
+    }
+
+    int[] lengths = new int[pairs];
+    long tileExpanded = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < pairs; i += 1) {
+      GridSearch search = new GridSearch(grid, new MazeQueue(), from[i], to[i]);
+      while (!search.step()) {
+        // keeps stepping
+      }
+      lengths[i] = search.pathLength();
+      tileExpanded += search.seenCount();
+    }
+    long tileNanos = System.nanoTime() - start;
+
+    boolean match = true;
+    long junctionExpanded = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < pairs; i += 1) {
+      JunctionSearch search = graph.search(from[i], to[i]);
+      while (!search.step()) {
+        // keeps stepping
+      }
+      match = match && search.pathLength() == lengths[i];
+      junctionExpanded += search.seenCount();
+    }
+    long junctionNanos = System.nanoTime() - start;
+
+    this.out.println(pairs + " searches of the tiles in " + this.millis(tileNanos) + " ms ("
+        + tileExpanded / Math.max(pairs, 1) + " tiles expanded each)");
+    this.out.println(pairs + " searches of the junctions in " + this.millis(junctionNanos)
+        + " ms (" + junctionExpanded / Math.max(pairs, 1) + " junctions expanded each), speedup "
+        + String.format("%.2f", (double) tileNanos / junctionNanos) + "x"
+        + (match ? "" : ", PATHS DIFFER"));
+  }
+
+  // builds a maze of the given size outside the heap and searches it breadth first from the
+  // start, keeping every tile's distance if asked to, then prints what each took and how
+  // much the garbage collector ran meanwhile
+  void offHeap(int width, int height, long seed, boolean keepDistances) {
+    long gcCount = Metrics.gcCount();
+    long gcMillis = Metrics.gcMillis();
+
+    long start = System.nanoTime();
+    OffHeapRowSink sink = new OffHeapRowSink();
+    try {
+      new StreamingMazeBuilder().buildMaze(width, height, seed, sink);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    OffHeapGrid grid = sink.grid();
+    this.out.println("built " + width + "x" + height + " maze (seed " + seed + ") off the heap in "
+        + this.millis(System.nanoTime() - start) + " ms (" + this.megabytes(grid.bytes())
+        + " MB of walls)");
+
+    start = System.nanoTime();
+    OffHeapSearch search = new OffHeapSearch(grid, 0, keepDistances);
+    this.out.println("searched " + search.reached() + " tiles in "
+        + this.millis(System.nanoTime() - start) + " ms (deepest " + search.depth()
+        + " steps, " + this.megabytes(search.bytes()) + " MB off the heap)");
+    this.out.println((Metrics.gcCount() - gcCount) + " garbage collections took "
+        + (Metrics.gcMillis() - gcMillis) + " ms");
+  }
+
+  // saves the given maze to the named file and prints how long it took
+  void save(MazeGrid grid, long seed, String file) {
+    long start = System.nanoTime();
+    try {
+      new MazeFile().save(grid, seed, Paths.get(file));
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.out.println("saved to " + file + " in " + this.millis(System.nanoTime() - start) + " ms");
+  }
+
+  // loads the maze saved in the named file and prints how long it took
+  MazeGrid load(String file) {
+    long start = System.nanoTime();
+    MappedMaze mapped;
+    MazeGrid grid;
+    try {
+      mapped = new MazeFile().map(Paths.get(file));
+      grid = mapped.toGrid();
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.out.println("loaded " + grid.width + "x" + grid.height + " maze (seed " + mapped.seed
+        + ") in " + this.millis(System.nanoTime() - start) + " ms");
+    return grid;
+  }
+
+  // solves the given maze from the start to the end with the named algorithm
+  // and prints how long it took and how many tiles it expanded
+  void solve(MazeGrid grid, String algorithm) {
+    this.out.println(new SolverFactory().solve(algorithm, grid, 0, grid.size() - 1).describe());
+  }
+
+  // indexes the given maze and answers queries about it on the given port until stopped
+  void serve(MazeGrid grid, int port) {
+    long start = System.nanoTime();
+    MazeSnapshot snapshot = new MazeSnapshot(grid);
+    this.out.println("indexed in " + this.millis(System.nanoTime() - start) + " ms");
+    try {
+      new MazeServer(snapshot, port).start();
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.out.println("serving on http://127.0.0.1:" + port);
+  }
+
+  // sends the given number of requests of random distance queries to the server on the given
+  // port from the given number of clients, and prints the throughput and latency
+  void loadTest(int port, int clients, int requests, int batchSize, long seed) {
+    try {
+      this.out.println(new MazeLoadClient(port).run(clients, requests, batchSize, seed)
+          .describe());
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // reads "--name value" pairs (and "--name" flags) following the command
+  HashMap<String, String> parseOptions(String[] args) {
+    HashMap<String, String> options = new HashMap<String, String>();
+
+    for (int i = 1; i < args.length; i += 1) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+      }
+
+      String name = args[i].substring(2);
+      if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+        options.put(name, args[i + 1]);
+        i += 1;
+      }
+      else {
+        options.put(name, "true");
+      }
+    }
+    return options;
+  }
+
+  // returns the seed given by --seed, or a seed taken from the clock
+  long seedOption(HashMap<String, String> options) {
+    if (options.containsKey("seed")) {
+      return Long.parseLong(options.get("seed"));
+    }
+    return System.nanoTime();
+  }
+
+  // returns the integer value of the named option
+  int intOption(HashMap<String, String> options, String name) {
+    if (!options.containsKey(name)) {
+      throw new IllegalArgumentException("Missing option --" + name);
+    }
+    return Integer.parseInt(options.get(name));
+  }
+
+  // converts bytes to megabytes with one decimal place
+  String megabytes(long bytes) {
+    return String.format("%.1f", bytes / 1048576.0);
+  }
+
+  // converts nanoseconds to milliseconds with two decimal places
+  String millis(long nanos) {
+    return String.format("%.2f", nanos / 1e6);
+  }
+}
@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import tester.Tester;
+
+// Saves and loads mazes in a compact binary format, all little-endian:
+//   bytes 0-3    the magic bytes "MAZE"
+//   bytes 4-7    the format version (1)
+//   bytes 8-11   the width
+//   bytes 12-15  the height
+//   bytes 16-23  the seed the maze was built from
+//   then the walls at two bits per tile in row-major order, four tiles to a byte starting
+//   from the low bits (bit 0 open to the east, bit 1 open to the south), padded with
+//   zeros to a multiple of 8 bytes
+// this is the same packing MazeGrid uses in memory, so a grid is written and read word by word
+class MazeFile {
+  static final int MAGIC = 0x455a414d;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 24;
+
+  // how many bytes are written to the channel at a time when saving
+  static final int BUFFER_BYTES = 1 << 16;
+
+  // returns the number of bytes of walls stored for a maze with the given number of tiles
+  static long wallBytes(long tiles) {
+    return (tiles + 31) / 32 * 8;
+  }
+
+  // returns the header of a maze file for a maze of the given size and seed
+  static ByteBuffer header(int width, int height, long seed) {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putLong(seed);
+    header.flip();
+    return header;
+  }
+
+  // writes the given maze, built from the given seed, to the given file,
+  // replacing anything already there
+  void save(MazeGrid grid, long seed, Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      this.writeFully(channel, header(grid.width, grid.height, seed));
+
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < grid.wordCount(); i += 1) {
+        if (!buffer.hasRemaining()) {
+          buffer.flip();
+          this.writeFully(channel, buffer);
+          buffer.clear();
+        }
+        buffer.putLong(grid.word(i));
+      }
+      buffer.flip();
+      this.writeFully(channel, buffer);
+    }
+  }
+
+  // writes everything remaining in the given buffer to the given channel
+  void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  // maps the given maze file into memory without reading it
+  // (pages are read from the file as the maze is used)
+  MappedMaze map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new MappedMaze(channel);
+    }
+  }
+
+  // reads the given maze file into a grid
+  MazeGrid load(Path file) throws IOException {
+    return this.map(file).toGrid();
+  }
+}
+
+// Represents a maze file mapped into memory, read in place
+// the file is mapped in regions of at most 1 GB, so it can be larger than a single buffer
+// and larger than a MazeGrid can hold; tiles are identified by long ids
+class MappedMaze {
+  static final int REGION_SHIFT = 30;
+
+  final int width;
+  final int height;
+  final long seed;
+  private MappedByteBuffer[] regions;
+
+  // maps the maze file open on the given channel
+  MappedMaze(FileChannel channel) throws IOException {
+    long length = channel.size();
+    if (length < MazeFile.HEADER_BYTES) {
+      throw new IllegalArgumentException("Not a maze file");
+    }
+
+    int count = (int) ((length + (1L << REGION_SHIFT) - 1) >>> REGION_SHIFT);
+    this.regions = new MappedByteBuffer[count];
+    for (int i = 0; i < count; i += 1) {
+      long start = (long) i << REGION_SHIFT;
+      long size = Math.min(1L << REGION_SHIFT, length - start);
+      this.regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      this.regions[i].order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    ByteBuffer header = this.regions[0];
+    if (header.getInt(0) != MazeFile.MAGIC) {
+      throw new IllegalArgumentException("Not a maze file");
+    }
+    if (header.getInt(4) != MazeFile.VERSION) {
+      throw new IllegalArgumentException("Unsupported maze file version: " + header.getInt(4));
+    }
+    this.width = header.getInt(8);
+    this.height = header.getInt(12);
+    this.seed = header.getLong(16);
+
+    if (this.width < 0 || this.height < 0) {
+      throw new IllegalArgumentException("Maze dimensions cannot be negative");
+    }
+    if (length < MazeFile.HEADER_BYTES + MazeFile.wallBytes(this.size())) {
+      throw new IllegalArgumentException("Maze file is truncated");
+    }
+  }
+
+  // returns the number of tiles in this maze
+  long size() {
+    return (long) this.width * this.height;
+  }
+
+  // returns whether the tile with the given id is open in the given direction
+  boolean isOpen(long id, int dir) {
+    if (dir == MazeGrid.EAST) {
+      return (this.bits(id) & 1) != 0;
+    }
+    else if (dir == MazeGrid.SOUTH) {
+      return (this.bits(id) & 2) != 0;
+    }
+    else if (dir == MazeGrid.WEST) {
+      return id % this.width != 0 && (this.bits(id - 1) & 1) != 0;
+    }
+    else if (dir == MazeGrid.NORTH) {
+      return id >= this.width && (this.bits(id - this.width) & 2) != 0;
+    }
+    throw new IllegalArgumentException("Invalid direction: " + dir);
+  }
+
+  // returns the two wall bits of the tile with the given id
+  int bits(long id) {
+    long offset = MazeFile.HEADER_BYTES + (id >>> 2);
+    byte packed = this.regions[(int) (offset >>> REGION_SHIFT)]
+        .get((int) (offset & ((1L << REGION_SHIFT) - 1)));
+    return (packed >>> ((id & 3) << 1)) & 3;
+  }
+
+  // copies this maze into a grid
+  // (words never straddle regions, since both the header and the regions are multiples of 8)
+  MazeGrid toGrid() {
+    MazeGrid grid = new MazeGrid(this.width, this.height);
+    for (int i = 0; i < grid.wordCount(); i += 1) {
+      long offset = MazeFile.HEADER_BYTES + 8L * i;
+      grid.setWord(i, this.regions[(int) (offset >>> REGION_SHIFT)]
+          .getLong((int) (offset & ((1L << REGION_SHIFT) - 1))));
+    }
+    return grid;
+  }
+}
+
+class ExamplesMazeFile {
+
+  // a saved maze reads back as the same grid, both copied and mapped in place
+  void testRoundTrip(Tester t) throws IOException {
+    MazeFile files = new MazeFile();
+    Path file = Files.createTempFile("maze", ".bin");
+
+    int[][] sizes = {{1, 1}, {7, 5}, {64, 3}, {301, 257}};
+    for (int[] size : sizes) {
+      MazeGrid grid = new MazeBuilder().buildMaze(size[0], size[1], 17);
+      files.save(grid, 17, file);
+      MappedMaze mapped = files.map(file);
+
+      t.checkExpect(files.load(file), grid);
+      t.checkExpect(mapped.seed, 17L);
+      t.checkExpect(mapped.size(), (long) grid.size());
+      t.checkExpect(Files.size(file), MazeFile.HEADER_BYTES + MazeFile.wallBytes(grid.size()));
+
+      boolean same = true;
+      for (int id = 0; id < grid.size(); id += 1) {
+        for (int dir = MazeGrid.NORTH; dir <= MazeGrid.WEST; dir += 1) {
+          same = same && mapped.isOpen(id, dir) == grid.isOpen(id, dir);
+        }
+      }
+      t.checkExpect(same, true);
+    }
+    Files.delete(file);
+  }
+
+  void testBadFiles(Tester t) throws IOException {
+    MazeFile files = new MazeFile();
+    Path file = Files.createTempFile("maze", ".bin");
+
+    Files.write(file, new byte[] {1, 2, 3});
+    t.checkException(new IllegalArgumentException("Not a maze file"), files, "map", file);
+
+    ByteBuffer header = MazeFile.header(100, 100, 0);
+    header.putInt(4, 2);
+    Files.write(file, header.array());
+    t.checkException(new IllegalArgumentException("Unsupported maze file version: 2"),
+        files, "map", file);
+
+    Files.write(file, MazeFile.header(100, 100, 0).array());
+    t.checkException(new IllegalArgumentException("Maze file is truncated"), files, "map", file);
+    Files.delete(file);
+  }
+}
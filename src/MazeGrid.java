@@ -0,0 +1,316 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import tester.Tester;
+
+// Represents the walls of a maze, packed two bits per tile into an array of longs
+// the first bit of a tile is set when it is open to the east, the second when it is open
+// to the south (north and west openings are read from the neighboring tile)
+// tiles are identified by their row-major index, y * width + x
+class MazeGrid {
+  static final int NORTH = 0;
+  static final int EAST = 1;
+  static final int SOUTH = 2;
+  static final int WEST = 3;
+
+  static final int EAST_BIT = 1;
+  static final int SOUTH_BIT = 2;
+
+  // gives atomic access to single words of the walls, for builders that share a grid
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  final int width;
+  final int height;
+  private long[] walls;
+
+  MazeGrid(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Maze dimensions cannot be negative");
+    }
+    if ((long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Maze has too many tiles");
+    }
+
+    this.width = width;
+    this.height = height;
+    this.walls = new long[(width * height + 31) / 32];
+  }
+
+  // returns the number of tiles in this grid
+  int size() {
+    return this.width * this.height;
+  }
+
+  // returns the id of the tile at the given position
+  int id(int x, int y) {
+    return y * this.width + x;
+  }
+
+  // returns the x coordinate of the tile with the given id
+  int xOf(int id) {
+    return id % this.width;
+  }
+
+  // returns the y coordinate of the tile with the given id
+  int yOf(int id) {
+    return id / this.width;
+  }
+
+  // returns whether the tile at the given position is open in the given direction
+  boolean isOpen(int x, int y, int dir) {
+    return this.isOpen(this.id(x, y), dir);
+  }
+
+  // returns whether the tile with the given id is open in the given direction
+  boolean isOpen(int id, int dir) {
+    if (dir == EAST) {
+      return this.hasBit(id, EAST_BIT);
+    }
+    else if (dir == SOUTH) {
+      return this.hasBit(id, SOUTH_BIT);
+    }
+    else if (dir == WEST) {
+      return id % this.width != 0 && this.hasBit(id - 1, EAST_BIT);
+    }
+    else if (dir == NORTH) {
+      return id >= this.width && this.hasBit(id - this.width, SOUTH_BIT);
+    }
+    throw new IllegalArgumentException("Invalid direction: " + dir);
+  }
+
+  // removes the wall of the tile at the given position in the given direction
+  void open(int x, int y, int dir) {
+    if (dir == EAST && x < this.width - 1) {
+      this.setBit(this.id(x, y), EAST_BIT);
+    }
+    else if (dir == SOUTH && y < this.height - 1) {
+      this.setBit(this.id(x, y), SOUTH_BIT);
+    }
+    else if (dir == WEST && x > 0) {
+      this.setBit(this.id(x - 1, y), EAST_BIT);
+    }
+    else if (dir == NORTH && y > 0) {
+      this.setBit(this.id(x, y - 1), SOUTH_BIT);
+    }
+    else {
+      throw new IllegalArgumentException("Cannot open the border of the maze");
+    }
+  }
+
+  // removes the wall between the two adjacent tiles with the given ids
+  void connect(int id1, int id2) {
+    int first = Math.min(id1, id2);
+    int second = Math.max(id1, id2);
+
+    if (second == first + this.width) {
+      this.setBit(first, SOUTH_BIT);
+    }
+    else if (second == first + 1 && second % this.width != 0) {
+      this.setBit(first, EAST_BIT);
+    }
+    else {
+      throw new IllegalArgumentException("Tiles are not adjacent");
+    }
+  }
+
+  // returns the code of the edge leaving the given tile to the east or south:
+  // twice the tile id, plus one for south
+  // (codes are read back with an unsigned shift, so they may wrap past Integer.MAX_VALUE)
+  int edge(int id, int dir) {
+    if (dir == EAST) {
+      return id << 1;
+    }
+    else if (dir == SOUTH) {
+      return (id << 1) | 1;
+    }
+    throw new IllegalArgumentException("Edges only leave a tile to the east or south");
+  }
+
+  // returns the id of the tile the given edge leaves from
+  int edgeFrom(int edge) {
+    return edge >>> 1;
+  }
+
+  // returns the id of the tile the given edge leads to
+  int edgeTo(int edge) {
+    if ((edge & 1) == 0) {
+      return (edge >>> 1) + 1;
+    }
+    return (edge >>> 1) + this.width;
+  }
+
+  // removes the wall the given edge crosses
+  void openEdge(int edge) {
+    if ((edge & 1) == 0) {
+      this.setBit(edge >>> 1, EAST_BIT);
+    }
+    else {
+      this.setBit(edge >>> 1, SOUTH_BIT);
+    }
+  }
+
+  // removes the wall the given edge crosses, safe to call from several threads at once
+  // (neighboring tiles share words of the wall array)
+  void openEdgeAtomically(int edge) {
+    int id = edge >>> 1;
+    long bit = (long) ((edge & 1) == 0 ? EAST_BIT : SOUTH_BIT) << ((id & 31) << 1);
+    WORDS.getAndBitwiseOr(this.walls, id >>> 5, bit);
+  }
+
+  // returns the id of the tile next to the given one in the given direction
+  // (does not check whether that tile is inside the maze)
+  int neighbor(int id, int dir) {
+    if (dir == EAST) {
+      return id + 1;
+    }
+    else if (dir == SOUTH) {
+      return id + this.width;
+    }
+    else if (dir == WEST) {
+      return id - 1;
+    }
+    else {
+      return id - this.width;
+    }
+  }
+
+  // returns whether the given tile has a neighbor inside the maze in the given direction
+  boolean hasNeighbor(int id, int dir) {
+    if (dir == EAST) {
+      return id % this.width != this.width - 1;
+    }
+    else if (dir == SOUTH) {
+      return id / this.width != this.height - 1;
+    }
+    else if (dir == WEST) {
+      return id % this.width != 0;
+    }
+    else {
+      return id >= this.width;
+    }
+  }
+
+  // writes the ids of the tiles the given tile is open to into neighbors
+  // (which must have room for 4) in north, east, south, west order,
+  // and returns how many were written
+  int openNeighbors(int id, int[] neighbors) {
+    int count = 0;
+
+    if (id >= this.width && this.hasBit(id - this.width, SOUTH_BIT)) {
+      neighbors[count] = id - this.width;
+      count += 1;
+    }
+    if (this.hasBit(id, EAST_BIT)) {
+      neighbors[count] = id + 1;
+      count += 1;
+    }
+    if (this.hasBit(id, SOUTH_BIT)) {
+      neighbors[count] = id + this.width;
+      count += 1;
+    }
+    if (id % this.width != 0 && this.hasBit(id - 1, EAST_BIT)) {
+      neighbors[count] = id - 1;
+      count += 1;
+    }
+    return count;
+  }
+
+  // returns the number of tiles the given tile is open to
+  int degree(int id) {
+    int count = 0;
+    for (int dir = NORTH; dir <= WEST; dir += 1) {
+      if (this.isOpen(id, dir)) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  // returns the number of words the walls are packed into (32 tiles per word)
+  int wordCount() {
+    return this.walls.length;
+  }
+
+  // returns the given word of the packed walls, for copying a grid in bulk
+  long word(int index) {
+    return this.walls[index];
+  }
+
+  // replaces the given word of the packed walls, for copying a grid in bulk
+  void setWord(int index, long bits) {
+    this.walls[index] = bits;
+  }
+
+  // returns a 64-bit hash of the size and walls of this grid: grids with different walls
+  // almost never share one, so it can stand for the maze in caches
+  long fingerprint() {
+    long hash = ((long) this.width << 32) | this.height;
+    for (long word : this.walls) {
+      hash = Long.rotateLeft((hash ^ word) * 0x9e3779b97f4a7c15L, 29);
+    }
+    // a final mix spreads every word's bits over the whole hash
+    hash ^= hash >>> 32;
+    hash *= 0xd6e8feb86659fd93L;
+    return hash ^ (hash >>> 32);
+  }
+
+  // returns whether the given bit of the given tile is set
+  private boolean hasBit(int id, int bit) {
+    return (this.walls[id >>> 5] & ((long) bit << ((id & 31) << 1))) != 0;
+  }
+
+  // sets the given bit of the given tile
+  private void setBit(int id, int bit) {
+    this.walls[id >>> 5] |= (long) bit << ((id & 31) << 1);
+  }
+}
+
+class ExamplesMazeGrid {
+
+  // counts the open walls between tiles of the grid
+  int openings(MazeGrid grid) {
+    int degrees = 0;
+    for (int id = 0; id < grid.size(); id += 1) {
+      degrees += grid.degree(id);
+    }
+    return degrees / 2;
+  }
+
+  // checks that the grid is a spanning tree: one fewer opening than tiles, all reachable
+  // from the start (the name says which maze failed)
+  void checkSpanningTree(Tester t, MazeGrid grid, String name) {
+    int unreached = 0;
+    for (int distance : new DistanceField(grid).toStart()) {
+      if (distance == -1) {
+        unreached += 1;
+      }
+    }
+    t.checkExpect(this.openings(grid), grid.size() - 1, name);
+    t.checkExpect(unreached, 0, name);
+  }
+
+  void testOpen(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 2);
+    grid.open(1, 0, MazeGrid.SOUTH);
+    grid.open(1, 1, MazeGrid.WEST);
+
+    t.checkExpect(grid.isOpen(1, 0, MazeGrid.SOUTH), true);
+    t.checkExpect(grid.isOpen(1, 1, MazeGrid.NORTH), true);
+    t.checkExpect(grid.isOpen(0, 1, MazeGrid.EAST), true);
+    t.checkExpect(grid.isOpen(1, 1, MazeGrid.EAST), false);
+    t.checkExpect(grid.isOpen(0, 0, MazeGrid.WEST), false);
+    t.checkExpect(grid.degree(grid.id(1, 1)), 2);
+
+    int[] neighbors = new int[4];
+    t.checkExpect(grid.openNeighbors(grid.id(1, 1), neighbors), 2);
+    t.checkExpect(neighbors[0], grid.id(1, 0));
+    t.checkExpect(neighbors[1], grid.id(0, 1));
+    t.checkException(new IllegalArgumentException("Cannot open the border of the maze"),
+        grid, "open", 2, 0, MazeGrid.EAST);
+  }
+
+  // a perfect maze of n tiles has exactly n - 1 openings, and reaches every tile
+  void testBuildMazeIsTree(Tester t) {
+    this.checkSpanningTree(t, new MazeBuilder().buildMaze(40, 25), "40x25");
+  }
+}
@@ -0,0 +1,324 @@
+import java.util.SplittableRandom;
+
+// represents the state of a maze independent of how it is displayed:
+// its grid, the distances of its tiles, and the progress of a manual or automatic search
+// (the start is the top left tile and the end is the bottom right tile)
+class MazeModel {
+  // the fewest tiles for which the distances are computed on every core, when there is more
+  // than one (on one core the parallel search measures no faster, see MazeCli distances)
+  static final int PARALLEL_TILES = 1 << 20;
+
+  final int width;
+  final int height;
+  private MazeGrid grid;
+  private DistanceField distances;
+  private ManualWalk walk;
+  private boolean searchComplete;
+  private SearchRun run;
+  private SearchView view;
+  private SearchWorker worker;
+  private int version;
+  private String generator;
+  private SolutionCache cache;
+  private long fingerprint;
+
+  // builds a random maze of the given size
+  MazeModel(int width, int height) {
+    this(new MazeBuilder().buildMaze(width, height));
+  }
+
+  // wraps an existing grid
+  MazeModel(MazeGrid grid) {
+    this.width = grid.width;
+    this.height = grid.height;
+    this.generator = "kruskal";
+    this.cache = new SolutionCache(SolutionCache.DEFAULT_BUDGET);
+    this.setGrid(grid);
+    this.clear();
+  }
+
+  // Resets maze to state before search
+  void clear() {
+    this.stopWorker();
+    this.walk = new ManualWalk(this.grid);
+    this.run = null;
+    this.view = null;
+    this.searchComplete = false;
+    this.version += 1;
+  }
+
+  // Generates a new maze of the same size with the current generator
+  void newMaze() {
+    this.setGrid(new GeneratorFactory().buildMaze(this.generator, this.width, this.height,
+        new SplittableRandom().nextLong()));
+    this.clear();
+  }
+
+  // returns the name of the generator new mazes are built with
+  String generator() {
+    return this.generator;
+  }
+
+  // builds new mazes with the named generator from now on (see GeneratorFactory.GENERATORS)
+  void setGenerator(String generator) {
+    new GeneratorFactory().create(generator);
+    this.generator = generator;
+  }
+
+  // replaces the grid, leaving the distances of its tiles to be computed
+  // when they are first needed (in parallel, for large grids on several cores)
+  private void setGrid(MazeGrid grid) {
+    this.grid = grid;
+    if (grid.size() >= PARALLEL_TILES && Runtime.getRuntime().availableProcessors() > 1) {
+      this.distances = new DistanceField(grid, new ParallelBfs());
+    }
+    else {
+      this.distances = new DistanceField(grid);
+    }
+    this.fingerprint = grid.fingerprint();
+  }
+
+  // returns a number that changes whenever the maze is cleared or replaced or a search begins,
+  // so a view can tell when everything it drew is out of date
+  int version() {
+    return this.version;
+  }
+
+  // returns the grid of this maze
+  MazeGrid grid() {
+    return this.grid;
+  }
+
+  // returns the distances of the tiles of this maze from the start and end
+  DistanceField distances() {
+    return this.distances;
+  }
+
+  // returns the id of the end tile
+  int end() {
+    return this.grid.size() - 1;
+  }
+
+  // returns the id of the tile the player is on
+  int currentPosition() {
+    return this.walk.position();
+  }
+
+  // returns the name of the algorithm of the automatic search, or null if there is none
+  String algorithm() {
+    if (this.run == null) {
+      return null;
+    }
+    return this.run.algorithm;
+  }
+
+  // returns whether the automatic search is a replay of one the cache already held
+  boolean isReplay() {
+    return this.run != null && this.run.replay;
+  }
+
+  // returns the cache of finished searches, shared by every maze this model shows
+  SolutionCache solutionCache() {
+    return this.cache;
+  }
+
+  // brings what this model reports about the automatic search up to the newest progress
+  // it has published (what it reports only changes here, so it stays the same while a
+  // frame is drawn even when the search runs on another thread)
+  void refreshSearch() {
+    if (this.view != null) {
+      this.view.refresh();
+    }
+  }
+
+  // returns the wall-clock time spent performing search steps, in nanoseconds
+  long searchNanos() {
+    if (this.view == null) {
+      return 0;
+    }
+    return this.view.shown().nanos;
+  }
+
+  // returns whether the given tile is on the current path
+  boolean isOnPath(int tile) {
+    if (this.view != null) {
+      return this.view.isOnPath(tile);
+    }
+    return this.walk.isOnPath(tile);
+  }
+
+  // returns whether the given tile has been seen by the current search
+  boolean wasSeen(int tile) {
+    if (this.view != null) {
+      return this.view.wasSeen(tile);
+    }
+    return this.walk.wasSeen(tile);
+  }
+
+  // returns the number of tiles on the current path
+  int pathLength() {
+    if (this.view != null) {
+      return this.view.shown().path().length;
+    }
+    return this.walk.pathLength();
+  }
+
+  // returns the number of tiles seen by the current search
+  int seenCount() {
+    if (this.view != null) {
+      return this.view.shown().seenCount;
+    }
+    return this.walk.seenCount();
+  }
+
+  // returns the tile the automatic search saw index-th, counting from 0
+  int seenTile(int index) {
+    return this.view.shown().seenTile(index);
+  }
+
+  // returns the tiles of the path the automatic search found (empty until it is found),
+  // from the end back to the start
+  int[] searchPath() {
+    return this.view.shown().path();
+  }
+
+  // returns the number of seen tiles that are not on the path
+  int wrongMoves() {
+    if (this.view != null) {
+      return this.seenCount() - this.view.seenOnPath();
+    }
+    return this.seenCount() - this.pathLength();
+  }
+
+  // returns whether the end has been reached or the search has run out of tiles
+  boolean isSearchComplete() {
+    if (this.view != null) {
+      return this.view.shown().complete;
+    }
+    return this.searchComplete;
+  }
+
+  // returns whether an automatic search is still running
+  // (one that was cancelled is not, though it never completes)
+  boolean isSearching() {
+    return this.view != null && !this.view.shown().complete && !this.isCancelled();
+  }
+
+  // moves the player one tile in the given direction if there is no wall in the way
+  // (ignored while an automatic search is running or once the end is reached)
+  void move(int dir) {
+    if (this.searchComplete || this.run != null) {
+      return;
+    }
+    this.walk.move(dir);
+    this.searchComplete = this.walk.position() == this.end();
+  }
+
+  // takes back the player's last move (ignored during an automatic search)
+  void undoMove() {
+    if (this.run == null && this.walk.undo()) {
+      this.searchComplete = this.walk.position() == this.end();
+    }
+  }
+
+  // makes the player's last undone move again (ignored during an automatic search)
+  void redoMove() {
+    if (this.run == null && this.walk.redo()) {
+      this.searchComplete = this.walk.position() == this.end();
+    }
+  }
+
+  // iterates the next step of the serach
+  void performSearchStep() {
+    this.performSearchSteps(1);
+  }
+
+  // performs up to the given number of search steps on this thread, stopping early if the
+  // search completes, unless the search runs in the background (see runInBackground)
+  // returns the number of steps performed
+  int performSearchSteps(int count) {
+    if (this.run == null || this.worker != null) {
+      return 0;
+    }
+    int performed = this.run.performSteps(count);
+    this.view.refresh();
+    return performed;
+  }
+
+  // returns the most entries the automatic search has had waiting to be expanded at once
+  int frontierHighWater() {
+    if (this.view == null) {
+      return 0;
+    }
+    return this.view.shown().frontierHighWater;
+  }
+
+  // begins a search from the start to the end with the named algorithm
+  // (see SolverFactory.ALGORITHMS), replaying it from the solution cache if this maze has
+  // been solved with that algorithm before
+  // the search is stepped by performSearchSteps until it is moved into the background
+  void startSearch(String algorithm) {
+    this.stopWorker();
+    this.walk = new ManualWalk(this.grid);
+    this.run = new SearchRun(algorithm, this.grid, this.fingerprint, this.cache);
+    this.view = new SearchView(this.run, this.grid.size());
+    this.searchComplete = false;
+    this.version += 1;
+  }
+
+  // performs search steps until the search is complete
+  void finishSearch() {
+    this.performSearchSteps(Integer.MAX_VALUE);
+  }
+
+  // moves the automatic search onto its own thread, which performs the steps granted to it
+  // (see SearchScheduler.tick); its progress shows after each refreshSearch
+  void runInBackground() {
+    if (this.run != null && this.worker == null) {
+      this.worker = new SearchWorker(this.run);
+      this.worker.start();
+    }
+  }
+
+  // returns the thread running the automatic search, or null if it is not in the background
+  SearchWorker worker() {
+    return this.worker;
+  }
+
+  // pauses the background search, or resumes it if it is paused
+  void togglePause() {
+    if (this.worker != null) {
+      if (this.worker.isPaused()) {
+        this.worker.resume();
+      }
+      else {
+        this.worker.pause();
+      }
+    }
+  }
+
+  // returns whether the background search is paused
+  boolean isPaused() {
+    return this.worker != null && this.worker.isPaused();
+  }
+
+  // stops the background search for good, keeping what it had found
+  void cancelSearch() {
+    if (this.worker != null) {
+      this.worker.cancel();
+    }
+  }
+
+  // returns whether the background search was cancelled
+  boolean isCancelled() {
+    return this.worker != null && this.worker.isCancelled();
+  }
+
+  // cancels the background search, if there is one, and forgets it
+  private void stopWorker() {
+    if (this.worker != null) {
+      this.worker.cancel();
+      this.worker = null;
+    }
+  }
+}
@@ -0,0 +1,556 @@
+import java.awt.Color;
+import javalib.worldimages.ComputedPixelImage;
+import javalib.worldimages.WorldImage;
+import tester.Tester;
+
+// Draws the part of a MazeModel a Camera shows into a pixel image the size of the view,
+// kept between frames
+// zoomed in far enough to show walls, only the tiles in view are drawn, each as a square
+// with its walls; zoomed out further, the view is drawn from a LodRaster, one pixel per tile
+// or one pixel per square of tiles, so a frame never costs more than the view has pixels,
+// however large the maze is
+// the whole view is only drawn when the maze, the search, the display settings or the
+// camera change; otherwise each frame repaints just the tiles the search has expanded or the
+// player has moved between since the previous frame
+// each frame first brings the model up to the search's newest published progress, and draws
+// only that, so a search running on another thread is never drawn half way through a step
+class MazeRenderer {
+  static final Color START_COLOR = Color.GREEN;
+  static final Color END_COLOR = new Color(150, 0, 255);
+  static final Color BACKGROUND = Color.GRAY;
+
+  // the fewest pixels per tile at which tiles are drawn with their walls
+  static final int DETAIL_PIXELS = 4;
+
+  // the number of Colors kept for raster values (a power of two)
+  static final int RASTER_COLORS = 512;
+
+  private MazeModel model;
+  private Camera camera;
+  private ComputedPixelImage image;
+  private LodRaster raster;
+
+  // what the image currently shows
+  private int drawnVersion;
+  private String drawnGradientMode;
+  private boolean drawnShowSeen;
+  private int drawnSeen;
+  private boolean drawnPath;
+  private int drawnPosition;
+  private int drawnCamera;
+
+  // whether the view is drawn from the raster, and whether the raster changed in view
+  private boolean drawnFromRaster;
+  private boolean rasterChanged;
+
+  // the gradient color of every distance, for the gradient mode being shown
+  private Color[] gradientColors;
+
+  // the Color last made for each raster value, by a hash of the value, so drawing from the
+  // raster does not make a Color for every pixel
+  private Color[] rasterColors;
+
+  // draws the whole maze, the given number of pixels per tile
+  MazeRenderer(MazeModel model, int blockSize) {
+    this(model, new Camera(model.width, model.height, Math.max(1, model.width * blockSize),
+        Math.max(1, model.height * blockSize), blockSize));
+  }
+
+  MazeRenderer(MazeModel model, Camera camera) {
+    this.model = model;
+    this.camera = camera;
+    this.image = new ComputedPixelImage(camera.viewWidth, camera.viewHeight);
+    this.raster = new LodRaster(this);
+    this.rasterColors = new Color[RASTER_COLORS];
+    this.drawnVersion = -1;
+  }
+
+  // given the gradient mode and whether seen tiles are shown,
+  // brings the image up to date with the model and the camera and returns it
+  WorldImage render(String gradientMode, boolean showSeen) {
+    this.model.refreshSearch();
+    boolean fromRaster = this.camera.pixelsPerTile() < DETAIL_PIXELS;
+
+    if (this.drawnVersion != this.model.version() || !gradientMode.equals(this.drawnGradientMode)
+        || showSeen != this.drawnShowSeen) {
+      this.updateSettings(gradientMode, showSeen);
+      this.drawAll(fromRaster);
+    }
+    else {
+      this.drawChanges();
+      if (this.drawnCamera != this.camera.stamp() || fromRaster != this.drawnFromRaster
+          || (fromRaster && (this.rasterChanged || this.raster.isIncomplete()))) {
+        this.drawAll(fromRaster);
+      }
+    }
+    return this.image;
+  }
+
+  // records what the image is about to show, for the model as it is now
+  void updateSettings(String gradientMode, boolean showSeen) {
+    this.drawnVersion = this.model.version();
+    this.drawnGradientMode = gradientMode;
+    this.drawnShowSeen = showSeen;
+    this.drawnPosition = this.model.currentPosition();
+    this.gradientColors = this.buildGradientColors(gradientMode);
+    this.raster.invalidate();
+
+    if (this.model.algorithm() != null) {
+      this.drawnSeen = this.model.seenCount();
+      this.drawnPath = this.model.pathLength() > 0;
+    }
+  }
+
+  // draws the whole view, from the tiles or from the raster
+  void drawAll(boolean fromRaster) {
+    this.drawnCamera = this.camera.stamp();
+    this.drawnFromRaster = fromRaster;
+    this.rasterChanged = false;
+    this.fill(0, 0, this.camera.viewWidth, this.camera.viewHeight, BACKGROUND);
+
+    if (fromRaster) {
+      this.drawRaster();
+      return;
+    }
+
+    MazeGrid grid = this.model.grid();
+    int right = Math.min(grid.width, this.camera.left() + this.camera.columns());
+    int bottom = Math.min(grid.height, this.camera.top() + this.camera.rows());
+    for (int y = this.camera.top(); y < bottom; y += 1) {
+      for (int x = this.camera.left(); x < right; x += 1) {
+        this.drawTile(grid.id(x, y));
+      }
+    }
+  }
+
+  // repaints the tiles whose color may have changed since the last frame
+  void drawChanges() {
+    if (this.model.algorithm() != null) {
+      int seenCount = this.model.seenCount();
+      for (int i = this.drawnSeen; i < seenCount; i += 1) {
+        this.repaint(this.model.seenTile(i));
+      }
+      this.drawnSeen = seenCount;
+
+      if (!this.drawnPath && this.model.pathLength() > 0) {
+        for (int tile : this.model.searchPath()) {
+          this.repaint(tile);
+        }
+        this.drawnPath = true;
+      }
+    }
+
+    // a manual move only changes the tile left and the tile entered
+    int position = this.model.currentPosition();
+    if (position != this.drawnPosition) {
+      this.repaint(this.drawnPosition);
+      this.repaint(position);
+      this.drawnPosition = position;
+    }
+  }
+
+  // brings the given tile up to date in the raster, and in the image if it is in view
+  void repaint(int tile) {
+    MazeGrid grid = this.model.grid();
+    this.raster.update(tile);
+    if (this.camera.isVisible(grid.xOf(tile), grid.yOf(tile))) {
+      if (this.drawnFromRaster) {
+        this.rasterChanged = true;
+      }
+      else {
+        this.drawTile(tile);
+      }
+    }
+  }
+
+  // returns the color of every distance for the given gradient mode
+  // (null when the mode shows no gradient)
+  Color[] buildGradientColors(String gradientMode) {
+    int max;
+    if (gradientMode.equals("to start")) {
+      max = this.model.distances().maxToStart();
+    }
+    else if (gradientMode.equals("to end")) {
+      max = this.model.distances().maxToEnd();
+    }
+    else {
+      return null;
+    }
+
+    Color[] colors = new Color[max + 1];
+    for (int distance = 0; distance <= max; distance += 1) {
+      colors[distance] = this.gradientColor(distance, max);
+    }
+    return colors;
+  }
+
+  // given a distance and the maximum distance,
+  // returns the gradient color that represents that distance
+  Color gradientColor(int distance, int maxDistance) {
+    double ratio = (double) distance / Math.max(maxDistance, 1);
+    int red = (int)(255 * ratio);
+    int green = (int)(255 * (1 - ratio));
+    int blue = 0;
+    return new Color(red, green, blue);
+  }
+
+  // returns the color the given tile should be drawn in
+  Color colorOf(int tile) {
+    // Priority: Start/End > Current Location > Path > Tries > Gradient Mode > Default
+    if (tile == 0) {
+      return START_COLOR;
+    }
+    else if (tile == this.model.end()) {
+      return END_COLOR;
+    }
+    else if (tile == this.model.currentPosition()) {
+      return Color.RED;
+    }
+    else if (this.model.isOnPath(tile)) {
+      return Color.BLUE;
+    }
+    else if (this.drawnShowSeen && this.model.wasSeen(tile)) {
+      return Color.CYAN;
+    }
+    else if (this.drawnGradientMode.equals("to start")) {
+      return this.gradientColors[this.model.distances().toStart()[tile]];
+    }
+    else if (this.drawnGradientMode.equals("to end")) {
+      return this.gradientColors[this.model.distances().toEnd()[tile]];
+    }
+    return Color.WHITE;
+  }
+
+  // returns how much showing the given color matters when a pixel stands for several tiles,
+  // in the same order as colorOf picks colors (the most important tile under a pixel wins)
+  static int importance(int rgb) {
+    if (rgb == START_COLOR.getRGB() || rgb == END_COLOR.getRGB()) {
+      return 5;
+    }
+    else if (rgb == Color.RED.getRGB()) {
+      return 4;
+    }
+    else if (rgb == Color.BLUE.getRGB()) {
+      return 3;
+    }
+    else if (rgb == Color.CYAN.getRGB()) {
+      return 2;
+    }
+    else if (rgb == Color.WHITE.getRGB()) {
+      return 0;
+    }
+    return 1;
+  }
+
+  // returns the model drawn
+  MazeModel model() {
+    return this.model;
+  }
+
+  // returns the camera the view is drawn through
+  Camera camera() {
+    return this.camera;
+  }
+
+  // paints the given tile, where it is in the view, with the walls on its west and north sides
+  // (its east and south walls belong to the neighboring tiles, except on the border)
+  void drawTile(int tile) {
+    MazeGrid grid = this.model.grid();
+    int size = this.camera.pixelsPerTile();
+    int left = (grid.xOf(tile) - this.camera.left()) * size;
+    int top = (grid.yOf(tile) - this.camera.top()) * size;
+    int last = size - 1;
+
+    this.fill(left, top, size, size, this.colorOf(tile));
+
+    if (grid.xOf(tile) > 0 && grid.yOf(tile) > 0) {
+      this.fill(left, top, 1, 1, Color.BLACK);
+    }
+    if (grid.xOf(tile) > 0 && !grid.isOpen(tile, MazeGrid.WEST)) {
+      this.fill(left, top, 1, size, Color.BLACK);
+    }
+    if (grid.yOf(tile) > 0 && !grid.isOpen(tile, MazeGrid.NORTH)) {
+      this.fill(left, top, size, 1, Color.BLACK);
+    }
+    if (grid.xOf(tile) == grid.width - 1) {
+      this.fill(left + last, top, 1, size, Color.BLACK);
+    }
+    if (grid.yOf(tile) == grid.height - 1) {
+      this.fill(left, top + last, size, 1, Color.BLACK);
+    }
+  }
+
+  // paints every pixel of the view from the raster: at one or two pixels per tile each tile
+  // is a square of its color, and zoomed out further each pixel takes the color of its square
+  // of tiles
+  void drawRaster() {
+    MazeGrid grid = this.model.grid();
+    int size = this.camera.pixelsPerTile();
+    int level = this.camera.level();
+    int width = Math.min(this.camera.viewWidth,
+        (int) Math.min(Integer.MAX_VALUE,
+            (((long) grid.width - this.camera.left()) * size) >> level));
+    int height = Math.min(this.camera.viewHeight,
+        (int) Math.min(Integer.MAX_VALUE,
+            (((long) grid.height - this.camera.top()) * size) >> level));
+    this.raster.beginFrame();
+
+    for (int pixelY = 0; pixelY < height; pixelY += 1) {
+      int y = this.camera.top() + ((pixelY << level) / size);
+      for (int pixelX = 0; pixelX < width; pixelX += 1) {
+        int x = this.camera.left() + ((pixelX << level) / size);
+        this.image.setPixel(pixelX, pixelY, this.rasterColor(this.raster.rgb(x, y, level)));
+      }
+    }
+  }
+
+  // returns a Color for the given raster value, made again only when another value with the
+  // same hash was shown since
+  Color rasterColor(int rgb) {
+    int slot = (rgb * 0x9E3779B1) >>> (32 - Integer.numberOfTrailingZeros(RASTER_COLORS));
+    Color color = this.rasterColors[slot];
+    if (color == null || color.getRGB() != rgb) {
+      color = new Color(rgb);
+      this.rasterColors[slot] = color;
+    }
+    return color;
+  }
+
+  // paints the part of the given rectangle of pixels inside the view in the given color
+  void fill(int left, int top, int width, int height, Color color) {
+    int right = Math.min(left + width, this.camera.viewWidth);
+    int bottom = Math.min(top + height, this.camera.viewHeight);
+    for (int y = Math.max(top, 0); y < bottom; y += 1) {
+      for (int x = Math.max(left, 0); x < right; x += 1) {
+        this.image.setPixel(x, y, color);
+      }
+    }
+  }
+}
+
+// Represents a maze drawn one pixel per tile, in square chunks of tiles, each with its
+// reductions: level l of a chunk has one pixel per square of 2^l tiles, taking the most
+// important color of the four pixels below it (see MazeRenderer.importance), so the path and
+// the player still show when zoomed far out
+// a chunk is only drawn when it is first asked for, and drawn again when asked for after the
+// maze or the display settings change; at most CHUNKS_PER_FRAME chunks are drawn a frame, so
+// a chunk over the budget keeps showing what it showed before (or the background) until a
+// later frame gets to it, and a frame's cost does not grow with the maze
+// a tile changed by the search or the player is redrawn with its reductions at once, which
+// costs one pixel per level
+class LodRaster {
+  static final int CHUNK_LEVELS = 7;
+  static final int CHUNK = 1 << CHUNK_LEVELS;
+  static final int CHUNKS_PER_FRAME = 8;
+
+  private MazeRenderer renderer;
+  private int[][][] chunks;
+  private int[] chunkStamps;
+  private int stamp;
+  private int drawnThisFrame;
+  private boolean incomplete;
+
+  LodRaster(MazeRenderer renderer) {
+    this.renderer = renderer;
+    MazeGrid grid = renderer.model().grid();
+    int across = (grid.width + CHUNK - 1) / CHUNK;
+    int down = (grid.height + CHUNK - 1) / CHUNK;
+    this.chunks = new int[across * down][][];
+    this.chunkStamps = new int[across * down];
+    this.stamp = 1;
+  }
+
+  // marks every chunk out of date
+  void invalidate() {
+    this.stamp += 1;
+  }
+
+  // starts counting the chunks drawn for a new frame
+  void beginFrame() {
+    this.drawnThisFrame = 0;
+    this.incomplete = false;
+  }
+
+  // returns whether a chunk asked for in the last frame was left out of date
+  boolean isIncomplete() {
+    return this.incomplete;
+  }
+
+  // returns the index of the chunk holding the given tile
+  int chunkOf(int x, int y) {
+    int across = (this.renderer.model().grid().width + CHUNK - 1) / CHUNK;
+    return (y / CHUNK) * across + x / CHUNK;
+  }
+
+  // returns the color of the pixel at the given level standing for the given tile
+  // (levels past the size of a chunk show the chunk's one pixel)
+  int rgb(int x, int y, int level) {
+    int chunk = this.chunkOf(x, y);
+    if (this.chunkStamps[chunk] != this.stamp) {
+      if (this.drawnThisFrame < CHUNKS_PER_FRAME) {
+        this.draw(chunk, x - x % CHUNK, y - y % CHUNK);
+        this.drawnThisFrame += 1;
+      }
+      else {
+        this.incomplete = true;
+      }
+    }
+    if (this.chunks[chunk] == null) {
+      return MazeRenderer.BACKGROUND.getRGB();
+    }
+
+    int shift = Math.min(level, CHUNK_LEVELS);
+    int side = CHUNK >> shift;
+    return this.chunks[chunk][shift][((y % CHUNK) >> shift) * side + ((x % CHUNK) >> shift)];
+  }
+
+  // draws the chunk whose top left tile is given, and its reductions
+  void draw(int chunk, int left, int top) {
+    if (this.chunks[chunk] == null) {
+      this.chunks[chunk] = new int[CHUNK_LEVELS + 1][];
+      for (int level = 0; level <= CHUNK_LEVELS; level += 1) {
+        int side = CHUNK >> level;
+        this.chunks[chunk][level] = new int[side * side];
+      }
+    }
+    this.chunkStamps[chunk] = this.stamp;
+
+    MazeGrid grid = this.renderer.model().grid();
+    int[] pixels = this.chunks[chunk][0];
+    int right = Math.min(left + CHUNK, grid.width);
+    int bottom = Math.min(top + CHUNK, grid.height);
+    for (int y = top; y < bottom; y += 1) {
+      for (int x = left; x < right; x += 1) {
+        pixels[(y - top) * CHUNK + (x - left)] =
+            this.renderer.colorOf(grid.id(x, y)).getRGB();
+      }
+    }
+
+    for (int level = 1; level <= CHUNK_LEVELS; level += 1) {
+      int side = CHUNK >> level;
+      for (int y = 0; y < side; y += 1) {
+        for (int x = 0; x < side; x += 1) {
+          this.reduce(chunk, level, x, y);
+        }
+      }
+    }
+  }
+
+  // redraws the given tile and its reductions if its chunk is up to date
+  void update(int tile) {
+    MazeGrid grid = this.renderer.model().grid();
+    int x = grid.xOf(tile);
+    int y = grid.yOf(tile);
+    int chunk = this.chunkOf(x, y);
+    if (this.chunkStamps[chunk] != this.stamp) {
+      return;
+    }
+
+    x = x % CHUNK;
+    y = y % CHUNK;
+    this.chunks[chunk][0][y * CHUNK + x] = this.renderer.colorOf(tile).getRGB();
+    for (int level = 1; level <= CHUNK_LEVELS; level += 1) {
+      x = x >> 1;
+      y = y >> 1;
+      this.reduce(chunk, level, x, y);
+    }
+  }
+
+  // sets the given pixel of the given level of the chunk to the most important of the four
+  // pixels below it (the top left one among equals)
+  void reduce(int chunk, int level, int x, int y) {
+    int[] below = this.chunks[chunk][level - 1];
+    int side = CHUNK >> (level - 1);
+    int first = (y * 2) * side + x * 2;
+    int best = below[first];
+    int[] others = {below[first + 1], below[first + side], below[first + side + 1]};
+    for (int rgb : others) {
+      if (MazeRenderer.importance(rgb) > MazeRenderer.importance(best)) {
+        best = rgb;
+      }
+    }
+    this.chunks[chunk][level][y * (CHUNK >> level) + x] = best;
+  }
+}
+
+class ExamplesMazeRenderer {
+
+  // returns the pixels of the given image
+  int[] pixels(WorldImage image) {
+    ComputedPixelImage pixels = (ComputedPixelImage) image;
+    int[] rgb = new int[pixels.w * pixels.h];
+    for (int y = 0; y < pixels.h; y += 1) {
+      for (int x = 0; x < pixels.w; x += 1) {
+        rgb[y * pixels.w + x] = pixels.getPixel(x, y).getRGB();
+      }
+    }
+    return rgb;
+  }
+
+  // a renderer of the given model through a camera of its own
+  MazeRenderer through(MazeModel model, int viewWidth, int viewHeight, int pixelsPerTile) {
+    return new MazeRenderer(model, new Camera(model.width, model.height, viewWidth, viewHeight,
+        pixelsPerTile));
+  }
+
+  // drawing a view a frame at a time, with the camera and the player moving, ends up the
+  // same as drawing it at once
+  void testIncremental(Tester t) {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(60, 40, 4));
+    MazeRenderer renderer = this.through(model, 120, 80, 4);
+    renderer.render("to end", true);
+    int[] dirs = {MazeGrid.EAST, MazeGrid.SOUTH, MazeGrid.EAST, MazeGrid.SOUTH};
+    for (int dir : dirs) {
+      model.move(dir);
+      renderer.render("to end", true);
+    }
+    renderer.camera().scroll(1, 1);
+    renderer.render("to end", true);
+    model.move(MazeGrid.NORTH);
+
+    MazeRenderer fresh = this.through(model, 120, 80, 4);
+    fresh.camera().scroll(1, 1);
+    t.checkExpect(this.pixels(renderer.render("to end", true)),
+        this.pixels(fresh.render("to end", true)));
+  }
+
+  // zoomed out, the raster shows each tile's color, and the most important color of each
+  // square of tiles further out
+  void testRaster(Tester t) {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(300, 200, 9));
+    MazeRenderer renderer = this.through(model, 150, 100, 1);
+    ComputedPixelImage image = (ComputedPixelImage) renderer.render("normal", true);
+    t.checkExpect(image.getPixel(0, 0), MazeRenderer.START_COLOR);
+    t.checkExpect(image.getPixel(149, 99), Color.WHITE);
+
+    model.move(MazeGrid.EAST);
+    model.move(MazeGrid.SOUTH);
+    int position = model.currentPosition();
+    int x = model.grid().xOf(position);
+    int y = model.grid().yOf(position);
+    image = (ComputedPixelImage) renderer.render("normal", true);
+    t.checkExpect(image.getPixel(x, y), Color.RED);
+
+    renderer.camera().zoomOut();
+    image = (ComputedPixelImage) renderer.render("normal", true);
+    t.checkExpect(renderer.camera().describe(), "1:2");
+    t.checkExpect(image.getPixel(0, 0), MazeRenderer.START_COLOR);
+    t.checkExpect(image.getPixel(x / 2, y / 2),
+        x / 2 == 0 && y / 2 == 0 ? MazeRenderer.START_COLOR : Color.RED);
+    t.checkExpect(image.getPixel(149, 99), MazeRenderer.END_COLOR);
+  }
+
+  // a frame draws at most a budget of chunks, and later frames finish the rest
+  void testChunkBudget(Tester t) {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(2000, 1000, 1));
+    MazeRenderer renderer = this.through(model, 250, 125, 1);
+    renderer.camera().fit();
+    ComputedPixelImage image = (ComputedPixelImage) renderer.render("normal", false);
+    t.checkExpect(image.getPixel(249, 124), MazeRenderer.BACKGROUND);
+    for (int frame = 0; frame < 20; frame += 1) {
+      image = (ComputedPixelImage) renderer.render("normal", false);
+    }
+    t.checkExpect(image.getPixel(249, 124), MazeRenderer.END_COLOR);
+    t.checkExpect(image.getPixel(0, 0), MazeRenderer.START_COLOR);
+  }
+}
@@ -0,0 +1,462 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import tester.Tester;
+
+// Serves distance, path and search queries about one maze over HTTP on the local machine
+//   GET  /info                                  width height
+//   GET  /distance?from=<tile>&to=<tile>        the number of steps between the tiles
+//   GET  /path?from=<tile>&to=<tile>            the tiles from one to the other
+//   GET  /solve?algo=<algorithm>&from=<tile>&to=<tile>
+//                                               algorithm, path length, tiles expanded, ns
+//                                               (repeated searches come from a SolutionCache)
+//   GET  /cache                                 the hits and misses of that cache
+//   POST /batch                                 one query per line ("distance 3 17",
+//                                               "path 3 17", "solve bfs 3 17"), answered
+//                                               one line each in the same order
+// the maze is a snapshot that is never changed once served, so every request reads it
+// without locking; each search gets its own solver, so searches share nothing but the
+// synchronized cache of finished ones
+// requests run on virtual threads where the JVM has them (Java 21 and later) and on a
+// cached thread pool otherwise
+class MazeServer {
+  private MazeSnapshot snapshot;
+  private HttpServer server;
+  private ExecutorService executor;
+
+  // serves the given snapshot on the given port of the loopback address (0 picks a free port)
+  MazeServer(MazeSnapshot snapshot, int port) throws IOException {
+    // the JDK server waits to fill packets unless told not to, which adds a delayed
+    // acknowledgement (tens of milliseconds) to most small answers
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    this.snapshot = snapshot;
+    this.server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    this.server.createContext("/", new QueryHandler(snapshot));
+    this.executor = newExecutor();
+    this.server.setExecutor(this.executor);
+  }
+
+  // returns an executor that runs each task on a new virtual thread if the JVM supports them,
+  // or on a cached pool of platform threads if it does not
+  static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    }
+    catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  // starts answering requests
+  void start() {
+    this.server.start();
+  }
+
+  // stops answering requests, letting those under way finish
+  void stop() {
+    this.server.stop(0);
+    this.executor.shutdown();
+  }
+
+  // returns the port this server listens on
+  int port() {
+    return this.server.getAddress().getPort();
+  }
+}
+
+// Represents a maze that is only read once it is served, with its path index
+class MazeSnapshot {
+  final MazeGrid grid;
+  final PathIndex index;
+  final long fingerprint;
+  final SolutionCache cache;
+
+  // indexes the given maze, which must not be changed afterwards
+  MazeSnapshot(MazeGrid grid) {
+    this.grid = grid;
+    this.index = new PathIndex(grid);
+    this.fingerprint = grid.fingerprint();
+    this.cache = new SolutionCache(SolutionCache.DEFAULT_BUDGET);
+  }
+
+  // answers one query, given as a command and its arguments
+  String answer(String[] query) {
+    if (query.length == 3 && query[0].equals("distance")) {
+      return Integer.toString(this.index.distance(this.tile(query[1]), this.tile(query[2])));
+    }
+    else if (query.length == 3 && query[0].equals("path")) {
+      int[] path = this.index.path(this.tile(query[1]), this.tile(query[2]));
+      StringBuilder tiles = new StringBuilder();
+      for (int i = 0; i < path.length; i += 1) {
+        if (i > 0) {
+          tiles.append(' ');
+        }
+        tiles.append(path[i]);
+      }
+      return tiles.toString();
+    }
+    else if (query.length == 4 && query[0].equals("solve")) {
+      SolveReport report = new SolverFactory().solve(query[1], this.grid, this.fingerprint,
+          this.tile(query[2]), this.tile(query[3]), this.cache);
+      return report.algorithm + " " + report.pathLength + " " + report.nodesExpanded + " "
+          + report.nanos;
+    }
+    else if (query.length == 1 && query[0].equals("info")) {
+      return this.grid.width + " " + this.grid.height;
+    }
+    else if (query.length == 1 && query[0].equals("cache")) {
+      return this.cache.describe();
+    }
+    throw new IllegalArgumentException("Unknown query: " + String.join(" ", query));
+  }
+
+  // returns the tile with the given id, checking that it is in the maze
+  int tile(String id) {
+    int tile = Integer.parseInt(id);
+    if (tile < 0 || tile >= this.grid.size()) {
+      throw new IllegalArgumentException("No tile " + id);
+    }
+    return tile;
+  }
+}
+
+// Turns HTTP requests into queries on a snapshot
+class QueryHandler implements HttpHandler {
+  private MazeSnapshot snapshot;
+
+  QueryHandler(MazeSnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  // answers the request, or reports why it could not be answered: a bad request with 400,
+  // and any other failure with 500 (the exchange is always closed, so the client never
+  // waits on a dropped connection)
+  public void handle(HttpExchange exchange) throws IOException {
+    try {
+      int status = 200;
+      String body;
+      try {
+        body = this.respond(exchange);
+      }
+      catch (IllegalArgumentException e) {
+        status = 400;
+        body = e.getMessage();
+      }
+      catch (RuntimeException e) {
+        status = 500;
+        body = "Internal error: " + e;
+      }
+
+      byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  // returns the answer to the request
+  String respond(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    HashMap<String, String> params = this.parameters(exchange.getRequestURI().getRawQuery());
+
+    if (path.equals("/batch")) {
+      StringBuilder answers = new StringBuilder();
+      for (String line : this.readBody(exchange).split("\n")) {
+        if (!line.isBlank()) {
+          if (answers.length() > 0) {
+            answers.append('\n');
+          }
+          answers.append(this.snapshot.answer(line.trim().split("\\s+")));
+        }
+      }
+      return answers.toString();
+    }
+    else if (path.equals("/info") || path.equals("/cache")) {
+      return this.snapshot.answer(new String[] {path.substring(1)});
+    }
+    else if (path.equals("/distance") || path.equals("/path")) {
+      return this.snapshot.answer(new String[] {path.substring(1), this.param(params, "from"),
+          this.param(params, "to")});
+    }
+    else if (path.equals("/solve")) {
+      return this.snapshot.answer(new String[] {"solve", params.getOrDefault("algo", "bfs"),
+          this.param(params, "from"), this.param(params, "to")});
+    }
+    throw new IllegalArgumentException("Unknown request: " + path);
+  }
+
+  // returns the named parameter, which must be present
+  String param(HashMap<String, String> params, String name) {
+    if (!params.containsKey(name)) {
+      throw new IllegalArgumentException("Missing parameter " + name);
+    }
+    return params.get(name);
+  }
+
+  // reads the parameters of a query string such as "from=3&to=17"
+  HashMap<String, String> parameters(String query) {
+    HashMap<String, String> params = new HashMap<String, String>();
+    if (query != null) {
+      for (String pair : query.split("&")) {
+        int equals = pair.indexOf('=');
+        if (equals > 0) {
+          params.put(pair.substring(0, equals), pair.substring(equals + 1));
+        }
+      }
+    }
+    return params;
+  }
+
+  // reads the whole body of the request
+  String readBody(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
+
+// Sends batches of random distance queries to a MazeServer from several threads at once,
+// and reports the throughput and latency it saw
+class MazeLoadClient {
+  private HttpClient client;
+  private URI base;
+
+  // sends queries to the server on the given local port
+  MazeLoadClient(int port) {
+    this.client = HttpClient.newHttpClient();
+    this.base = URI.create("http://127.0.0.1:" + port);
+  }
+
+  // sends one GET request and returns the body of the answer
+  String get(String path) throws IOException, InterruptedException {
+    return this.send(HttpRequest.newBuilder(this.base.resolve(path)).GET().build());
+  }
+
+  // posts the given queries as one batch and returns the answers, one per query
+  String[] batch(String queries) throws IOException, InterruptedException {
+    return this.send(HttpRequest.newBuilder(this.base.resolve("/batch"))
+        .POST(HttpRequest.BodyPublishers.ofString(queries)).build()).split("\n");
+  }
+
+  // sends the given request, returning the body of a successful answer
+  String send(HttpRequest request) throws IOException, InterruptedException {
+    HttpResponse<String> response = this.client.send(request,
+        HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      throw new IllegalArgumentException(response.body().trim());
+    }
+    return response.body().trim();
+  }
+
+  // sends the given number of requests, each a batch of the given number of random distance
+  // queries, spread over the given number of threads
+  LoadReport run(int threads, int requests, int batchSize, long seed)
+      throws InterruptedException {
+    String[] info;
+    try {
+      info = this.get("/info").split(" ");
+    }
+    catch (IOException e) {
+      throw new IllegalArgumentException("Cannot reach the server: " + e.getMessage());
+    }
+    int tiles = Integer.parseInt(info[0]) * Integer.parseInt(info[1]);
+
+    long[] latencies = new long[requests];
+    ArrayList<Thread> workers = new ArrayList<Thread>();
+    int[] failures = new int[threads];
+    long begin = System.nanoTime();
+
+    for (int worker = 0; worker < threads; worker += 1) {
+      LoadWorker task = new LoadWorker(this, worker, threads, tiles, batchSize, seed,
+          latencies, failures);
+      Thread thread = new Thread(task);
+      workers.add(thread);
+      thread.start();
+    }
+    for (Thread thread : workers) {
+      thread.join();
+    }
+
+    int failed = 0;
+    for (int count : failures) {
+      failed += count;
+    }
+    return new LoadReport(requests, batchSize, System.nanoTime() - begin, latencies, failed);
+  }
+}
+
+// Sends every threads-th request of a load run, starting from its own index
+class LoadWorker implements Runnable {
+  private MazeLoadClient client;
+  private int index;
+  private int threads;
+  private int tiles;
+  private int batchSize;
+  private long seed;
+  private long[] latencies;
+  private int[] failures;
+
+  LoadWorker(MazeLoadClient client, int index, int threads, int tiles, int batchSize, long seed,
+      long[] latencies, int[] failures) {
+    this.client = client;
+    this.index = index;
+    this.threads = threads;
+    this.tiles = tiles;
+    this.batchSize = batchSize;
+    this.seed = seed;
+    this.latencies = latencies;
+    this.failures = failures;
+  }
+
+  // sends this worker's share of the requests, timing each one
+  public void run() {
+    SplittableRandom random = new SplittableRandom(this.seed + this.index);
+    StringBuilder queries = new StringBuilder();
+
+    for (int request = this.index; request < this.latencies.length; request += this.threads) {
+      queries.setLength(0);
+      for (int i = 0; i < this.batchSize; i += 1) {
+        queries.append("distance ").append(random.nextInt(this.tiles)).append(' ')
+            .append(random.nextInt(this.tiles)).append('\n');
+      }
+
+      // a failed request is counted, and its latency left out of the percentiles
+      long start = System.nanoTime();
+      try {
+        this.client.batch(queries.toString());
+      }
+      catch (IOException | IllegalArgumentException e) {
+        this.failures[this.index] += 1;
+        this.latencies[request] = -1;
+        continue;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      this.latencies[request] = System.nanoTime() - start;
+    }
+  }
+}
+
+// Represents the throughput and latency seen by a load run
+class LoadReport {
+  final int requests;
+  final int batchSize;
+  final long nanos;
+  final int failed;
+  final long p50;
+  final long p99;
+
+  LoadReport(int requests, int batchSize, long nanos, long[] latencies, int failed) {
+    this.requests = requests;
+    this.batchSize = batchSize;
+    this.nanos = nanos;
+    this.failed = failed;
+
+    // failed requests are marked with a latency of -1
+    long[] sorted = Arrays.stream(latencies).filter(latency -> latency >= 0).toArray();
+    Arrays.sort(sorted);
+    this.p50 = this.percentile(sorted, 50);
+    this.p99 = this.percentile(sorted, 99);
+  }
+
+  // returns the latency the given percentage of the sorted latencies are at or below
+  long percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+    return sorted[Math.max(rank, 0)];
+  }
+
+  // returns a one line summary of this report
+  String describe() {
+    double seconds = this.nanos / 1e9;
+    return this.requests + " requests of " + this.batchSize + " queries in "
+        + String.format("%.2f", seconds) + " s: "
+        + String.format("%.0f", this.requests / seconds) + " requests/s, "
+        + String.format("%.0f", this.requests * (double) this.batchSize / seconds)
+        + " queries/s, p50 " + String.format("%.2f", this.p50 / 1e6) + " ms, p99 "
+        + String.format("%.2f", this.p99 / 1e6) + " ms, " + this.failed + " failed";
+  }
+}
+
+class ExamplesMazeServer {
+
+  // queries over HTTP get the same answers as the snapshot gives directly
+  void testQueries(Tester t) throws IOException, InterruptedException {
+    MazeSnapshot snapshot = new MazeSnapshot(new MazeBuilder().buildMaze(30, 20, 6));
+    MazeServer server = new MazeServer(snapshot, 0);
+    server.start();
+    MazeLoadClient client = new MazeLoadClient(server.port());
+
+    t.checkExpect(client.get("/info"), "30 20");
+    t.checkExpect(client.get("/distance?from=0&to=599"),
+        Integer.toString(snapshot.index.distance(0, 599)));
+    t.checkExpect(client.get("/path?from=5&to=5"), "5");
+    t.checkExpect(client.get("/solve?algo=astar&from=0&to=599").split(" ")[1],
+        Integer.toString(snapshot.index.distance(0, 599) + 1));
+    t.checkExpect(client.batch("distance 1 2\npath 1 2\n"),
+        new String[] {snapshot.answer(new String[] {"distance", "1", "2"}),
+            snapshot.answer(new String[] {"path", "1", "2"})});
+    client.get("/solve?algo=astar&from=0&to=599");
+    t.checkExpect(client.get("/cache").startsWith("solution cache: 1 hits, 1 misses"), true);
+    t.checkException(new IllegalArgumentException("No tile 600"), client, "get",
+        "/distance?from=0&to=600");
+
+    LoadReport report = client.run(4, 40, 5, 1);
+    t.checkExpect(report.failed, 0);
+    t.checkExpect(report.p99 >= report.p50, true);
+    server.stop();
+  }
+
+  // a request that fails for any other reason than a bad query is still answered, with 500
+  void testInternalError(Tester t) throws IOException, InterruptedException {
+    MazeServer server = new MazeServer(null, 0);
+    server.start();
+    String answer = "";
+    try {
+      new MazeLoadClient(server.port()).get("/info");
+    }
+    catch (IllegalArgumentException e) {
+      answer = e.getMessage();
+    }
+    t.checkExpect(answer.startsWith("Internal error: java.lang.NullPointerException"), true);
+    server.stop();
+  }
+
+  // failed requests are counted, but their latencies are left out of the percentiles
+  void testFailedLatencies(Tester t) {
+    LoadReport report = new LoadReport(4, 1, 1000, new long[] {-1, 30, 10, -1}, 2);
+    t.checkExpect(report.failed, 2);
+    t.checkExpect(report.p50, 10L);
+    t.checkExpect(report.p99, 30L);
+  }
+}
@@ -0,0 +1,293 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import tester.Tester;
+
+// A registry of where generation and search spend their time, shared by the whole program
+// it is off until enabled; while off, instrumented code pays one flag check per phase and
+// records nothing
+// while on, every phase records its wall time and the bytes its thread allocated, every
+// completed search records its cost, and both are also emitted as JFR events
+class Metrics {
+  private static volatile boolean enabled = false;
+  private static final Map<String, PhaseStats> PHASES = new LinkedHashMap<String, PhaseStats>();
+  private static final Map<String, SearchStats> SEARCHES =
+      new LinkedHashMap<String, SearchStats>();
+
+  // returns whether metrics are being recorded
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  // starts or stops recording metrics
+  static void setEnabled(boolean on) {
+    enabled = on;
+  }
+
+  // forgets everything recorded so far
+  static synchronized void reset() {
+    PHASES.clear();
+    SEARCHES.clear();
+  }
+
+  // begins timing the named phase on the current thread
+  // (returns a phase that records nothing while metrics are off)
+  static Phase begin(String name) {
+    if (!enabled) {
+      return Phase.NONE;
+    }
+    return new Phase(name);
+  }
+
+  // adds one run of the named phase to its totals
+  static synchronized void recordPhase(String name, long nanos, long allocatedBytes) {
+    PhaseStats stats = PHASES.get(name);
+    if (stats == null) {
+      stats = new PhaseStats(name);
+      PHASES.put(name, stats);
+    }
+    stats.add(nanos, allocatedBytes);
+  }
+
+  // records a completed search, replacing the last one recorded for the same algorithm
+  static void recordSearch(String algorithm, int nodesExpanded, int frontierHighWater,
+      int pathLength, long nanos) {
+    if (!enabled) {
+      return;
+    }
+
+    synchronized (Metrics.class) {
+      SEARCHES.put(algorithm, new SearchStats(algorithm, nodesExpanded, frontierHighWater,
+          pathLength, nanos));
+    }
+
+    SearchEvent event = new SearchEvent();
+    event.algorithm = algorithm;
+    event.nodesExpanded = nodesExpanded;
+    event.frontierHighWater = frontierHighWater;
+    event.pathLength = pathLength;
+    event.searchNanos = nanos;
+    event.commit();
+  }
+
+  // returns the totals of the named phase, or null if it has not been recorded
+  static synchronized PhaseStats phase(String name) {
+    return PHASES.get(name);
+  }
+
+  // returns the last search recorded for the named algorithm, or null if there is none
+  static synchronized SearchStats search(String algorithm) {
+    return SEARCHES.get(algorithm);
+  }
+
+  // returns one line describing each phase and each search recorded, phases first
+  static synchronized ArrayList<String> describe() {
+    ArrayList<String> lines = new ArrayList<String>();
+    for (PhaseStats stats : PHASES.values()) {
+      lines.add(stats.describe());
+    }
+    for (SearchStats stats : SEARCHES.values()) {
+      lines.add(stats.describe());
+    }
+    return lines;
+  }
+
+  // returns the number of bytes the current thread has allocated so far,
+  // or 0 where the JVM cannot say
+  static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  // returns the number of garbage collections so far, over every collector
+  static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(collector.getCollectionCount(), 0);
+    }
+    return count;
+  }
+
+  // returns the milliseconds spent in garbage collection so far, over every collector
+  static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(collector.getCollectionTime(), 0);
+    }
+    return millis;
+  }
+}
+
+// Represents one run of a phase being timed
+class Phase {
+  // the phase handed out while metrics are off
+  static final Phase NONE = new Phase();
+
+  private String name;
+  private long startNanos;
+  private long startBytes;
+  private PhaseEvent event;
+
+  // a phase that records nothing
+  private Phase() {
+    this.name = null;
+  }
+
+  // starts timing the named phase now
+  Phase(String name) {
+    this.name = name;
+    this.event = new PhaseEvent();
+    this.event.phase = name;
+    this.event.begin();
+    this.startBytes = Metrics.allocatedBytes();
+    this.startNanos = System.nanoTime();
+  }
+
+  // stops timing this phase and records it
+  void end() {
+    if (this.name == null) {
+      return;
+    }
+
+    long nanos = System.nanoTime() - this.startNanos;
+    long bytes = Metrics.allocatedBytes() - this.startBytes;
+    Metrics.recordPhase(this.name, nanos, bytes);
+    this.event.allocatedBytes = bytes;
+    this.event.commit();
+  }
+}
+
+// Represents the totals of every run of one phase
+class PhaseStats {
+  final String name;
+  int count;
+  long totalNanos;
+  long totalBytes;
+
+  PhaseStats(String name) {
+    this.name = name;
+  }
+
+  // adds one run to these totals
+  void add(long nanos, long bytes) {
+    this.count += 1;
+    this.totalNanos += nanos;
+    this.totalBytes += bytes;
+  }
+
+  // returns a one line summary of these totals
+  String describe() {
+    return this.name + ": " + this.count + "x, " + String.format("%.2f", this.totalNanos / 1e6)
+        + " ms, " + String.format("%.1f", this.totalBytes / 1048576.0) + " MB allocated";
+  }
+}
+
+// Represents what one completed search cost
+class SearchStats {
+  final String algorithm;
+  final int nodesExpanded;
+  final int frontierHighWater;
+  final int pathLength;
+  final long nanos;
+
+  SearchStats(String algorithm, int nodesExpanded, int frontierHighWater, int pathLength,
+      long nanos) {
+    this.algorithm = algorithm;
+    this.nodesExpanded = nodesExpanded;
+    this.frontierHighWater = frontierHighWater;
+    this.pathLength = pathLength;
+    this.nanos = nanos;
+  }
+
+  // returns a one line summary of this search
+  String describe() {
+    return this.algorithm + ": " + this.nodesExpanded + " expanded, frontier peak "
+        + this.frontierHighWater + ", path " + this.pathLength + " tiles, "
+        + String.format("%.2f", this.nanos / 1e6) + " ms";
+  }
+}
+
+// A JFR event recording one run of a generation or search phase
+@Name("maze.Phase")
+@Label("Maze Phase")
+@Category("Maze")
+class PhaseEvent extends jdk.jfr.Event {
+  @Label("Phase")
+  String phase;
+
+  @Label("Allocated Bytes")
+  long allocatedBytes;
+}
+
+// A JFR event recording a completed search
+@Name("maze.Search")
+@Label("Maze Search")
+@Category("Maze")
+class SearchEvent extends jdk.jfr.Event {
+  @Label("Algorithm")
+  String algorithm;
+
+  @Label("Nodes Expanded")
+  int nodesExpanded;
+
+  @Label("Frontier High-Water Mark")
+  int frontierHighWater;
+
+  @Label("Path Length")
+  int pathLength;
+
+  @Label("Search Time (ns)")
+  long searchNanos;
+}
+
+class ExamplesMetrics {
+
+  // nothing is recorded while metrics are off, and every phase of a build is while they are on
+  void testPhases(Tester t) {
+    Metrics.reset();
+    Metrics.setEnabled(false);
+    new MazeBuilder().buildMaze(30, 30, 1);
+    t.checkExpect(Metrics.phase("buildEdges"), null);
+    t.checkExpect(Metrics.begin("anything"), Phase.NONE);
+
+    Metrics.setEnabled(true);
+    new MazeBuilder().buildMaze(30, 30, 1);
+    new MazeBuilder().buildMaze(30, 30, 2);
+    t.checkExpect(Metrics.phase("buildGrid").count, 2);
+    t.checkExpect(Metrics.phase("buildEdges").count, 2);
+    t.checkExpect(Metrics.phase("createTree").count, 2);
+    t.checkExpect(Metrics.phase("connect").count, 2);
+    t.checkExpect(Metrics.phase("buildEdges").totalBytes > 0, true);
+    Metrics.setEnabled(false);
+    Metrics.reset();
+  }
+
+  // a finished search records how much it expanded and how large its frontier grew
+  void testSearch(Tester t) {
+    Metrics.reset();
+    Metrics.setEnabled(true);
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(40, 40, 3));
+    model.startSearch("bfs");
+    model.finishSearch();
+    SearchStats stats = Metrics.search("bfs");
+
+    t.checkExpect(stats.nodesExpanded, model.seenCount());
+    t.checkExpect(stats.pathLength, model.pathLength());
+    t.checkExpect(stats.frontierHighWater, model.frontierHighWater());
+    t.checkExpect(stats.frontierHighWater > 1, true);
+    t.checkExpect(Metrics.describe().size(), 5);
+    Metrics.setEnabled(false);
+    Metrics.reset();
+  }
+}
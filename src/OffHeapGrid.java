@@ -0,0 +1,454 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+import tester.Tester;
+
+// Represents a block of memory outside the Java heap, addressed by long offsets
+// it is made of direct buffers of up to 1 GB each (a single buffer is indexed by an int),
+// so it can hold far more than the 2^31 elements of a Java array, and the garbage collector
+// never scans or copies it
+// ints and longs are read at offsets that are multiples of their size, so none straddles
+// two buffers
+class OffHeapArray {
+  static final int REGION_SHIFT = 30;
+
+  final long length;
+  private int shift;
+  private long mask;
+  private ByteBuffer[] regions;
+
+  // allocates the given number of bytes, all zero
+  OffHeapArray(long length) {
+    this(length, REGION_SHIFT);
+  }
+
+  // allocates the given number of bytes, all zero, in buffers of 2^shift bytes
+  // (small buffers let tests cross from one to the next)
+  OffHeapArray(long length, int shift) {
+    if (length < 0) {
+      throw new IllegalArgumentException("Length cannot be negative");
+    }
+    if (shift < 3 || shift > REGION_SHIFT) {
+      throw new IllegalArgumentException("Region size must be from 2^3 to 2^30 bytes");
+    }
+    this.length = length;
+    this.shift = shift;
+    this.mask = (1L << shift) - 1;
+
+    int count = (int) ((length + this.mask) >>> shift);
+    this.regions = new ByteBuffer[count];
+    for (int i = 0; i < count; i += 1) {
+      long size = Math.min(1L << shift, length - ((long) i << shift));
+      this.regions[i] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  // returns the byte at the given offset
+  byte getByte(long offset) {
+    return this.regions[(int) (offset >>> this.shift)].get((int) (offset & this.mask));
+  }
+
+  // replaces the byte at the given offset
+  void putByte(long offset, byte value) {
+    this.regions[(int) (offset >>> this.shift)].put((int) (offset & this.mask), value);
+  }
+
+  // returns the index-th int
+  int getInt(long index) {
+    long offset = index << 2;
+    return this.regions[(int) (offset >>> this.shift)].getInt((int) (offset & this.mask));
+  }
+
+  // replaces the index-th int
+  void putInt(long index, int value) {
+    long offset = index << 2;
+    this.regions[(int) (offset >>> this.shift)].putInt((int) (offset & this.mask), value);
+  }
+
+  // returns the index-th long
+  long getLong(long index) {
+    long offset = index << 3;
+    return this.regions[(int) (offset >>> this.shift)].getLong((int) (offset & this.mask));
+  }
+
+  // replaces the index-th long
+  void putLong(long index, long value) {
+    long offset = index << 3;
+    this.regions[(int) (offset >>> this.shift)].putLong((int) (offset & this.mask), value);
+  }
+}
+
+// Represents the walls of a maze held outside the Java heap, for mazes with more tiles than
+// a MazeGrid can index
+// walls are packed two bits per tile exactly as MazeFile stores them: the first bit is set
+// when the tile is open to the east, the second when it is open to the south
+// tiles are identified by their row-major index, y * width + x, as a long
+class OffHeapGrid {
+  final int width;
+  final int height;
+  private OffHeapArray walls;
+
+  // a grid of the given size with every wall closed
+  OffHeapGrid(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Maze dimensions cannot be negative");
+    }
+    this.width = width;
+    this.height = height;
+    this.walls = new OffHeapArray((((long) width * height + 31) >>> 5) << 3);
+  }
+
+  // returns the number of tiles in this grid
+  long size() {
+    return (long) this.width * this.height;
+  }
+
+  // returns the number of bytes this grid holds off the heap
+  long bytes() {
+    return this.walls.length;
+  }
+
+  // returns the two wall bits of the tile with the given id
+  int bits(long id) {
+    return (this.walls.getByte(id >>> 2) >>> ((id & 3) << 1)) & 3;
+  }
+
+  // returns whether the tile with the given id is open in the given direction
+  boolean isOpen(long id, int dir) {
+    if (dir == MazeGrid.EAST) {
+      return (this.bits(id) & MazeGrid.EAST_BIT) != 0;
+    }
+    else if (dir == MazeGrid.SOUTH) {
+      return (this.bits(id) & MazeGrid.SOUTH_BIT) != 0;
+    }
+    else if (dir == MazeGrid.WEST) {
+      return id % this.width != 0 && (this.bits(id - 1) & MazeGrid.EAST_BIT) != 0;
+    }
+    else if (dir == MazeGrid.NORTH) {
+      return id >= this.width && (this.bits(id - this.width) & MazeGrid.SOUTH_BIT) != 0;
+    }
+    throw new IllegalArgumentException("Invalid direction: " + dir);
+  }
+
+  // returns the id of the tile next to the given one in the given direction
+  // (does not check whether that tile is inside the maze)
+  long neighbor(long id, int dir) {
+    if (dir == MazeGrid.EAST) {
+      return id + 1;
+    }
+    else if (dir == MazeGrid.SOUTH) {
+      return id + this.width;
+    }
+    else if (dir == MazeGrid.WEST) {
+      return id - 1;
+    }
+    else {
+      return id - this.width;
+    }
+  }
+
+  // sets the given wall bits (MazeGrid.EAST_BIT and MazeGrid.SOUTH_BIT) of the given tile
+  void open(long id, int bits) {
+    long offset = id >>> 2;
+    this.walls.putByte(offset, (byte) (this.walls.getByte(offset) | (bits << ((id & 3) << 1))));
+  }
+}
+
+// Collects the rows of a maze into an OffHeapGrid, so StreamingMazeBuilder can build mazes
+// larger than the heap could hold
+class OffHeapRowSink implements IRowSink {
+  private OffHeapGrid grid;
+  private long next;
+
+  // starts a grid of the given size
+  public void begin(int width, int height, long seed) {
+    this.grid = new OffHeapGrid(width, height);
+    this.next = 0;
+  }
+
+  // opens the walls of the next row of the grid
+  public void acceptRow(byte[] walls) {
+    for (int x = 0; x < walls.length; x += 1) {
+      if (walls[x] != 0) {
+        this.grid.open(this.next + x, walls[x]);
+      }
+    }
+    this.next += walls.length;
+  }
+
+  // nothing is left to do
+  public void end() {
+    // every row went straight into the grid
+  }
+
+  // returns the grid collected
+  OffHeapGrid grid() {
+    return this.grid;
+  }
+}
+
+// A first in first out queue of longs held outside the Java heap, in chunks that are
+// allocated as it grows and dropped as it drains
+// the last chunk dropped is kept for reuse, since a queue that holds steady at a chunk or
+// two would otherwise allocate a new direct buffer every 2^17 values
+class OffHeapLongQueue {
+  static final int CHUNK_LONGS = 1 << 17;
+
+  private ArrayDeque<ByteBuffer> chunks;
+  private ByteBuffer spare;
+  private int head;
+  private int tail;
+  private long size;
+  private long peakBytes;
+
+  OffHeapLongQueue() {
+    this.chunks = new ArrayDeque<ByteBuffer>();
+    this.tail = CHUNK_LONGS;
+  }
+
+  // adds the given value to the back of the queue
+  void add(long value) {
+    if (this.tail == CHUNK_LONGS) {
+      if (this.spare == null) {
+        this.chunks.addLast(
+            ByteBuffer.allocateDirect(CHUNK_LONGS << 3).order(ByteOrder.nativeOrder()));
+      }
+      else {
+        this.chunks.addLast(this.spare);
+        this.spare = null;
+      }
+      this.tail = 0;
+      this.peakBytes = Math.max(this.peakBytes, (long) this.chunks.size() * CHUNK_LONGS << 3);
+    }
+    this.chunks.peekLast().putLong(this.tail << 3, value);
+    this.tail += 1;
+    this.size += 1;
+  }
+
+  // removes and returns the value at the front of the queue
+  long remove() {
+    if (this.size == 0) {
+      throw new IllegalStateException("Queue is empty");
+    }
+    long value = this.chunks.peekFirst().getLong(this.head << 3);
+    this.head += 1;
+    this.size -= 1;
+    if (this.head == CHUNK_LONGS || this.size == 0) {
+      // the first chunk is used up (or the queue is empty, and will start a fresh chunk)
+      this.spare = this.chunks.removeFirst();
+      if (this.chunks.isEmpty()) {
+        this.tail = CHUNK_LONGS;
+      }
+      this.head = 0;
+    }
+    return value;
+  }
+
+  // returns whether the queue is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the number of values in the queue
+  long size() {
+    return this.size;
+  }
+
+  // returns the most bytes the queue's chunks have taken at once
+  long peakBytes() {
+    return this.peakBytes;
+  }
+}
+
+// A breadth first search over an OffHeapGrid that keeps all of its state off the heap:
+// one visited bit per tile, the queue, and, if asked for, the distance of every tile
+// the search goes level by level, so it knows how far it has gone without storing distances
+class OffHeapSearch {
+  private OffHeapGrid grid;
+  private OffHeapArray visited;
+  private OffHeapArray distances;
+  private long reached;
+  private long farthest;
+  private long depth;
+  private long queueBytes;
+
+  // searches the given grid from the given tile, recording every tile's distance if asked to
+  OffHeapSearch(OffHeapGrid grid, long source, boolean keepDistances) {
+    if (source < 0 || source >= grid.size()) {
+      throw new IllegalArgumentException("No tile " + source);
+    }
+    this.grid = grid;
+    this.visited = new OffHeapArray((grid.size() + 7) >>> 3);
+    if (keepDistances) {
+      this.distances = new OffHeapArray(grid.size() << 2);
+    }
+    this.search(source);
+  }
+
+  // visits every tile reachable from the source, one level of distance at a time
+  void search(long source) {
+    Phase phase = Metrics.begin("offHeapSearch");
+    OffHeapLongQueue queue = new OffHeapLongQueue();
+    this.visit(source, 0);
+    queue.add(source);
+    long level = 0;
+
+    while (!queue.isEmpty()) {
+      long width = queue.size();
+      for (long i = 0; i < width; i += 1) {
+        long tile = queue.remove();
+        this.farthest = tile;
+        for (int dir = MazeGrid.NORTH; dir <= MazeGrid.WEST; dir += 1) {
+          if (this.grid.isOpen(tile, dir)) {
+            long next = this.grid.neighbor(tile, dir);
+            if (!this.wasVisited(next)) {
+              this.visit(next, level + 1);
+              queue.add(next);
+            }
+          }
+        }
+      }
+      this.depth = level;
+      level += 1;
+    }
+
+    this.queueBytes = queue.peakBytes();
+    phase.end();
+  }
+
+  // marks the given tile visited at the given distance
+  void visit(long tile, long distance) {
+    this.visited.putByte(tile >>> 3,
+        (byte) (this.visited.getByte(tile >>> 3) | (1 << (tile & 7))));
+    this.reached += 1;
+    if (this.distances != null) {
+      if (distance > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Maze is too deep to keep int distances");
+      }
+      this.distances.putInt(tile, (int) distance);
+    }
+  }
+
+  // returns whether the given tile was reached
+  boolean wasVisited(long tile) {
+    return (this.visited.getByte(tile >>> 3) & (1 << (tile & 7))) != 0;
+  }
+
+  // returns the distance of the given tile from the source, or -1 if it was not reached
+  // (only when distances were kept)
+  int distance(long tile) {
+    if (this.distances == null) {
+      throw new IllegalArgumentException("Distances were not kept");
+    }
+    if (!this.wasVisited(tile)) {
+      return -1;
+    }
+    return this.distances.getInt(tile);
+  }
+
+  // returns the number of tiles reached
+  long reached() {
+    return this.reached;
+  }
+
+  // returns the distance of the farthest tile reached
+  long depth() {
+    return this.depth;
+  }
+
+  // returns one of the tiles farthest from the source
+  long farthest() {
+    return this.farthest;
+  }
+
+  // returns the most bytes the search held off the heap at once
+  long bytes() {
+    long bytes = this.visited.length + this.queueBytes;
+    if (this.distances != null) {
+      bytes += this.distances.length;
+    }
+    return bytes;
+  }
+}
+
+class ExamplesOffHeapGrid {
+
+  // reads and writes land at the right offsets, across buffers as well as within them
+  void testArray(Tester t) {
+    OffHeapArray array = new OffHeapArray(40, 4);
+    array.putLong(1, -2);
+    array.putInt(7, 99);
+    array.putByte(39, (byte) 5);
+
+    t.checkExpect(array.getLong(1), -2L);
+    t.checkExpect(array.getInt(7), 99);
+    t.checkExpect(array.getInt(2), -2);
+    t.checkExpect(array.getInt(3), -1);
+    t.checkExpect(array.getInt(6), 0);
+    t.checkExpect(array.getByte(39), (byte) 5);
+    t.checkConstructorException(
+        new IllegalArgumentException("Region size must be from 2^3 to 2^30 bytes"),
+        "OffHeapArray", 8L, 2);
+  }
+
+  // the same seed streams the same walls into the heap and off it
+  void testWalls(Tester t) throws IOException {
+    GridRowSink onHeap = new GridRowSink();
+    OffHeapRowSink offHeap = new OffHeapRowSink();
+    new StreamingMazeBuilder().buildMaze(37, 23, 4, onHeap);
+    new StreamingMazeBuilder().buildMaze(37, 23, 4, offHeap);
+    MazeGrid grid = onHeap.grid();
+
+    boolean same = true;
+    for (int id = 0; id < grid.size(); id += 1) {
+      for (int dir = MazeGrid.NORTH; dir <= MazeGrid.WEST; dir += 1) {
+        same = same && grid.isOpen(id, dir) == offHeap.grid().isOpen(id, dir);
+      }
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(offHeap.grid().size(), 851L);
+  }
+
+  // the search finds the same distances as a search on the heap
+  void testSearch(Tester t) throws IOException {
+    GridRowSink onHeap = new GridRowSink();
+    OffHeapRowSink offHeap = new OffHeapRowSink();
+    new StreamingMazeBuilder().buildMaze(41, 29, 8, onHeap);
+    new StreamingMazeBuilder().buildMaze(41, 29, 8, offHeap);
+    int[] expected = new DistanceField(onHeap.grid()).toStart();
+    OffHeapSearch search = new OffHeapSearch(offHeap.grid(), 0, true);
+
+    boolean same = true;
+    int deepest = 0;
+    for (int id = 0; id < expected.length; id += 1) {
+      same = same && search.distance(id) == expected[id];
+      deepest = Math.max(deepest, expected[id]);
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(search.reached(), (long) expected.length);
+    t.checkExpect(search.depth(), (long) deepest);
+    t.checkExpect(expected[(int) search.farthest()], deepest);
+    t.checkException(new IllegalArgumentException("Distances were not kept"),
+        new OffHeapSearch(offHeap.grid(), 5, false), "distance", 0L);
+  }
+
+  // the queue hands values back in order as it grows past one chunk and drains again
+  void testQueue(Tester t) {
+    OffHeapLongQueue queue = new OffHeapLongQueue();
+    long count = OffHeapLongQueue.CHUNK_LONGS * 2L + 5;
+    for (long i = 0; i < count; i += 1) {
+      queue.add(i * 3);
+    }
+    boolean inOrder = true;
+    for (long i = 0; i < count; i += 1) {
+      inOrder = inOrder && queue.remove() == i * 3;
+    }
+    queue.add(7);
+    t.checkExpect(inOrder, true);
+    t.checkExpect(queue.remove(), 7L);
+    t.checkExpect(queue.isEmpty(), true);
+    t.checkExpect(queue.peakBytes(), 3L * OffHeapLongQueue.CHUNK_LONGS * 8);
+  }
+}
@@ -0,0 +1,242 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tester.Tester;
+
+// Computes the distances of every tile from a source with a breadth first search that
+// expands each level of the search in parallel on a fork-join pool
+// the queue holds the tiles in the order they were reached, so each level is one run of it;
+// the run is split among tasks, and a task claims each unreached neighbor by swapping its
+// distance from -1 with a compare-and-set (so a tile reachable from two tiles of the level is
+// claimed once) and appends the tiles it claimed to the queue in one block
+// levels no wider than the grain are expanded by the calling thread alone, since forking
+// would cost more than it saves; the corridors of a perfect maze keep most levels that narrow,
+// so the two distance fields are also computed at the same time (see distancesFromBoth)
+class ParallelBfs {
+  static final int DEFAULT_GRAIN = 2048;
+
+  // gives atomic access to single distances, for claiming tiles
+  static final VarHandle DISTANCES = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private ForkJoinPool pool;
+  private int grain;
+
+  ParallelBfs() {
+    this(ForkJoinPool.commonPool(), DEFAULT_GRAIN);
+  }
+
+  ParallelBfs(ForkJoinPool pool, int grain) {
+    if (grain < 1) {
+      throw new IllegalArgumentException("Grain must be at least 1 tile");
+    }
+    this.pool = pool;
+    this.grain = grain;
+  }
+
+  // returns the distance of every tile from the given one, indexed by tile id
+  // (tiles that cannot be reached are left at -1)
+  int[] distances(MazeGrid grid, int from) {
+    DistanceTask task = new DistanceTask(grid, from, this.grain);
+    this.pool.invoke(task);
+    return task.distances();
+  }
+
+  // returns the distances of every tile from each of the two given tiles, both searches
+  // running at once
+  int[][] distancesFromBoth(MazeGrid grid, int first, int second) {
+    DistanceTask firstTask = new DistanceTask(grid, first, this.grain);
+    DistanceTask secondTask = new DistanceTask(grid, second, this.grain);
+    this.pool.invoke(new BothTask(firstTask, secondTask));
+    return new int[][] {firstTask.distances(), secondTask.distances()};
+  }
+}
+
+// Runs two tasks at once
+class BothTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private RecursiveAction first;
+  private RecursiveAction second;
+
+  BothTask(RecursiveAction first, RecursiveAction second) {
+    this.first = first;
+    this.second = second;
+  }
+
+  // forks both tasks and waits for them
+  protected void compute() {
+    invokeAll(this.first, this.second);
+  }
+}
+
+// Drives one breadth first search level by level, expanding wide levels in parallel
+class DistanceTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private MazeGrid grid;
+  private int from;
+  private int grain;
+  private int[] distances;
+
+  DistanceTask(MazeGrid grid, int from, int grain) {
+    this.grid = grid;
+    this.from = from;
+    this.grain = grain;
+  }
+
+  // searches from the source one level at a time
+  protected void compute() {
+    int size = this.grid.size();
+    this.distances = new int[size];
+    Arrays.fill(this.distances, -1);
+    if (size == 0) {
+      return;
+    }
+
+    int[] queue = new int[size];
+    int[] neighbors = new int[4];
+    AtomicInteger tail = new AtomicInteger(1);
+    int head = 0;
+    int level = 0;
+    queue[0] = this.from;
+    this.distances[this.from] = 0;
+
+    while (head < tail.get()) {
+      int levelEnd = tail.get();
+      if (levelEnd - head > this.grain) {
+        new FrontierTask(this.grid, this.distances, queue, tail, level, head, levelEnd,
+            this.grain).invoke();
+      }
+      else {
+        // a narrow level is cheaper to expand here, and needs no claiming
+        int next = levelEnd;
+        for (int i = head; i < levelEnd; i += 1) {
+          int count = this.grid.openNeighbors(queue[i], neighbors);
+          for (int j = 0; j < count; j += 1) {
+            if (this.distances[neighbors[j]] == -1) {
+              this.distances[neighbors[j]] = level + 1;
+              queue[next] = neighbors[j];
+              next += 1;
+            }
+          }
+        }
+        tail.set(next);
+      }
+      head = levelEnd;
+      level += 1;
+    }
+  }
+
+  // returns the distances found
+  int[] distances() {
+    return this.distances;
+  }
+}
+
+// Expands a range of one level of a breadth first search
+class FrontierTask extends RangeTask {
+  private static final long serialVersionUID = 1L;
+
+  private MazeGrid grid;
+  private int[] distances;
+  private int[] queue;
+  private AtomicInteger tail;
+  private int level;
+
+  FrontierTask(MazeGrid grid, int[] distances, int[] queue, AtomicInteger tail, int level,
+      int from, int to, int grain) {
+    super(from, to, grain);
+    this.grid = grid;
+    this.distances = distances;
+    this.queue = queue;
+    this.tail = tail;
+    this.level = level;
+  }
+
+  // claims the unreached neighbors of the tiles queued in the range, then appends them to
+  // the queue in one block
+  void computeRange(int from, int to) {
+    int[] claimed = new int[(to - from) * 4];
+    int[] neighbors = new int[4];
+    int count = 0;
+
+    for (int i = from; i < to; i += 1) {
+      int found = this.grid.openNeighbors(this.queue[i], neighbors);
+      for (int j = 0; j < found; j += 1) {
+        int tile = neighbors[j];
+        if (this.distances[tile] == -1
+            && ParallelBfs.DISTANCES.compareAndSet(this.distances, tile, -1, this.level + 1)) {
+          claimed[count] = tile;
+          count += 1;
+        }
+      }
+    }
+
+    System.arraycopy(claimed, 0, this.queue, this.tail.getAndAdd(count), count);
+  }
+
+  // returns the same task over another range of the level
+  RangeTask subtask(int from, int to) {
+    return new FrontierTask(this.grid, this.distances, this.queue, this.tail, this.level,
+        from, to, this.threshold);
+  }
+}
+
+class ExamplesParallelBfs {
+
+  // a grid with every wall open, so every tile is reachable from two others of the level
+  // before it and levels grow wide enough to split
+  MazeGrid openGrid(int width, int height) {
+    MazeGrid grid = new MazeGrid(width, height);
+    for (int id = 0; id < grid.size(); id += 1) {
+      if (grid.hasNeighbor(id, MazeGrid.EAST)) {
+        grid.open(grid.xOf(id), grid.yOf(id), MazeGrid.EAST);
+      }
+      if (grid.hasNeighbor(id, MazeGrid.SOUTH)) {
+        grid.open(grid.xOf(id), grid.yOf(id), MazeGrid.SOUTH);
+      }
+    }
+    return grid;
+  }
+
+  // splitting levels among threads gives exactly the distances of the sequential search
+  void testMatchesSequential(Tester t) {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ParallelBfs bfs = new ParallelBfs(pool, 8);
+    MazeGrid[] grids = {new MazeBuilder().buildMaze(90, 70, 3), this.openGrid(120, 80),
+        new MazeGrid(5, 5), new MazeGrid(0, 0)};
+
+    for (MazeGrid grid : grids) {
+      DistanceField sequential = new DistanceField(grid);
+      if (grid.size() > 0) {
+        int[][] both = bfs.distancesFromBoth(grid, 0, grid.size() - 1);
+        t.checkExpect(bfs.distances(grid, 0), sequential.computeDistances(0));
+        t.checkExpect(both[0], sequential.computeDistances(0));
+        t.checkExpect(both[1], sequential.computeDistances(grid.size() - 1));
+      }
+      else {
+        t.checkExpect(bfs.distances(grid, 0), new int[0]);
+      }
+    }
+    pool.shutdown();
+  }
+
+  // a distance field given a parallel search still computes each field only when it is
+  // asked for
+  void testDistanceField(Tester t) {
+    MazeGrid grid = this.openGrid(60, 40);
+    DistanceField parallel = new DistanceField(grid, new ParallelBfs(new ForkJoinPool(4), 8));
+    DistanceField sequential = new DistanceField(grid);
+
+    t.checkExpect(parallel.toEnd(), sequential.toEnd());
+    t.checkExpect(parallel.hasStartDistances(), false);
+    t.checkExpect(parallel.maxToStart(), 98);
+    t.checkExpect(parallel.toStart(), sequential.toStart());
+    t.checkConstructorException(new IllegalArgumentException("Grain must be at least 1 tile"),
+        "ParallelBfs", ForkJoinPool.commonPool(), 0);
+  }
+}
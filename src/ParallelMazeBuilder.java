@@ -0,0 +1,346 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import tester.Tester;
+
+// A class that builds large mazes on a fork-join pool
+// the grid is split into square blocks whose spanning trees are built concurrently with
+// MazeBuilder, then the blocks are stitched into a single tree with Boruvka's algorithm:
+// every pair of adjacent blocks offers one random crossing, and in each round every group of
+// blocks joins along its cheapest crossing through a concurrent union-find
+// (ties are broken by crossing index, so the same seed always builds the same maze)
+class ParallelMazeBuilder implements IMazeGenerator {
+  static final int DEFAULT_BLOCK_SIZE = 256;
+
+  private ForkJoinPool pool;
+  private int blockSize;
+
+  ParallelMazeBuilder() {
+    this(ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+  }
+
+  ParallelMazeBuilder(ForkJoinPool pool, int blockSize) {
+    if (blockSize < 2) {
+      throw new IllegalArgumentException("Blocks must be at least 2 tiles wide");
+    }
+    this.pool = pool;
+    this.blockSize = blockSize;
+  }
+
+  // builds a maze from the given seed
+  MazeGrid buildMaze(int width, int height, long seed) {
+    MazeGrid grid = new MazeGrid(width, height);
+    this.carve(grid, seed);
+    return grid;
+  }
+
+  // opens the walls of the given grid along a spanning tree drawn from the given seed
+  public void carve(MazeGrid grid, long seed) {
+    if (grid.size() == 0) {
+      return;
+    }
+
+    BlockLayout blocks = new BlockLayout(grid.width, grid.height, this.blockSize);
+    this.pool.invoke(new BlockTreeTask(grid, blocks, seed, 0, blocks.count()));
+    this.stitchBlocks(grid, blocks, seed);
+  }
+
+  // joins the separately built blocks of the grid into one spanning tree
+  void stitchBlocks(MazeGrid grid, BlockLayout blocks, long seed) {
+    BlockCrossings crossings = new BlockCrossings(grid, blocks, seed);
+    ConcurrentUnionFind groups = new ConcurrentUnionFind(blocks.count());
+    AtomicIntegerArray cheapest = new AtomicIntegerArray(blocks.count());
+    int components = blocks.count();
+
+    while (components > 1) {
+      for (int block = 0; block < blocks.count(); block += 1) {
+        cheapest.set(block, -1);
+      }
+
+      this.pool.invoke(new CheapestCrossingTask(crossings, groups, cheapest,
+          0, crossings.count()));
+
+      AtomicInteger joined = new AtomicInteger();
+      this.pool.invoke(new JoinCrossingTask(grid, crossings, groups, cheapest, joined,
+          0, blocks.count()));
+
+      if (joined.get() == 0) {
+        throw new IllegalStateException("Blocks could not be stitched together");
+      }
+      components -= joined.get();
+    }
+  }
+}
+
+// Represents the split of a width x height grid into square blocks, numbered row-major
+class BlockLayout {
+  final int width;
+  final int height;
+  final int blockSize;
+  final int blocksX;
+  final int blocksY;
+
+  BlockLayout(int width, int height, int blockSize) {
+    this.width = width;
+    this.height = height;
+    this.blockSize = blockSize;
+    this.blocksX = (width + blockSize - 1) / blockSize;
+    this.blocksY = (height + blockSize - 1) / blockSize;
+  }
+
+  // returns the number of blocks
+  int count() {
+    return this.blocksX * this.blocksY;
+  }
+
+  // returns the x coordinate of the left column of the given block
+  int left(int block) {
+    return (block % this.blocksX) * this.blockSize;
+  }
+
+  // returns the y coordinate of the top row of the given block
+  int top(int block) {
+    return (block / this.blocksX) * this.blockSize;
+  }
+
+  // returns the width of the given block (blocks on the right edge may be narrower)
+  int widthOf(int block) {
+    return Math.min(this.blockSize, this.width - this.left(block));
+  }
+
+  // returns the height of the given block (blocks on the bottom edge may be shorter)
+  int heightOf(int block) {
+    return Math.min(this.blockSize, this.height - this.top(block));
+  }
+
+  // returns the seed of the given block, derived from the seed of the whole maze
+  long seedOf(int block, long seed) {
+    return new SplittableRandom(seed ^ (block * 0x9E3779B97F4A7C15L)).nextLong();
+  }
+}
+
+// Represents one random crossing between every pair of adjacent blocks, with a random weight
+class BlockCrossings {
+  private int[] edges;
+  private int[] firstBlocks;
+  private int[] secondBlocks;
+  private long[] weights;
+  private int count;
+
+  BlockCrossings(MazeGrid grid, BlockLayout blocks, long seed) {
+    int capacity = 2 * blocks.count();
+    this.edges = new int[capacity];
+    this.firstBlocks = new int[capacity];
+    this.secondBlocks = new int[capacity];
+    this.weights = new long[capacity];
+
+    SplittableRandom random = new SplittableRandom(seed);
+
+    for (int block = 0; block < blocks.count(); block += 1) {
+      int right = blocks.left(block) + blocks.widthOf(block) - 1;
+      int bottom = blocks.top(block) + blocks.heightOf(block) - 1;
+
+      // crosses the east side of the block at a random row
+      if (right < grid.width - 1) {
+        int y = blocks.top(block) + random.nextInt(blocks.heightOf(block));
+        this.add(grid.edge(grid.id(right, y), MazeGrid.EAST), block, block + 1, random.nextLong());
+      }
+
+      // crosses the south side of the block at a random column
+      if (bottom < grid.height - 1) {
+        int x = blocks.left(block) + random.nextInt(blocks.widthOf(block));
+        this.add(grid.edge(grid.id(x, bottom), MazeGrid.SOUTH), block, block + blocks.blocksX,
+            random.nextLong());
+      }
+    }
+  }
+
+  // records a crossing
+  private void add(int edge, int firstBlock, int secondBlock, long weight) {
+    this.edges[this.count] = edge;
+    this.firstBlocks[this.count] = firstBlock;
+    this.secondBlocks[this.count] = secondBlock;
+    this.weights[this.count] = weight;
+    this.count += 1;
+  }
+
+  // returns the number of crossings
+  int count() {
+    return this.count;
+  }
+
+  // returns the edge code of the given crossing
+  int edge(int crossing) {
+    return this.edges[crossing];
+  }
+
+  // returns the block on the west or north side of the given crossing
+  int firstBlock(int crossing) {
+    return this.firstBlocks[crossing];
+  }
+
+  // returns the block on the east or south side of the given crossing
+  int secondBlock(int crossing) {
+    return this.secondBlocks[crossing];
+  }
+
+  // returns whether the first crossing is cheaper than the second (-1 meaning no crossing)
+  boolean isCheaper(int crossing, int other) {
+    if (other == -1) {
+      return true;
+    }
+    if (this.weights[crossing] != this.weights[other]) {
+      return this.weights[crossing] < this.weights[other];
+    }
+    return crossing < other;
+  }
+}
+
+// Builds the spanning trees of a range of blocks, each with its own MazeBuilder and seed,
+// and copies their openings into the shared grid
+class BlockTreeTask extends RangeTask {
+  private static final long serialVersionUID = 1L;
+
+  private MazeGrid grid;
+  private BlockLayout blocks;
+  private long seed;
+
+  BlockTreeTask(MazeGrid grid, BlockLayout blocks, long seed, int from, int to) {
+    super(from, to, 1);
+    this.grid = grid;
+    this.blocks = blocks;
+    this.seed = seed;
+  }
+
+  // builds every block in the range
+  void computeRange(int from, int to) {
+    for (int block = from; block < to; block += 1) {
+      int left = this.blocks.left(block);
+      int top = this.blocks.top(block);
+      MazeGrid tree = new MazeBuilder().buildMaze(this.blocks.widthOf(block),
+          this.blocks.heightOf(block), this.blocks.seedOf(block, this.seed));
+
+      for (int y = 0; y < tree.height; y += 1) {
+        for (int x = 0; x < tree.width; x += 1) {
+          int id = this.grid.id(left + x, top + y);
+
+          if (tree.isOpen(x, y, MazeGrid.EAST)) {
+            this.grid.openEdgeAtomically(this.grid.edge(id, MazeGrid.EAST));
+          }
+          if (tree.isOpen(x, y, MazeGrid.SOUTH)) {
+            this.grid.openEdgeAtomically(this.grid.edge(id, MazeGrid.SOUTH));
+          }
+        }
+      }
+    }
+  }
+
+  // returns the same task over another range of blocks
+  RangeTask subtask(int from, int to) {
+    return new BlockTreeTask(this.grid, this.blocks, this.seed, from, to);
+  }
+}
+
+// Finds, for every group of blocks, the cheapest crossing leaving it
+class CheapestCrossingTask extends RangeTask {
+  private static final long serialVersionUID = 1L;
+
+  private BlockCrossings crossings;
+  private ConcurrentUnionFind groups;
+  private AtomicIntegerArray cheapest;
+
+  CheapestCrossingTask(BlockCrossings crossings, ConcurrentUnionFind groups,
+      AtomicIntegerArray cheapest, int from, int to) {
+    super(from, to, 1024);
+    this.crossings = crossings;
+    this.groups = groups;
+    this.cheapest = cheapest;
+  }
+
+  // offers every crossing in the range to the groups on both of its sides
+  void computeRange(int from, int to) {
+    for (int crossing = from; crossing < to; crossing += 1) {
+      int first = this.groups.find(this.crossings.firstBlock(crossing));
+      int second = this.groups.find(this.crossings.secondBlock(crossing));
+
+      if (first != second) {
+        this.offer(first, crossing);
+        this.offer(second, crossing);
+      }
+    }
+  }
+
+  // records the crossing as the cheapest one leaving the group if it is
+  private void offer(int group, int crossing) {
+    int current = this.cheapest.get(group);
+    while (this.crossings.isCheaper(crossing, current)) {
+      if (this.cheapest.compareAndSet(group, current, crossing)) {
+        return;
+      }
+      current = this.cheapest.get(group);
+    }
+  }
+
+  // returns the same task over another range of crossings
+  RangeTask subtask(int from, int to) {
+    return new CheapestCrossingTask(this.crossings, this.groups, this.cheapest, from, to);
+  }
+}
+
+// Joins every group of blocks along the cheapest crossing leaving it
+class JoinCrossingTask extends RangeTask {
+  private static final long serialVersionUID = 1L;
+
+  private MazeGrid grid;
+  private BlockCrossings crossings;
+  private ConcurrentUnionFind groups;
+  private AtomicIntegerArray cheapest;
+  private AtomicInteger joined;
+
+  JoinCrossingTask(MazeGrid grid, BlockCrossings crossings, ConcurrentUnionFind groups,
+      AtomicIntegerArray cheapest, AtomicInteger joined, int from, int to) {
+    super(from, to, 1024);
+    this.grid = grid;
+    this.crossings = crossings;
+    this.groups = groups;
+    this.cheapest = cheapest;
+    this.joined = joined;
+  }
+
+  // opens the cheapest crossing of every group in the range, unless the group on its
+  // other side already opened the same crossing
+  void computeRange(int from, int to) {
+    for (int group = from; group < to; group += 1) {
+      int crossing = this.cheapest.get(group);
+
+      if (crossing != -1 && this.groups.union(this.crossings.firstBlock(crossing),
+          this.crossings.secondBlock(crossing))) {
+        this.grid.openEdgeAtomically(this.crossings.edge(crossing));
+        this.joined.incrementAndGet();
+      }
+    }
+  }
+
+  // returns the same task over another range of groups
+  RangeTask subtask(int from, int to) {
+    return new JoinCrossingTask(this.grid, this.crossings, this.groups, this.cheapest,
+        this.joined, from, to);
+  }
+}
+
+class ExamplesParallelMazeBuilder {
+
+  // uneven block sizes still give exactly n - 1 openings, all reachable from the start
+  void testPerfectMaze(Tester t) {
+    MazeGrid grid = new ParallelMazeBuilder(new ForkJoinPool(4), 8).buildMaze(53, 37, 11);
+    new ExamplesMazeGrid().checkSpanningTree(t, grid, "53x37");
+  }
+
+  void testSeeded(Tester t) {
+    ParallelMazeBuilder builder = new ParallelMazeBuilder(new ForkJoinPool(3), 5);
+
+    t.checkExpect(builder.buildMaze(40, 40, 3), builder.buildMaze(40, 40, 3));
+  }
+}
@@ -0,0 +1,241 @@
+import tester.Tester;
+
+// Answers distance and path queries between any two tiles of a perfect maze, after
+// preprocessing its tree once in linear time
+// the tree is rooted at the start by a depth first walk; the lowest common ancestor of two
+// tiles is the parent of the shallowest tile between them in walk (preorder) order, so each
+// query is one range minimum over the preorder depths
+// range minima take constant time: a sparse table covers whole blocks of 64 positions, and
+// within a block every position keeps a 64-bit mask of the stack of minima ending there
+// (see the Fischer-Heun style "linear RMQ with bitmasks")
+class PathIndex {
+  static final int BLOCK = 64;
+
+  private MazeGrid grid;
+  private int[] parent;
+  private int[] depth;
+  private int[] order;
+  private int[] position;
+  private long[] masks;
+  private int[][] blockMinima;
+
+  // indexes the given maze, which must be a tree
+  PathIndex(MazeGrid grid) {
+    this.grid = grid;
+    int size = grid.size();
+    this.parent = new int[size];
+    this.depth = new int[size];
+    this.order = new int[size];
+    this.position = new int[size];
+
+    if (size > 0) {
+      this.walk();
+    }
+    this.buildMasks();
+    this.buildBlockMinima();
+  }
+
+  // walks the tree depth first from the start, recording every tile's parent, depth
+  // and preorder position
+  void walk() {
+    int[] stack = new int[this.grid.size()];
+    int[] neighbors = new int[4];
+    int top = 0;
+    int visited = 0;
+    stack[top] = 0;
+    top += 1;
+    this.parent[0] = -1;
+
+    while (top > 0) {
+      top -= 1;
+      int tile = stack[top];
+      this.order[visited] = tile;
+      this.position[tile] = visited;
+      visited += 1;
+
+      int count = this.grid.openNeighbors(tile, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        if (neighbors[i] != this.parent[tile]) {
+          if (visited + top >= this.grid.size()) {
+            throw new IllegalArgumentException("Maze is not a tree");
+          }
+          this.parent[neighbors[i]] = tile;
+          this.depth[neighbors[i]] = this.depth[tile] + 1;
+          stack[top] = neighbors[i];
+          top += 1;
+        }
+      }
+    }
+
+    if (visited != this.grid.size()) {
+      throw new IllegalArgumentException("Maze is not connected");
+    }
+  }
+
+  // records, for every position, which earlier positions of its block are minima of
+  // everything from them up to it
+  void buildMasks() {
+    int size = this.order.length;
+    this.masks = new long[size];
+
+    for (int start = 0; start < size; start += BLOCK) {
+      long stack = 0;
+      for (int i = start; i < Math.min(start + BLOCK, size); i += 1) {
+        while (stack != 0 && this.depthAt(start + 63 - Long.numberOfLeadingZeros(stack))
+            >= this.depthAt(i)) {
+          stack ^= Long.highestOneBit(stack);
+        }
+        stack |= 1L << (i - start);
+        this.masks[i] = stack;
+      }
+    }
+  }
+
+  // builds the sparse table of the shallowest position in every run of 2^level blocks
+  void buildBlockMinima() {
+    int blocks = (this.order.length + BLOCK - 1) / BLOCK;
+    int levels = 1;
+    while ((1 << levels) <= blocks) {
+      levels += 1;
+    }
+
+    this.blockMinima = new int[levels][];
+    this.blockMinima[0] = new int[blocks];
+    for (int block = 0; block < blocks; block += 1) {
+      int start = block * BLOCK;
+      this.blockMinima[0][block] = this.minInBlock(start,
+          Math.min(start + BLOCK, this.order.length) - 1);
+    }
+
+    for (int level = 1; level < levels; level += 1) {
+      int span = 1 << (level - 1);
+      this.blockMinima[level] = new int[blocks - (1 << level) + 1];
+      for (int block = 0; block < this.blockMinima[level].length; block += 1) {
+        this.blockMinima[level][block] = this.shallower(this.blockMinima[level - 1][block],
+            this.blockMinima[level - 1][block + span]);
+      }
+    }
+  }
+
+  // returns the depth of the tile at the given preorder position
+  int depthAt(int position) {
+    return this.depth[this.order[position]];
+  }
+
+  // returns whichever of the two positions holds the shallower tile
+  int shallower(int first, int second) {
+    if (this.depthAt(second) < this.depthAt(first)) {
+      return second;
+    }
+    return first;
+  }
+
+  // returns the position of the shallowest tile from first to last, both in the same block
+  int minInBlock(int first, int last) {
+    int start = first - first % BLOCK;
+    return start + Long.numberOfTrailingZeros(this.masks[last] & (-1L << (first - start)));
+  }
+
+  // returns the position of the shallowest tile from first to last
+  int minBetween(int first, int last) {
+    int firstBlock = first / BLOCK;
+    int lastBlock = last / BLOCK;
+    if (firstBlock == lastBlock) {
+      return this.minInBlock(first, last);
+    }
+
+    int best = this.shallower(this.minInBlock(first, firstBlock * BLOCK + BLOCK - 1),
+        this.minInBlock(lastBlock * BLOCK, last));
+    if (firstBlock + 1 < lastBlock) {
+      int from = firstBlock + 1;
+      int level = 31 - Integer.numberOfLeadingZeros(lastBlock - from);
+      best = this.shallower(best, this.shallower(this.blockMinima[level][from],
+          this.blockMinima[level][lastBlock - (1 << level)]));
+    }
+    return best;
+  }
+
+  // returns the lowest tile that is an ancestor of both given tiles
+  int ancestor(int first, int second) {
+    if (first == second) {
+      return first;
+    }
+    int from = Math.min(this.position[first], this.position[second]);
+    int to = Math.max(this.position[first], this.position[second]);
+    return this.parent[this.order[this.minBetween(from + 1, to)]];
+  }
+
+  // returns the number of steps on the path between the two given tiles
+  int distance(int first, int second) {
+    return this.depth[first] + this.depth[second]
+        - 2 * this.depth[this.ancestor(first, second)];
+  }
+
+  // returns the tiles on the path from the first given tile to the second, both included
+  int[] path(int first, int second) {
+    int top = this.ancestor(first, second);
+    int[] path = new int[this.depth[first] + this.depth[second] - 2 * this.depth[top] + 1];
+
+    int index = 0;
+    for (int tile = first; tile != top; tile = this.parent[tile]) {
+      path[index] = tile;
+      index += 1;
+    }
+    path[index] = top;
+
+    // the half below the second tile is filled from the end
+    index = path.length - 1;
+    for (int tile = second; tile != top; tile = this.parent[tile]) {
+      path[index] = tile;
+      index -= 1;
+    }
+    return path;
+  }
+}
+
+class ExamplesPathIndex {
+
+  // every distance matches a breadth first search, and every path is a walk through open walls
+  void testAgainstSearch(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(37, 29, 12);
+    PathIndex index = new PathIndex(grid);
+    DistanceField field = new DistanceField(grid);
+    int[] sources = {0, 1, 100, 500, grid.size() - 1};
+
+    boolean distancesMatch = true;
+    boolean pathsValid = true;
+    for (int source : sources) {
+      int[] expected = field.computeDistances(source);
+      for (int tile = 0; tile < grid.size(); tile += 1) {
+        distancesMatch = distancesMatch && index.distance(source, tile) == expected[tile];
+
+        int[] path = index.path(source, tile);
+        pathsValid = pathsValid && path.length == expected[tile] + 1
+            && path[0] == source && path[path.length - 1] == tile;
+        for (int i = 1; i < path.length; i += 1) {
+          int[] neighbors = new int[4];
+          int count = grid.openNeighbors(path[i - 1], neighbors);
+          boolean open = false;
+          for (int j = 0; j < count; j += 1) {
+            open = open || neighbors[j] == path[i];
+          }
+          pathsValid = pathsValid && open;
+        }
+      }
+    }
+
+    t.checkExpect(distancesMatch, true);
+    t.checkExpect(pathsValid, true);
+    t.checkExpect(index.path(7, 7), new int[] {7});
+  }
+
+  void testNotATree(Tester t) {
+    MazeGrid loop = new MazeGrid(2, 2);
+    loop.open(0, 0, MazeGrid.EAST);
+    loop.open(0, 0, MazeGrid.SOUTH);
+    loop.open(1, 0, MazeGrid.SOUTH);
+    loop.open(0, 1, MazeGrid.EAST);
+    t.checkConstructorException(new IllegalArgumentException("Maze is not a tree"),
+        "PathIndex", loop);
+  }
+}
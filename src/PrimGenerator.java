@@ -0,0 +1,60 @@
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// Builds mazes with Prim's algorithm: the tree grows from the top left tile, always across the
+// cheapest randomly weighted edge leading out of it
+// the weights are small ints (as in MazeBuilder), so the frontier is a bucket queue rather
+// than a heap, and every edge enters it at most once (when its first end joins the tree)
+class PrimGenerator implements IMazeGenerator {
+
+  // opens the walls of the given grid along a spanning tree drawn from the given seed
+  public void carve(MazeGrid grid, long seed) {
+    if (grid.size() == 0) {
+      return;
+    }
+
+    SplittableRandom random = new SplittableRandom(seed);
+    BitSet inTree = new BitSet(grid.size());
+    BucketQueue frontier = new BucketQueue(MazeBuilder.WEIGHTS);
+    this.addToTree(grid, 0, inTree, frontier, random);
+
+    while (!frontier.isEmpty()) {
+      int edge = frontier.removeMin();
+      int outside = grid.edgeTo(edge);
+      if (inTree.get(outside)) {
+        outside = grid.edgeFrom(edge);
+      }
+
+      if (!inTree.get(outside)) {
+        grid.openEdge(edge);
+        this.addToTree(grid, outside, inTree, frontier, random);
+      }
+    }
+  }
+
+  // adds the given tile to the tree, and the edges from it to tiles outside the tree
+  // to the frontier with random weights
+  void addToTree(MazeGrid grid, int tile, BitSet inTree, BucketQueue frontier,
+      SplittableRandom random) {
+    inTree.set(tile);
+
+    for (int dir = MazeGrid.NORTH; dir <= MazeGrid.WEST; dir += 1) {
+      if (grid.hasNeighbor(tile, dir) && !inTree.get(grid.neighbor(tile, dir))) {
+        frontier.add(this.edgeToward(grid, tile, dir), random.nextInt(MazeBuilder.WEIGHTS));
+      }
+    }
+  }
+
+  // returns the code of the edge between the given tile and its neighbor in the given direction
+  int edgeToward(MazeGrid grid, int tile, int dir) {
+    if (dir == MazeGrid.EAST || dir == MazeGrid.SOUTH) {
+      return grid.edge(tile, dir);
+    }
+    else if (dir == MazeGrid.WEST) {
+      return grid.edge(tile - 1, MazeGrid.EAST);
+    }
+    else {
+      return grid.edge(tile - grid.width, MazeGrid.SOUTH);
+    }
+  }
+}
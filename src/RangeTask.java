@@ -0,0 +1,34 @@
+import java.util.concurrent.RecursiveAction;
+
+// Represents a fork-join task over the indices [from, to), which is split in half
+// until a part is no longer than the threshold and can be computed directly
+abstract class RangeTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  final int from;
+  final int to;
+  final int threshold;
+
+  RangeTask(int from, int to, int threshold) {
+    this.from = from;
+    this.to = to;
+    this.threshold = Math.max(threshold, 1);
+  }
+
+  // computes the range directly if it is small enough, otherwise forks both halves
+  protected void compute() {
+    if (this.to - this.from <= this.threshold) {
+      this.computeRange(this.from, this.to);
+    }
+    else {
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(this.subtask(this.from, middle), this.subtask(middle, this.to));
+    }
+  }
+
+  // does the work of this task for the indices [from, to)
+  abstract void computeRange(int from, int to);
+
+  // returns a task doing the same work for the indices [from, to)
+  abstract RangeTask subtask(int from, int to);
+}
@@ -0,0 +1,233 @@
+import tester.Tester;
+
+// Decides how many search steps each animation tick performs, in one of three modes:
+//   "steps"    - a fixed number of steps per tick
+//   "budget"   - as many steps as fit in a time budget per tick
+//   "complete" - the whole search in a single tick
+// and measures how many steps per second the animation is actually achieving
+class SearchScheduler {
+  static final String STEPS = "steps";
+  static final String BUDGET = "budget";
+  static final String COMPLETE = "complete";
+  static final String[] MODES = {STEPS, BUDGET, COMPLETE};
+
+  // how many steps are performed between checks of the clock in budget mode
+  static final int BUDGET_CHUNK = 256;
+
+  // how long the steps per second are counted for before the readout is updated
+  static final long RATE_WINDOW_NANOS = 250000000L;
+
+  private String mode;
+  private int stepsPerTick;
+  private long budgetNanos;
+
+  // the background search last granted steps, and how many it had performed by then
+  private SearchWorker granted;
+  private long grantedSteps;
+
+  private long windowStart;
+  private long windowSteps;
+  private double stepsPerSecond;
+
+  // one step per tick, with an 8 ms budget ready for budget mode
+  SearchScheduler() {
+    this(STEPS, 1, 8000000L);
+  }
+
+  SearchScheduler(String mode, int stepsPerTick, long budgetNanos) {
+    if (stepsPerTick < 1) {
+      throw new IllegalArgumentException("Steps per tick must be positive");
+    }
+    if (budgetNanos < 1) {
+      throw new IllegalArgumentException("Time budget must be positive");
+    }
+
+    this.setMode(mode);
+    this.stepsPerTick = stepsPerTick;
+    this.budgetNanos = budgetNanos;
+    this.windowStart = System.nanoTime();
+  }
+
+  // returns the current mode
+  String mode() {
+    return this.mode;
+  }
+
+  // switches to the given mode (see MODES)
+  void setMode(String mode) {
+    if (!mode.equals(STEPS) && !mode.equals(BUDGET) && !mode.equals(COMPLETE)) {
+      throw new IllegalArgumentException("Unknown scheduling mode: " + mode);
+    }
+    this.mode = mode;
+  }
+
+  // switches to the mode after the current one, wrapping around
+  void nextMode() {
+    for (int i = 0; i < MODES.length; i += 1) {
+      if (MODES[i].equals(this.mode)) {
+        this.mode = MODES[(i + 1) % MODES.length];
+        return;
+      }
+    }
+  }
+
+  // returns the number of steps performed per tick in steps mode
+  int stepsPerTick() {
+    return this.stepsPerTick;
+  }
+
+  // returns the time budget per tick in budget mode, in nanoseconds
+  long budgetNanos() {
+    return this.budgetNanos;
+  }
+
+  // doubles the steps per tick or the time budget, whichever the current mode uses
+  void faster() {
+    if (this.mode.equals(STEPS) && this.stepsPerTick <= Integer.MAX_VALUE / 2) {
+      this.stepsPerTick *= 2;
+    }
+    else if (this.mode.equals(BUDGET) && this.budgetNanos <= Long.MAX_VALUE / 2) {
+      this.budgetNanos *= 2;
+    }
+  }
+
+  // halves the steps per tick or the time budget, whichever the current mode uses
+  void slower() {
+    if (this.mode.equals(STEPS)) {
+      this.stepsPerTick = Math.max(1, this.stepsPerTick / 2);
+    }
+    else if (this.mode.equals(BUDGET)) {
+      this.budgetNanos = Math.max(1, this.budgetNanos / 2);
+    }
+  }
+
+  // performs this tick's share of the model's search, if it is still running
+  // (a search running in the background is granted its share instead, see grant)
+  // returns the number of steps performed (by a background search, since the last tick)
+  int tick(MazeModel model) {
+    int performed = 0;
+
+    if (model.worker() != null) {
+      performed = this.grant(model);
+    }
+    else if (model.isSearching()) {
+      if (this.mode.equals(STEPS)) {
+        performed = model.performSearchSteps(this.stepsPerTick);
+      }
+      else if (this.mode.equals(BUDGET)) {
+        long start = System.nanoTime();
+        while (model.isSearching() && System.nanoTime() - start < this.budgetNanos) {
+          performed += model.performSearchSteps(BUDGET_CHUNK);
+        }
+      }
+      else {
+        performed = model.performSearchSteps(Integer.MAX_VALUE);
+      }
+    }
+
+    this.count(performed);
+    return performed;
+  }
+
+  // grants the model's background search this tick's share of steps, without waiting for it
+  // returns the number of steps it has performed since the last tick
+  int grant(MazeModel model) {
+    SearchWorker worker = model.worker();
+    if (model.isSearching()) {
+      if (this.mode.equals(STEPS)) {
+        worker.allowSteps(this.stepsPerTick);
+      }
+      else if (this.mode.equals(BUDGET)) {
+        worker.allowUntil(System.nanoTime() + this.budgetNanos);
+      }
+      else {
+        worker.allowAll();
+      }
+    }
+
+    if (worker != this.granted) {
+      this.granted = worker;
+      this.grantedSteps = 0;
+    }
+    long performed = worker.performed();
+    int since = (int) Math.min(performed - this.grantedSteps, Integer.MAX_VALUE);
+    this.grantedSteps = performed;
+    return since;
+  }
+
+  // adds the given number of steps to the current window,
+  // updating the rate once the window is long enough
+  void count(int steps) {
+    long now = System.nanoTime();
+    this.windowSteps += steps;
+
+    if (now - this.windowStart >= RATE_WINDOW_NANOS) {
+      this.stepsPerSecond = this.windowSteps * 1e9 / (now - this.windowStart);
+      this.windowStart = now;
+      this.windowSteps = 0;
+    }
+  }
+
+  // returns the steps per second measured over the last complete window
+  double stepsPerSecond() {
+    return this.stepsPerSecond;
+  }
+
+  // returns a short description of the mode and the measured rate
+  String describe() {
+    String setting;
+    if (this.mode.equals(STEPS)) {
+      setting = this.stepsPerTick + " steps/tick";
+    }
+    else if (this.mode.equals(BUDGET)) {
+      setting = String.format("%.1f", this.budgetNanos / 1e6) + " ms/tick";
+    }
+    else {
+      setting = "to completion";
+    }
+    return String.format("%.0f", this.stepsPerSecond) + " steps/s (" + setting + ")";
+  }
+}
+
+class ExamplesSearchScheduler {
+
+  // each mode performs the share of the search it promises
+  void testModes(Tester t) {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(40, 40, 3));
+    SearchScheduler scheduler = new SearchScheduler();
+
+    model.startSearch("bfs");
+    t.checkExpect(scheduler.tick(model), 1);
+    scheduler.faster();
+    scheduler.faster();
+    t.checkExpect(scheduler.tick(model), 4);
+    t.checkExpect(model.seenCount() <= 5, true);
+
+    scheduler.nextMode();
+    t.checkExpect(scheduler.mode(), SearchScheduler.BUDGET);
+    t.checkExpect(scheduler.tick(model) >= SearchScheduler.BUDGET_CHUNK
+        || !model.isSearching(), true);
+
+    scheduler.nextMode();
+    t.checkExpect(scheduler.mode(), SearchScheduler.COMPLETE);
+    scheduler.tick(model);
+    t.checkExpect(model.isSearching(), false);
+    t.checkExpect(model.pathLength(), model.distances().toEnd()[0] + 1);
+    t.checkExpect(scheduler.tick(model), 0);
+
+    scheduler.nextMode();
+    t.checkExpect(scheduler.mode(), SearchScheduler.STEPS);
+  }
+
+  void testSettings(Tester t) {
+    SearchScheduler scheduler = new SearchScheduler(SearchScheduler.BUDGET, 1, 8000000L);
+    scheduler.slower();
+    t.checkExpect(scheduler.budgetNanos(), 4000000L);
+    t.checkExpect(scheduler.describe(), "0 steps/s (4.0 ms/tick)");
+    scheduler.setMode(SearchScheduler.STEPS);
+    scheduler.slower();
+    t.checkExpect(scheduler.stepsPerTick(), 1);
+    t.checkException(new IllegalArgumentException("Unknown scheduling mode: fast"),
+        scheduler, "setMode", "fast");
+  }
+}
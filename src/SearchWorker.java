@@ -0,0 +1,450 @@
+import java.util.BitSet;
+
+import tester.Tester;
+
+// Represents one automatic search of a maze and everything it has cost so far
+// only one thread steps a run at a time (the animation, or a SearchWorker); after each
+// batch of steps it publishes an immutable SearchSnapshot, which any other thread may read
+// a run of a maze already solved with the same algorithm replays the cached solution
+// (see SolutionCache); a finished run that was not a replay is recorded in the Metrics
+// and the cache
+class SearchRun {
+  private static final int[] NO_PATH = new int[0];
+
+  final String algorithm;
+  final boolean replay;
+  private MazeGrid grid;
+  private long fingerprint;
+  private SolutionCache cache;
+  private ISolver search;
+  private long nanos;
+  private int frontierHighWater;
+  private boolean complete;
+  private volatile SearchSnapshot latest;
+
+  // begins a search of the maze with the given fingerprint from its start to its end
+  // with the named algorithm (see SolverFactory.ALGORITHMS)
+  SearchRun(String algorithm, MazeGrid grid, long fingerprint, SolutionCache cache) {
+    this.algorithm = algorithm;
+    this.grid = grid;
+    this.fingerprint = fingerprint;
+    this.cache = cache;
+
+    CachedSolution solution = cache.get(fingerprint, algorithm, 0, grid.size() - 1);
+    if (solution == null) {
+      this.search = new SolverFactory().create(algorithm, grid, 0, grid.size() - 1);
+      this.frontierHighWater = this.search.frontierSize();
+    }
+    else {
+      this.search = new ReplaySolver(solution, grid);
+      this.frontierHighWater = solution.frontierHighWater;
+    }
+    this.replay = solution != null;
+    this.publish();
+  }
+
+  // performs up to the given number of steps, stopping early if the search completes,
+  // then publishes a snapshot of the progress
+  // returns the number of steps performed
+  int performSteps(int count) {
+    long start = System.nanoTime();
+    int performed = 0;
+    while (performed < count && !this.complete) {
+      this.complete = this.search.step();
+      this.frontierHighWater = Math.max(this.frontierHighWater, this.search.frontierSize());
+      performed += 1;
+    }
+    this.nanos += System.nanoTime() - start;
+
+    if (performed > 0 && this.complete && !this.replay) {
+      Metrics.recordSearch(this.algorithm, this.search.seenCount(), this.frontierHighWater,
+          this.search.pathLength(), this.nanos);
+      this.cache.put(this.fingerprint, this.algorithm, 0, this.grid.size() - 1,
+          new CachedSolution(this.algorithm, this.search, this.grid, this.frontierHighWater,
+              this.nanos));
+    }
+    if (performed > 0) {
+      this.publish();
+    }
+    return performed;
+  }
+
+  // returns whether the search has finished (only for the thread stepping this run)
+  boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns the progress last published
+  SearchSnapshot snapshot() {
+    return this.latest;
+  }
+
+  // publishes the current progress
+  // (the volatile write makes every step before it visible to whoever reads the snapshot)
+  private void publish() {
+    int[] path = NO_PATH;
+    if (this.complete) {
+      path = this.search.path();
+    }
+    this.latest = new SearchSnapshot(this.search, this.search.seenCount(), path, this.complete,
+        this.nanos, this.frontierHighWater);
+  }
+}
+
+// Represents the progress of a SearchRun at one moment; it never changes
+// the tiles seen are read from the solver's expansion order, which is only ever appended to,
+// so the first seenCount of them are the same in every later snapshot
+class SearchSnapshot {
+  final int seenCount;
+  final boolean complete;
+  final long nanos;
+  final int frontierHighWater;
+  private ISolver search;
+  private int[] path;
+
+  SearchSnapshot(ISolver search, int seenCount, int[] path, boolean complete, long nanos,
+      int frontierHighWater) {
+    this.search = search;
+    this.seenCount = seenCount;
+    this.path = path;
+    this.complete = complete;
+    this.nanos = nanos;
+    this.frontierHighWater = frontierHighWater;
+  }
+
+  // returns the tile that was seen index-th, counting from 0
+  int seenTile(int index) {
+    if (index < 0 || index >= this.seenCount) {
+      throw new IllegalArgumentException("Tile " + index + " was not seen yet");
+    }
+    return this.search.seenTile(index);
+  }
+
+  // returns the tiles of the path found (empty until it is found), from the goal to the start
+  int[] path() {
+    return this.path;
+  }
+}
+
+// Shows one snapshot of a SearchRun at a time to the thread drawing it, with the seen tiles
+// and the path gathered into sets so each tile can be looked up
+// it only moves on to the newest snapshot when refreshed, so everything drawn in one frame
+// comes from the same snapshot; it belongs to the drawing thread alone
+class SearchView {
+  private SearchRun run;
+  private SearchSnapshot shown;
+  private BitSet seen;
+  private BitSet onPath;
+  private int gathered;
+  private int seenOnPath;
+
+  SearchView(SearchRun run, int size) {
+    this.run = run;
+    this.seen = new BitSet(size);
+    this.onPath = new BitSet(size);
+    this.refresh();
+  }
+
+  // moves on to the newest snapshot, adding the tiles seen since the one shown before
+  void refresh() {
+    SearchSnapshot latest = this.run.snapshot();
+    if (latest == this.shown) {
+      return;
+    }
+
+    for (int i = this.gathered; i < latest.seenCount; i += 1) {
+      this.seen.set(latest.seenTile(i));
+    }
+    this.gathered = latest.seenCount;
+    if (latest.complete && (this.shown == null || !this.shown.complete)) {
+      for (int tile : latest.path()) {
+        this.onPath.set(tile);
+        if (this.seen.get(tile)) {
+          this.seenOnPath += 1;
+        }
+      }
+    }
+    this.shown = latest;
+  }
+
+  // returns the snapshot shown
+  SearchSnapshot shown() {
+    return this.shown;
+  }
+
+  // returns whether the given tile had been seen in the snapshot shown
+  boolean wasSeen(int tile) {
+    return this.seen.get(tile);
+  }
+
+  // returns the number of tiles of the path that had been seen, once the snapshot shown has
+  // a path (a search of the junctions only sees the junctions along it)
+  int seenOnPath() {
+    return this.seenOnPath;
+  }
+
+  // returns whether the given tile is on the path, once the snapshot shown has one
+  boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+}
+
+// Steps a SearchRun on its own thread, so a long search never holds up drawing
+// the animation paces it by granting it steps (a number of them, as many as fit before a
+// deadline, or all of them; see SearchScheduler), and it can be paused, resumed or cancelled
+// the lock only guards those grants and controls, and is never held while stepping; whether
+// it is paused or cancelled can be read without it
+class SearchWorker implements Runnable {
+  // how many steps are performed between checks for new grants or a pause
+  static final int BATCH = 256;
+
+  private SearchRun run;
+  private Thread thread;
+  private Object lock;
+  private long allowance;
+  private long deadline;
+  private boolean unlimited;
+  private volatile boolean paused;
+  private volatile boolean cancelled;
+  private volatile long performed;
+  private volatile boolean finished;
+
+  // a worker for the given run, not yet started
+  SearchWorker(SearchRun run) {
+    this.run = run;
+    this.lock = new Object();
+    this.deadline = System.nanoTime();
+    this.thread = new Thread(this, "maze-search");
+    this.thread.setDaemon(true);
+  }
+
+  // starts stepping the run as steps are granted
+  void start() {
+    this.thread.start();
+  }
+
+  // grants the given number more steps (at most twice that many are ever owed, so a worker
+  // that falls behind does not race ahead later), in place of any deadline or grant of every
+  // step
+  void allowSteps(int steps) {
+    synchronized (this.lock) {
+      this.unlimited = false;
+      this.deadline = System.nanoTime();
+      this.allowance = Math.min(this.allowance + steps, 2L * steps);
+      this.lock.notifyAll();
+    }
+  }
+
+  // grants as many steps as can be performed before the given System.nanoTime(), in place of
+  // any grant of every step
+  void allowUntil(long deadline) {
+    synchronized (this.lock) {
+      this.unlimited = false;
+      this.deadline = deadline;
+      this.lock.notifyAll();
+    }
+  }
+
+  // grants every remaining step
+  void allowAll() {
+    synchronized (this.lock) {
+      this.unlimited = true;
+      this.lock.notifyAll();
+    }
+  }
+
+  // stops stepping after the current batch until resumed
+  void pause() {
+    synchronized (this.lock) {
+      this.paused = true;
+    }
+  }
+
+  // carries on stepping after a pause
+  void resume() {
+    synchronized (this.lock) {
+      this.paused = false;
+      this.lock.notifyAll();
+    }
+  }
+
+  // stops stepping for good after the current batch
+  void cancel() {
+    synchronized (this.lock) {
+      this.cancelled = true;
+      this.lock.notifyAll();
+    }
+  }
+
+  // returns whether the worker is paused
+  boolean isPaused() {
+    return this.paused;
+  }
+
+  // returns whether the worker was cancelled
+  boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  // returns whether the worker has stopped, having finished the search or been cancelled
+  boolean isFinished() {
+    return this.finished;
+  }
+
+  // returns the number of steps performed so far
+  long performed() {
+    return this.performed;
+  }
+
+  // waits up to the given number of milliseconds for the worker to stop
+  void join(long millis) throws InterruptedException {
+    this.thread.join(millis);
+  }
+
+  // performs granted steps a batch at a time until the search is complete or cancelled
+  public void run() {
+    try {
+      while (!this.run.isComplete()) {
+        int batch = this.nextBatch();
+        if (batch == 0) {
+          break;
+        }
+        int done = this.run.performSteps(batch);
+        this.performed += done;
+        synchronized (this.lock) {
+          this.allowance = Math.max(0, this.allowance - done);
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      this.finished = true;
+    }
+  }
+
+  // waits until steps are granted and the worker is not paused, then returns how many to
+  // perform next (0 once cancelled)
+  int nextBatch() throws InterruptedException {
+    synchronized (this.lock) {
+      while (true) {
+        if (this.cancelled) {
+          return 0;
+        }
+        if (!this.paused) {
+          if (this.unlimited || System.nanoTime() - this.deadline < 0) {
+            return BATCH;
+          }
+          if (this.allowance > 0) {
+            return (int) Math.min(this.allowance, BATCH);
+          }
+        }
+        this.lock.wait();
+      }
+    }
+  }
+}
+
+class ExamplesSearchWorker {
+
+  // a worker given every step finishes the search, and the view shows exactly its result
+  void testFinishes(Tester t) throws InterruptedException {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(60, 60, 4));
+    model.startSearch("bfs");
+    model.runInBackground();
+    model.worker().allowAll();
+    model.worker().join(10000);
+    model.refreshSearch();
+
+    MazeModel reference = new MazeModel(new MazeBuilder().buildMaze(60, 60, 4));
+    reference.startSearch("bfs");
+    reference.finishSearch();
+
+    t.checkExpect(model.worker().isFinished(), true);
+    t.checkExpect(model.isSearching(), false);
+    t.checkExpect(model.seenCount(), reference.seenCount());
+    t.checkExpect(model.pathLength(), reference.pathLength());
+    t.checkExpect(model.isOnPath(model.end()), true);
+    t.checkExpect(model.worker().performed(), (long) reference.seenCount());
+  }
+
+  // a worker only performs the steps it is granted, holds still while paused,
+  // and stops for good once cancelled
+  void testControls(Tester t) throws InterruptedException {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(60, 60, 5));
+    model.startSearch("dfs");
+    model.runInBackground();
+    SearchWorker worker = model.worker();
+
+    worker.allowSteps(10);
+    this.waitFor(worker, 10);
+    Thread.sleep(20);
+    t.checkExpect(worker.performed(), 10L);
+    model.refreshSearch();
+    t.checkExpect(model.seenCount(), 10);
+
+    model.togglePause();
+    t.checkExpect(model.isPaused(), true);
+    worker.allowSteps(5);
+    Thread.sleep(20);
+    t.checkExpect(worker.performed(), 10L);
+    model.togglePause();
+    this.waitFor(worker, 15);
+    t.checkExpect(worker.performed(), 15L);
+
+    model.cancelSearch();
+    worker.join(10000);
+    model.refreshSearch();
+    t.checkExpect(worker.isFinished(), true);
+    t.checkExpect(model.isCancelled(), true);
+    t.checkExpect(model.isSearching(), false);
+    t.checkExpect(model.seenCount(), 15);
+    t.checkExpect(model.pathLength(), 0);
+  }
+
+  // each grant replaces the one before, so a search granted every step slows down again once
+  // it is granted a number of steps
+  void testGrantsReplace(Tester t) throws InterruptedException {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(60, 60, 6));
+    model.startSearch("bfs");
+    model.runInBackground();
+    SearchWorker worker = model.worker();
+
+    model.togglePause();
+    worker.allowAll();
+    worker.allowSteps(1);
+    model.togglePause();
+    this.waitFor(worker, 1);
+    Thread.sleep(20);
+    t.checkExpect(worker.performed(), 1L);
+    Thread.sleep(20);
+    t.checkExpect(worker.performed(), 1L);
+    t.checkExpect(worker.isFinished(), false);
+    model.cancelSearch();
+    worker.join(10000);
+  }
+
+  // a snapshot only hands out the tiles seen by the time it was taken
+  void testSnapshot(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(10, 10, 1);
+    SearchRun run = new SearchRun("bfs", grid, grid.fingerprint(), new SolutionCache(0));
+    run.performSteps(3);
+    SearchSnapshot snapshot = run.snapshot();
+    run.performSteps(3);
+
+    t.checkExpect(snapshot.seenCount, 3);
+    t.checkExpect(run.snapshot().seenCount, 6);
+    t.checkExpect(snapshot.seenTile(0), 0);
+    t.checkException(new IllegalArgumentException("Tile 3 was not seen yet"), snapshot,
+        "seenTile", 3);
+  }
+
+  // waits until the worker has performed the given number of steps
+  void waitFor(SearchWorker worker, long steps) throws InterruptedException {
+    long giveUp = System.nanoTime() + 10000000000L;
+    while (worker.performed() < steps && System.nanoTime() < giveUp) {
+      Thread.sleep(1);
+    }
+  }
+}
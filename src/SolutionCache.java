@@ -0,0 +1,395 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+import tester.Tester;
+
+// Remembers finished searches, so solving the same maze between the same tiles with the same
+// algorithm again costs a lookup instead of a search
+// entries are keyed by the maze's fingerprint (see MazeGrid.fingerprint), the algorithm and
+// the two endpoints, and hold the order tiles were expanded in and the path found, both
+// compactly encoded (see CachedSolution)
+// once the entries take more than the byte budget, the least recently used are evicted
+// all methods are synchronized, so one cache can be shared by several threads
+class SolutionCache {
+  static final long DEFAULT_BUDGET = 64L << 20;
+
+  private long hits;
+  private long misses;
+  private BudgetCache<SolutionKey, CachedSolution> entries;
+
+  // a cache whose entries take at most the given number of bytes
+  SolutionCache(long budget) {
+    this.entries = new BudgetCache<SolutionKey, CachedSolution>(budget);
+  }
+
+  // returns the solution cached for the given search, or null if there is none
+  synchronized CachedSolution get(long fingerprint, String algorithm, int start, int goal) {
+    CachedSolution solution = this.entries.get(
+        new SolutionKey(fingerprint, algorithm, start, goal));
+    if (solution == null) {
+      this.misses += 1;
+    }
+    else {
+      this.hits += 1;
+    }
+    return solution;
+  }
+
+  // caches the given solution, evicting the least recently used entries to stay in budget
+  // (a solution larger than the whole budget is not cached)
+  synchronized void put(long fingerprint, String algorithm, int start, int goal,
+      CachedSolution solution) {
+    this.entries.put(new SolutionKey(fingerprint, algorithm, start, goal), solution);
+  }
+
+  // returns the number of lookups that found a solution
+  synchronized long hits() {
+    return this.hits;
+  }
+
+  // returns the number of lookups that found nothing
+  synchronized long misses() {
+    return this.misses;
+  }
+
+  // returns the number of solutions evicted to stay in budget
+  synchronized long evictions() {
+    return this.entries.evictions();
+  }
+
+  // returns the number of solutions cached
+  synchronized int size() {
+    return this.entries.size();
+  }
+
+  // returns the number of bytes the cached solutions take
+  synchronized long bytes() {
+    return this.entries.bytes();
+  }
+
+  // returns a one line summary of how well this cache is doing
+  synchronized String describe() {
+    long lookups = this.hits + this.misses;
+    return "solution cache: " + this.hits + " hits, " + this.misses + " misses ("
+        + String.format("%.1f", lookups == 0 ? 0.0 : this.hits * 100.0 / lookups) + "% hit), "
+        + this.entries.size() + " entries, "
+        + String.format("%.1f", this.entries.bytes() / 1048576.0) + " of "
+        + String.format("%.1f", this.entries.budget() / 1048576.0) + " MB, "
+        + this.entries.evictions() + " evicted";
+  }
+}
+
+// Identifies one search: the maze, the algorithm and the two endpoints
+class SolutionKey {
+  final long fingerprint;
+  final String algorithm;
+  final int start;
+  final int goal;
+
+  SolutionKey(long fingerprint, String algorithm, int start, int goal) {
+    this.fingerprint = fingerprint;
+    this.algorithm = algorithm;
+    this.start = start;
+    this.goal = goal;
+  }
+
+  // returns whether the other object identifies the same search
+  public boolean equals(Object other) {
+    if (!(other instanceof SolutionKey)) {
+      return false;
+    }
+    SolutionKey that = (SolutionKey) other;
+    return this.fingerprint == that.fingerprint && this.algorithm.equals(that.algorithm)
+        && this.start == that.start && this.goal == that.goal;
+  }
+
+  // returns a hash code consistent with equals
+  public int hashCode() {
+    int hash = Long.hashCode(this.fingerprint);
+    hash = hash * 31 + this.algorithm.hashCode();
+    hash = hash * 31 + this.start;
+    return hash * 31 + this.goal;
+  }
+}
+
+// Represents a finished search in a compact form
+// the expansion order is stored as the differences between successive tiles, zigzag encoded
+// (so small steps either way stay small) in variable length bytes; most searches move to a
+// nearby tile, so most tiles take one or two bytes
+// the path is stored as its first tile and then one 2-bit direction per step, since every
+// tile on it is next to the one before
+class CachedSolution implements ISized {
+  // the bytes an entry takes besides its two arrays: the entry, key and array headers
+  static final int OVERHEAD = 128;
+
+  final String algorithm;
+  final int seenCount;
+  final int frontierHighWater;
+  final int pathLength;
+  final long nanos;
+  private byte[] order;
+  private int pathFirst;
+  private byte[] steps;
+
+  // encodes the finished search of the given solver, which took the given time
+  CachedSolution(String algorithm, ISolver solver, MazeGrid grid, int frontierHighWater,
+      long nanos) {
+    if (!solver.isComplete()) {
+      throw new IllegalArgumentException("Search is not finished");
+    }
+    this.algorithm = algorithm;
+    this.seenCount = solver.seenCount();
+    this.frontierHighWater = frontierHighWater;
+    this.pathLength = solver.pathLength();
+    this.nanos = nanos;
+    this.order = this.encodeOrder(solver);
+    this.encodePath(solver.path(), grid);
+  }
+
+  // encodes the order the solver expanded its tiles in
+  byte[] encodeOrder(ISolver solver) {
+    byte[] buffer = new byte[Math.max(this.seenCount, 16)];
+    int length = 0;
+    int previous = 0;
+    for (int i = 0; i < this.seenCount; i += 1) {
+      int tile = solver.seenTile(i);
+      int delta = tile - previous;
+      int zigzag = (delta << 1) ^ (delta >> 31);
+      previous = tile;
+
+      if (length + 5 > buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      while ((zigzag & ~0x7f) != 0) {
+        buffer[length] = (byte) ((zigzag & 0x7f) | 0x80);
+        length += 1;
+        zigzag >>>= 7;
+      }
+      buffer[length] = (byte) zigzag;
+      length += 1;
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+
+  // encodes the given path through the given grid as its first tile and the directions of
+  // its steps
+  void encodePath(int[] path, MazeGrid grid) {
+    this.pathFirst = path.length == 0 ? -1 : path[0];
+    this.steps = new byte[(Math.max(path.length - 1, 0) + 3) / 4];
+    for (int i = 1; i < path.length; i += 1) {
+      int dir = MazeGrid.NORTH;
+      while (dir < MazeGrid.WEST && grid.neighbor(path[i - 1], dir) != path[i]) {
+        dir += 1;
+      }
+      this.steps[(i - 1) >> 2] |= (byte) (dir << (((i - 1) & 3) << 1));
+    }
+  }
+
+  // returns the tiles in the order they were expanded
+  int[] order() {
+    int[] tiles = new int[this.seenCount];
+    int position = 0;
+    int previous = 0;
+    for (int i = 0; i < tiles.length; i += 1) {
+      int zigzag = 0;
+      int shift = 0;
+      int next = this.order[position];
+      while ((next & 0x80) != 0) {
+        zigzag |= (next & 0x7f) << shift;
+        shift += 7;
+        position += 1;
+        next = this.order[position];
+      }
+      zigzag |= next << shift;
+      position += 1;
+
+      previous += (zigzag >>> 1) ^ -(zigzag & 1);
+      tiles[i] = previous;
+    }
+    return tiles;
+  }
+
+  // returns the tiles of the path through the given grid, from the goal back to the start
+  int[] path(MazeGrid grid) {
+    int[] tiles = new int[this.pathLength];
+    if (tiles.length > 0) {
+      tiles[0] = this.pathFirst;
+    }
+    for (int i = 1; i < tiles.length; i += 1) {
+      int dir = (this.steps[(i - 1) >> 2] >> (((i - 1) & 3) << 1)) & 3;
+      tiles[i] = grid.neighbor(tiles[i - 1], dir);
+    }
+    return tiles;
+  }
+
+  // returns the number of bytes this solution takes in a cache
+  public long bytes() {
+    return OVERHEAD + this.order.length + this.steps.length;
+  }
+
+  // returns the report of the search this solution came from
+  SolveReport report() {
+    return new SolveReport(this.algorithm, this.seenCount, this.frontierHighWater,
+        this.pathLength, this.nanos);
+  }
+}
+
+// Replays a cached search: each step reveals the next tile in the order the search expanded
+// them, and the last step reveals the path, so it draws just as the search did without
+// doing any of its work
+class ReplaySolver implements ISolver {
+  private int[] order;
+  private int[] path;
+  private int revealed;
+  private BitSet seen;
+  private BitSet onPath;
+  private boolean complete;
+
+  // replays the given solution of a search of the given grid
+  ReplaySolver(CachedSolution solution, MazeGrid grid) {
+    this.order = solution.order();
+    this.path = solution.path(grid);
+    this.seen = new BitSet(grid.size());
+    this.onPath = new BitSet(grid.size());
+  }
+
+  // reveals the next tile, or the path once every tile is revealed
+  public boolean step() {
+    if (this.revealed < this.order.length) {
+      this.seen.set(this.order[this.revealed]);
+      this.revealed += 1;
+    }
+    if (this.revealed == this.order.length && !this.complete) {
+      for (int tile : this.path) {
+        this.onPath.set(tile);
+      }
+      this.complete = true;
+    }
+    return this.complete;
+  }
+
+  // returns whether the path has been revealed
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  // returns whether the given tile has been revealed
+  public boolean wasSeen(int tile) {
+    return this.seen.get(tile);
+  }
+
+  // returns the tile that was revealed index-th, counting from 0
+  public int seenTile(int index) {
+    return this.order[index];
+  }
+
+  // returns whether the given tile is on the revealed path
+  public boolean isOnPath(int tile) {
+    return this.onPath.get(tile);
+  }
+
+  // returns the number of tiles revealed so far
+  public int seenCount() {
+    return this.revealed;
+  }
+
+  // returns 0: a replay keeps no frontier
+  public int frontierSize() {
+    return 0;
+  }
+
+  // returns the number of tiles on the path (0 until it is revealed)
+  public int pathLength() {
+    if (this.complete) {
+      return this.path.length;
+    }
+    return 0;
+  }
+
+  // returns the tiles of the path (empty until it is revealed), from the goal back to the start
+  public int[] path() {
+    if (this.complete) {
+      return this.path;
+    }
+    return new int[0];
+  }
+}
+
+class ExamplesSolutionCache {
+
+  // a cached search decodes to exactly the order and path the search produced
+  void testEncoding(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(45, 31, 8);
+    for (String algorithm : SolverFactory.ALGORITHMS) {
+      ISolver solver = new SolverFactory().create(algorithm, grid, 0, grid.size() - 1);
+      while (!solver.step()) {
+        // keeps stepping
+      }
+      CachedSolution solution = new CachedSolution(algorithm, solver, grid, 7, 100);
+      int[] order = new int[solver.seenCount()];
+      for (int i = 0; i < order.length; i += 1) {
+        order[i] = solver.seenTile(i);
+      }
+
+      t.checkExpect(solution.order(), order, algorithm);
+      t.checkExpect(solution.path(grid), solver.path(), algorithm);
+      t.checkExpect(solution.bytes() < CachedSolution.OVERHEAD + 2L * order.length, true,
+          algorithm);
+
+      ReplaySolver replay = new ReplaySolver(solution, grid);
+      int steps = 1;
+      while (!replay.step()) {
+        steps += 1;
+      }
+      t.checkExpect(steps, order.length, algorithm);
+      t.checkExpect(replay.seenCount(), solver.seenCount(), algorithm);
+      t.checkExpect(replay.path(), solver.path(), algorithm);
+      t.checkExpect(replay.isOnPath(grid.size() - 1), true, algorithm);
+    }
+  }
+
+  // lookups count as hits or misses, and the least recently used entries go first
+  void testEviction(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(20, 20, 2);
+    long fingerprint = grid.fingerprint();
+    CachedSolution solution = new SolverFactory().solveForCache("bfs", grid, 0, 399);
+    SolutionCache cache = new SolutionCache(solution.bytes() * 2);
+
+    t.checkExpect(cache.get(fingerprint, "bfs", 0, 399), null);
+    cache.put(fingerprint, "bfs", 0, 399, solution);
+    cache.put(fingerprint, "bfs", 0, 1, solution);
+    t.checkExpect(cache.get(fingerprint, "bfs", 0, 399), solution);
+    cache.put(fingerprint, "bfs", 0, 2, solution);
+
+    t.checkExpect(cache.size(), 2);
+    t.checkExpect(cache.get(fingerprint, "bfs", 0, 1), null);
+    t.checkExpect(cache.get(fingerprint, "bfs", 0, 399), solution);
+    t.checkExpect(cache.get(fingerprint, "dfs", 0, 399), null);
+    t.checkExpect(cache.get(fingerprint + 1, "bfs", 0, 399), null);
+    t.checkExpect(cache.hits(), 2L);
+    t.checkExpect(cache.misses(), 4L);
+    t.checkExpect(cache.evictions(), 1L);
+    t.checkExpect(cache.bytes(), solution.bytes() * 2);
+    t.checkExpect(new MazeBuilder().buildMaze(20, 20, 3).fingerprint() == fingerprint, false);
+    t.checkExpect(new MazeBuilder().buildMaze(20, 20, 2).fingerprint(), fingerprint);
+  }
+
+  // solving the same maze again replays the cached search instead of running it
+  void testModel(Tester t) {
+    MazeModel model = new MazeModel(new MazeBuilder().buildMaze(30, 30, 5));
+    model.startSearch("dfs");
+    model.finishSearch();
+    int seen = model.seenCount();
+    int length = model.pathLength();
+    t.checkExpect(model.isReplay(), false);
+
+    model.clear();
+    model.startSearch("dfs");
+    t.checkExpect(model.isReplay(), true);
+    model.finishSearch();
+    t.checkExpect(model.seenCount(), seen);
+    t.checkExpect(model.pathLength(), length);
+    t.checkExpect(model.solutionCache().hits(), 1L);
+    t.checkExpect(model.solutionCache().misses(), 1L);
+  }
+}
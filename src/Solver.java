@@ -0,0 +1,188 @@
+import tester.Tester;
+
+// represents a maze solver that can be run one step at a time,
+// so it can be animated or run to completion
+interface ISolver {
+
+  // performs the next step of the solver
+  // returns whether the solver is complete
+  boolean step();
+
+  // returns whether the solver has found the path or given up
+  boolean isComplete();
+
+  // returns whether the given tile has been expanded (or, for a filling solver, filled)
+  boolean wasSeen(int tile);
+
+  // returns the tile that was expanded (or filled) index-th, counting from 0
+  // (tiles are only ever appended, so earlier answers never change)
+  int seenTile(int index);
+
+  // returns whether the given tile is on the path found
+  boolean isOnPath(int tile);
+
+  // returns the number of tiles expanded so far
+  int seenCount();
+
+  // returns the number of entries waiting to be expanded (or filled)
+  int frontierSize();
+
+  // returns the number of tiles on the path found (0 until it is found)
+  int pathLength();
+
+  // returns the tiles of the path found, from the goal back to the start
+  int[] path();
+}
+
+// Creates solvers by name, so they can be picked from the keyboard or the command line
+class SolverFactory {
+  static final String[] ALGORITHMS = {"dfs", "bfs", "astar", "bidirectional", "deadend",
+      "junction"};
+
+  // returns a solver running the named algorithm from start to goal in the given maze
+  ISolver create(String algorithm, MazeGrid grid, int start, int goal) {
+    if (algorithm.equals("dfs")) {
+      return new GridSearch(grid, new MazeStack(), start, goal);
+    }
+    else if (algorithm.equals("bfs")) {
+      return new GridSearch(grid, new MazeQueue(), start, goal);
+    }
+    else if (algorithm.equals("astar")) {
+      return new AStarSearch(grid, start, goal);
+    }
+    else if (algorithm.equals("bidirectional")) {
+      return new BidirectionalSearch(grid, start, goal);
+    }
+    else if (algorithm.equals("deadend")) {
+      return new DeadEndFiller(grid, start, goal);
+    }
+    else if (algorithm.equals("junction")) {
+      // contracting the maze costs about as much as one breadth first search of it, so the
+      // graph is kept for later searches of the same maze
+      return JunctionGraph.of(grid).search(start, goal);
+    }
+    throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+  }
+
+  // runs the named algorithm to completion and reports what it cost
+  SolveReport solve(String algorithm, MazeGrid grid, int start, int goal) {
+    long begin = System.nanoTime();
+    return this.run(algorithm, this.create(algorithm, grid, start, goal), begin);
+  }
+
+  // reports the named algorithm's search of the maze with the given fingerprint
+  // (see MazeGrid.fingerprint) from the given cache, running and caching it if it is not there
+  SolveReport solve(String algorithm, MazeGrid grid, long fingerprint, int start, int goal,
+      SolutionCache cache) {
+    CachedSolution solution = cache.get(fingerprint, algorithm, start, goal);
+    if (solution == null) {
+      solution = this.solveForCache(algorithm, grid, start, goal);
+      cache.put(fingerprint, algorithm, start, goal, solution);
+    }
+    return solution.report();
+  }
+
+  // runs the named algorithm to completion and encodes its search for a SolutionCache
+  CachedSolution solveForCache(String algorithm, MazeGrid grid, int start, int goal) {
+    long begin = System.nanoTime();
+    ISolver solver = this.create(algorithm, grid, start, goal);
+    SolveReport report = this.run(algorithm, solver, begin);
+    return new CachedSolution(algorithm, solver, grid, report.frontierHighWater, report.nanos);
+  }
+
+  // runs the given solver, created at the given time, to completion and reports what it cost
+  SolveReport run(String algorithm, ISolver solver, long begin) {
+    int frontierHighWater = solver.frontierSize();
+    while (!solver.step()) {
+      frontierHighWater = Math.max(frontierHighWater, solver.frontierSize());
+    }
+    long elapsed = System.nanoTime() - begin;
+    Metrics.recordSearch(algorithm, solver.seenCount(), frontierHighWater, solver.pathLength(),
+        elapsed);
+    return new SolveReport(algorithm, solver.seenCount(), frontierHighWater,
+        solver.pathLength(), elapsed);
+  }
+}
+
+// Represents what running a solver to completion cost
+class SolveReport {
+  final String algorithm;
+  final int nodesExpanded;
+  final int frontierHighWater;
+  final int pathLength;
+  final long nanos;
+
+  SolveReport(String algorithm, int nodesExpanded, int frontierHighWater, int pathLength,
+      long nanos) {
+    this.algorithm = algorithm;
+    this.nodesExpanded = nodesExpanded;
+    this.frontierHighWater = frontierHighWater;
+    this.pathLength = pathLength;
+    this.nanos = nanos;
+  }
+
+  // returns a one line summary of this report
+  String describe() {
+    return "solved with " + this.algorithm + " in " + String.format("%.2f", this.nanos / 1e6)
+        + " ms: path " + this.pathLength + " tiles, " + this.nodesExpanded + " tiles expanded"
+        + ", frontier peak " + this.frontierHighWater;
+  }
+}
+
+class ExamplesSolver {
+
+  // every solver finds the unique path through a perfect maze
+  void testSolversAgree(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(75, 60, 21);
+    int goal = grid.size() - 1;
+    int expected = new DistanceField(grid).toEnd()[0] + 1;
+    SolverFactory factory = new SolverFactory();
+
+    for (String algorithm : SolverFactory.ALGORITHMS) {
+      ISolver solver = factory.create(algorithm, grid, 0, goal);
+      while (!solver.step()) {
+        t.checkExpect(solver.isComplete(), false);
+      }
+
+      t.checkExpect(solver.pathLength(), expected, algorithm);
+      t.checkExpect(solver.path()[0], goal, algorithm);
+      t.checkExpect(solver.path()[expected - 1], 0, algorithm);
+      t.checkExpect(solver.isOnPath(grid.id(0, 0)), true, algorithm);
+    }
+  }
+
+  // A* is never worse than breadth first search, and the report counts the same tiles
+  void testReports(Tester t) {
+    MazeGrid grid = new MazeBuilder().buildMaze(50, 50, 2);
+    SolverFactory factory = new SolverFactory();
+    SolveReport astar = factory.solve("astar", grid, 0, grid.size() - 1);
+    SolveReport bfs = factory.solve("bfs", grid, 0, grid.size() - 1);
+
+    t.checkExpect(astar.nodesExpanded <= bfs.nodesExpanded, true);
+    t.checkExpect(astar.pathLength, bfs.pathLength);
+    t.checkException(new IllegalArgumentException("Unknown algorithm: bogo"),
+        factory, "create", "bogo", grid, 0, 1);
+  }
+
+  // meeting in the middle still finds the shortest path when the maze has loops
+  void testBidirectionalShortest(Tester t) {
+    MazeGrid grid = new MazeGrid(4, 4);
+    for (int y = 0; y < 4; y += 1) {
+      for (int x = 0; x < 3; x += 1) {
+        grid.open(x, y, MazeGrid.EAST);
+      }
+    }
+    grid.open(0, 0, MazeGrid.SOUTH);
+    grid.open(0, 1, MazeGrid.SOUTH);
+    grid.open(0, 2, MazeGrid.SOUTH);
+    grid.open(3, 0, MazeGrid.SOUTH);
+    grid.open(3, 1, MazeGrid.SOUTH);
+    grid.open(3, 2, MazeGrid.SOUTH);
+    ISolver solver = new BidirectionalSearch(grid, 0, 15);
+    while (!solver.step()) {
+      // keeps stepping
+    }
+
+    t.checkExpect(solver.pathLength(), 7);
+  }
+}
@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import tester.Tester;
+
+// Builds perfect mazes one row at a time with Eller's algorithm, handing each row to a sink
+// as soon as it is finished, so only a few arrays as long as one row are ever held
+// every tile of a row belongs to a set of tiles already connected through the rows above;
+// neighbors in different sets are joined at random (all of them on the last row, which
+// finishes the spanning tree), and every set opens down at least once so nothing is cut off
+class StreamingMazeBuilder {
+  private SplittableRandom random;
+  private long coins;
+  private int coinsLeft;
+
+  // streams a random maze of the given size, built from the given seed, to the given sink
+  void buildMaze(int width, int height, long seed, IRowSink sink) throws IOException {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Maze dimensions cannot be negative");
+    }
+
+    this.random = new SplittableRandom(seed);
+    this.coinsLeft = 0;
+    byte[] walls = new byte[width];
+    int[] sets = new int[width];
+    int[] carried = new int[width];
+    int[] relabel = new int[width];
+    int[] remaining = new int[width];
+    boolean[] openedDown = new boolean[width];
+    UnionFind joined = new UnionFind(width);
+
+    sink.begin(width, height, seed);
+    Arrays.fill(carried, -1);
+
+    for (int y = 0; y < height; y += 1) {
+      boolean lastRow = y == height - 1;
+      Arrays.fill(walls, (byte) 0);
+
+      // numbers the sets carried down from the row above from 0,
+      // then gives every tile nothing opened onto a set of its own
+      Arrays.fill(relabel, -1);
+      int labels = 0;
+      for (int x = 0; x < width; x += 1) {
+        if (carried[x] != -1) {
+          if (relabel[carried[x]] == -1) {
+            relabel[carried[x]] = labels;
+            labels += 1;
+          }
+          sets[x] = relabel[carried[x]];
+        }
+      }
+      for (int x = 0; x < width; x += 1) {
+        if (carried[x] == -1) {
+          sets[x] = labels;
+          labels += 1;
+        }
+      }
+      joined.reset();
+
+      // joins neighbors in different sets
+      for (int x = 0; x < width - 1; x += 1) {
+        if (!joined.isConnected(sets[x], sets[x + 1]) && (lastRow || this.flip())) {
+          joined.union(sets[x], sets[x + 1]);
+          walls[x] |= MazeGrid.EAST_BIT;
+        }
+      }
+
+      // opens each set down at least once, its last tile opening if none before it did
+      if (!lastRow) {
+        Arrays.fill(remaining, 0);
+        Arrays.fill(openedDown, false);
+        for (int x = 0; x < width; x += 1) {
+          remaining[joined.find(sets[x])] += 1;
+        }
+        for (int x = 0; x < width; x += 1) {
+          int set = joined.find(sets[x]);
+          remaining[set] -= 1;
+          if (this.flip() || (remaining[set] == 0 && !openedDown[set])) {
+            openedDown[set] = true;
+            walls[x] |= MazeGrid.SOUTH_BIT;
+            carried[x] = set;
+          }
+          else {
+            carried[x] = -1;
+          }
+        }
+      }
+
+      sink.acceptRow(walls);
+    }
+    sink.end();
+  }
+
+  // returns a random boolean, taking one bit at a time from a random long
+  boolean flip() {
+    if (this.coinsLeft == 0) {
+      this.coins = this.random.nextLong();
+      this.coinsLeft = 64;
+    }
+    boolean heads = (this.coins & 1) != 0;
+    this.coins >>>= 1;
+    this.coinsLeft -= 1;
+    return heads;
+  }
+}
+
+// Receives a maze one row at a time, from the top
+interface IRowSink {
+
+  // prepares for a maze of the given size built from the given seed
+  void begin(int width, int height, long seed) throws IOException;
+
+  // receives the walls of the next row, one byte per tile holding MazeGrid.EAST_BIT and
+  // MazeGrid.SOUTH_BIT for its openings (the array is reused for the following rows)
+  void acceptRow(byte[] walls) throws IOException;
+
+  // is told that every row has been received
+  void end() throws IOException;
+}
+
+// Collects the rows of a maze into a MazeGrid
+class GridRowSink implements IRowSink {
+  private MazeGrid grid;
+  private int y;
+
+  // starts a grid of the given size
+  public void begin(int width, int height, long seed) {
+    this.grid = new MazeGrid(width, height);
+    this.y = 0;
+  }
+
+  // opens the walls of the next row of the grid
+  public void acceptRow(byte[] walls) {
+    for (int x = 0; x < walls.length; x += 1) {
+      if ((walls[x] & MazeGrid.EAST_BIT) != 0) {
+        this.grid.open(x, this.y, MazeGrid.EAST);
+      }
+      if ((walls[x] & MazeGrid.SOUTH_BIT) != 0) {
+        this.grid.open(x, this.y, MazeGrid.SOUTH);
+      }
+    }
+    this.y += 1;
+  }
+
+  // nothing is left to do
+  public void end() {
+    // every row went straight into the grid
+  }
+
+  // returns the grid collected
+  MazeGrid grid() {
+    return this.grid;
+  }
+}
+
+// Writes the rows of a maze to a channel in the MazeFile format,
+// packing them into words as they arrive
+class FileRowSink implements IRowSink {
+  private WritableByteChannel channel;
+  private ByteBuffer buffer;
+  private long word;
+  private int tilesInWord;
+
+  // writes to the given channel, which is left open
+  FileRowSink(WritableByteChannel channel) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(MazeFile.BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  // writes the header
+  public void begin(int width, int height, long seed) throws IOException {
+    this.writeFully(MazeFile.header(width, height, seed));
+    this.word = 0;
+    this.tilesInWord = 0;
+  }
+
+  // packs the walls of the next row, writing out every word filled
+  public void acceptRow(byte[] walls) throws IOException {
+    for (int x = 0; x < walls.length; x += 1) {
+      this.word |= (long) walls[x] << (this.tilesInWord << 1);
+      this.tilesInWord += 1;
+      if (this.tilesInWord == 32) {
+        this.putWord();
+      }
+    }
+  }
+
+  // writes out the last, partly filled word and everything still buffered
+  public void end() throws IOException {
+    if (this.tilesInWord > 0) {
+      this.putWord();
+    }
+    this.buffer.flip();
+    this.writeFully(this.buffer);
+    this.buffer.clear();
+  }
+
+  // adds the current word to the buffer, writing the buffer out when it is full
+  void putWord() throws IOException {
+    if (!this.buffer.hasRemaining()) {
+      this.buffer.flip();
+      this.writeFully(this.buffer);
+      this.buffer.clear();
+    }
+    this.buffer.putLong(this.word);
+    this.word = 0;
+    this.tilesInWord = 0;
+  }
+
+  // writes everything remaining in the given buffer to the channel
+  void writeFully(ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      this.channel.write(bytes);
+    }
+  }
+}
+
+class ExamplesStreamingMazeBuilder {
+
+  // builds the given maze into a grid
+  MazeGrid build(int width, int height, long seed) throws IOException {
+    GridRowSink sink = new GridRowSink();
+    new StreamingMazeBuilder().buildMaze(width, height, seed, sink);
+    return sink.grid();
+  }
+
+  // every streamed maze is a spanning tree: one fewer opening than tiles, all reachable
+  void testPerfectMaze(Tester t) throws IOException {
+    int[][] sizes = {{1, 1}, {1, 9}, {9, 1}, {2, 2}, {37, 23}, {200, 150}};
+    for (int[] size : sizes) {
+      new ExamplesMazeGrid().checkSpanningTree(t, this.build(size[0], size[1], 5),
+          size[0] + "x" + size[1]);
+    }
+  }
+
+  // streaming to a file writes what MazeFile reads back, and the same seed builds the same maze
+  void testStreamToFile(Tester t) throws IOException {
+    Path file = Files.createTempFile("maze", ".bin");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      new StreamingMazeBuilder().buildMaze(101, 33, 8, new FileRowSink(channel));
+    }
+
+    t.checkExpect(new MazeFile().load(file), this.build(101, 33, 8));
+    t.checkExpect(new MazeFile().map(file).seed, 8L);
+    Files.delete(file);
+  }
+}
@@ -0,0 +1,221 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import tester.Tester;
+
+// Represents the cost of entering each tile of a maze, a small positive integer per tile
+// terrain comes in patches: ground, mud and water, each patch a square of tiles of one kind
+class TerrainCosts {
+  static final int GROUND = 1;
+  static final int MUD = 3;
+  static final int WATER = 7;
+  static final int MAX_COST = 255;
+
+  final int width;
+  final int height;
+  private byte[] costs;
+  private int maxCost;
+
+  // terrain of the given size whose tiles cost as given, indexed by tile id
+  TerrainCosts(int width, int height, byte[] costs) {
+    if (costs.length != tiles(width, height)) {
+      throw new IllegalArgumentException("Expected " + (long) width * height + " costs");
+    }
+    this.width = width;
+    this.height = height;
+    this.costs = costs;
+    for (int tile = 0; tile < costs.length; tile += 1) {
+      int cost = costs[tile] & 0xff;
+      if (cost == 0) {
+        throw new IllegalArgumentException("Tile " + tile + " costs nothing to enter");
+      }
+      this.maxCost = Math.max(this.maxCost, cost);
+    }
+  }
+
+  // returns the number of tiles of terrain of the given size, if they fit in an array
+  static int tiles(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Terrain dimensions cannot be negative");
+    }
+    if ((long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Terrain has too many tiles");
+    }
+    return width * height;
+  }
+
+  // terrain of the given size where every tile costs 1
+  static TerrainCosts uniform(int width, int height) {
+    byte[] costs = new byte[tiles(width, height)];
+    Arrays.fill(costs, (byte) GROUND);
+    return new TerrainCosts(width, height, costs);
+  }
+
+  // terrain of the given size in square patches of the given size drawn from the given seed:
+  // about 60% ground, 25% mud and 15% water (the same seed always draws the same terrain)
+  static TerrainCosts patches(int width, int height, int patchSize, long seed) {
+    if (patchSize < 1) {
+      throw new IllegalArgumentException("Patches must be at least 1 tile wide");
+    }
+    int size = tiles(width, height);
+    int across = (width + patchSize - 1) / patchSize;
+    int down = (height + patchSize - 1) / patchSize;
+    byte[] kinds = new byte[across * down];
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int patch = 0; patch < kinds.length; patch += 1) {
+      int roll = random.nextInt(100);
+      if (roll < 60) {
+        kinds[patch] = GROUND;
+      }
+      else if (roll < 85) {
+        kinds[patch] = MUD;
+      }
+      else {
+        kinds[patch] = WATER;
+      }
+    }
+
+    byte[] costs = new byte[size];
+    for (int y = 0; y < height; y += 1) {
+      for (int x = 0; x < width; x += 1) {
+        costs[y * width + x] = kinds[(y / patchSize) * across + x / patchSize];
+      }
+    }
+    return new TerrainCosts(width, height, costs);
+  }
+
+  // returns the cost of entering the given tile
+  int cost(int tile) {
+    return this.costs[tile] & 0xff;
+  }
+
+  // returns the highest cost of entering any tile
+  int maxCost() {
+    return this.maxCost;
+  }
+}
+
+// Turns a perfect maze into a braided one, with loops, by reopening a fraction of its closed
+// inner walls: exactly the walls the generator rejected, since they would have closed a loop
+class Braider {
+
+  // reopens the given fraction (from 0 to 1) of the closed walls between tiles of the grid,
+  // chosen with the given seed
+  // returns the number of walls reopened
+  int braid(MazeGrid grid, double fraction, long seed) {
+    if (fraction < 0 || fraction > 1) {
+      throw new IllegalArgumentException("Fraction must be from 0 to 1");
+    }
+
+    // the closed walls are counted first, since twice the tiles may not fit in an array
+    Phase phase = Metrics.begin("braid");
+    long walls = 0;
+    for (int id = 0; id < grid.size(); id += 1) {
+      if (grid.hasNeighbor(id, MazeGrid.EAST) && !grid.isOpen(id, MazeGrid.EAST)) {
+        walls += 1;
+      }
+      if (grid.hasNeighbor(id, MazeGrid.SOUTH) && !grid.isOpen(id, MazeGrid.SOUTH)) {
+        walls += 1;
+      }
+    }
+    if (walls > Integer.MAX_VALUE - 8) {
+      phase.end();
+      throw new IllegalArgumentException("Maze has too many closed walls to braid");
+    }
+
+    int[] closed = new int[(int) walls];
+    int count = 0;
+    for (int id = 0; id < grid.size(); id += 1) {
+      if (grid.hasNeighbor(id, MazeGrid.EAST) && !grid.isOpen(id, MazeGrid.EAST)) {
+        closed[count] = grid.edge(id, MazeGrid.EAST);
+        count += 1;
+      }
+      if (grid.hasNeighbor(id, MazeGrid.SOUTH) && !grid.isOpen(id, MazeGrid.SOUTH)) {
+        closed[count] = grid.edge(id, MazeGrid.SOUTH);
+        count += 1;
+      }
+    }
+
+    // a partial shuffle picks the walls to reopen
+    int reopen = (int) Math.round(count * fraction);
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int i = 0; i < reopen; i += 1) {
+      int pick = i + random.nextInt(count - i);
+      int edge = closed[pick];
+      closed[pick] = closed[i];
+      grid.openEdge(edge);
+    }
+    phase.end();
+    return reopen;
+  }
+}
+
+// Generates a perfect maze with another generator, then braids it
+class BraidedGenerator implements IMazeGenerator {
+  private IMazeGenerator base;
+  private double fraction;
+
+  BraidedGenerator(IMazeGenerator base, double fraction) {
+    if (fraction < 0 || fraction > 1) {
+      throw new IllegalArgumentException("Fraction must be from 0 to 1");
+    }
+    this.base = base;
+    this.fraction = fraction;
+  }
+
+  // carves a perfect maze and reopens the fraction of its closed walls
+  public void carve(MazeGrid grid, long seed) {
+    this.base.carve(grid, seed);
+    new Braider().braid(grid, this.fraction, ~seed);
+  }
+}
+
+class ExamplesTerrain {
+
+  // counts the open walls between tiles of the grid
+  int openings(MazeGrid grid) {
+    return new ExamplesMazeGrid().openings(grid);
+  }
+
+  void testBraid(Tester t) {
+    int walls = 19 * 20 + 20 * 19;
+    MazeGrid none = new MazeBuilder().buildMaze(20, 20, 1);
+    t.checkExpect(new Braider().braid(none, 0, 1), 0);
+    t.checkExpect(this.openings(none), 399);
+
+    MazeGrid half = new MazeBuilder().buildMaze(20, 20, 1);
+    t.checkExpect(new Braider().braid(half, 0.5, 1), (walls - 399) / 2 + 1);
+    t.checkExpect(this.openings(half), 399 + (walls - 399) / 2 + 1);
+
+    MazeGrid all = new MazeGrid(20, 20);
+    new BraidedGenerator(new PrimGenerator(), 1).carve(all, 3);
+    t.checkExpect(this.openings(all), walls);
+    t.checkConstructorException(new IllegalArgumentException("Fraction must be from 0 to 1"),
+        "BraidedGenerator", new MazeBuilder(), 1.5);
+  }
+
+  void testCosts(Tester t) {
+    TerrainCosts terrain = TerrainCosts.patches(10, 7, 3, 4);
+    boolean patchy = true;
+    int[] counts = new int[TerrainCosts.WATER + 1];
+    for (int y = 0; y < 7; y += 1) {
+      for (int x = 0; x < 10; x += 1) {
+        int cost = terrain.cost(y * 10 + x);
+        counts[cost] += 1;
+        patchy = patchy && cost == terrain.cost((y - y % 3) * 10 + x - x % 3);
+      }
+    }
+    t.checkExpect(patchy, true);
+    t.checkExpect(counts[TerrainCosts.GROUND] + counts[TerrainCosts.MUD]
+        + counts[TerrainCosts.WATER], 70);
+    t.checkExpect(TerrainCosts.uniform(3, 2).maxCost(), 1);
+    t.checkConstructorException(new IllegalArgumentException("Tile 1 costs nothing to enter"),
+        "TerrainCosts", 2, 1, new byte[] {1, 0});
+
+    // sizes past an array's reach are refused instead of wrapping around
+    t.checkConstructorException(new IllegalArgumentException("Terrain has too many tiles"),
+        "TerrainCosts", 65536, 65536, new byte[0]);
+    t.checkException(new IllegalArgumentException("Terrain has too many tiles"),
+        new TerrainCosts(1, 1, new byte[] {1}), "uniform", 50000, 50000);
+  }
+}
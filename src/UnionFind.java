@@ -0,0 +1,111 @@
+import tester.Tester;
+
+// A disjoint-set forest over tile ids 0 .. size - 1, stored in primitive arrays
+// (used by Kruskal's algorithm to track which tiles are already connected)
+class UnionFind {
+  private int[] parent;
+  private byte[] rank;
+
+  // creates size singleton groups, each tile being its own representative
+  UnionFind(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Size cannot be negative");
+    }
+
+    this.parent = new int[size];
+    this.rank = new byte[size];
+    this.reset();
+  }
+
+  // puts every tile back in a group of its own
+  void reset() {
+    for (int id = 0; id < this.parent.length; id += 1) {
+      this.parent[id] = id;
+      this.rank[id] = 0;
+    }
+  }
+
+  // returns the representative of the group the given tile id is in,
+  // pointing every tile on the way directly at the representative
+  int find(int id) {
+    int root = id;
+    while (this.parent[root] != root) {
+      root = this.parent[root];
+    }
+
+    // second pass compresses the path walked above
+    int current = id;
+    while (this.parent[current] != root) {
+      int next = this.parent[current];
+      this.parent[current] = root;
+      current = next;
+    }
+
+    return root;
+  }
+
+  // determines whether the two given tile ids are in the same group
+  boolean isConnected(int id1, int id2) {
+    return this.find(id1) == this.find(id2);
+  }
+
+  // joins the groups of the two given tile ids, hanging the shallower tree under the deeper one
+  // returns false if the tiles were already in the same group
+  boolean union(int id1, int id2) {
+    int root1 = this.find(id1);
+    int root2 = this.find(id2);
+
+    if (root1 == root2) {
+      return false;
+    }
+
+    if (this.rank[root1] < this.rank[root2]) {
+      this.parent[root1] = root2;
+    }
+    else if (this.rank[root1] > this.rank[root2]) {
+      this.parent[root2] = root1;
+    }
+    else {
+      this.parent[root2] = root1;
+      this.rank[root1] += 1;
+    }
+    return true;
+  }
+
+  // returns the number of tile ids in this forest
+  int size() {
+    return this.parent.length;
+  }
+}
+
+class ExamplesUnionFind {
+
+  void testUnion(Tester t) {
+    UnionFind sets = new UnionFind(4);
+
+    t.checkExpect(sets.isConnected(0, 1), false);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.union(1, 0), false);
+    t.checkExpect(sets.isConnected(0, 1), true);
+    t.checkExpect(sets.isConnected(1, 2), false);
+    t.checkExpect(sets.union(2, 3), true);
+    t.checkExpect(sets.union(3, 0), true);
+    t.checkExpect(sets.isConnected(2, 1), true);
+  }
+
+  // a single 1 x 10,000,000 corridor joined end to end is the deepest chain the old
+  // recursive hash map lookup could be given, so it must not overflow the stack
+  void testLongCorridorTree(Tester t) {
+    int length = 10000000;
+    MazeGrid grid = new MazeGrid(1, length);
+    int[] edges = new int[length - 1];
+
+    for (int y = 0; y < length - 1; y += 1) {
+      edges[y] = grid.edge(y, MazeGrid.SOUTH);
+    }
+
+    int[] tree = new KruskalTreeBuilder(grid, edges).createTree();
+
+    t.checkExpect(tree.length, length - 1);
+  }
+}
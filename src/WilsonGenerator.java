@@ -0,0 +1,48 @@
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// Builds mazes with Wilson's algorithm, which picks uniformly among all spanning trees:
+// from each tile not yet in the tree, a random walk wanders until it hits the tree, and the
+// walk with its loops erased is added to the tree
+// loops are erased by remembering only the last way the walk left each tile, so retracing
+// those exits from the start of the walk follows the loop-erased path
+class WilsonGenerator implements IMazeGenerator {
+
+  // opens the walls of the given grid along a spanning tree drawn from the given seed
+  public void carve(MazeGrid grid, long seed) {
+    if (grid.size() == 0) {
+      return;
+    }
+
+    SplittableRandom random = new SplittableRandom(seed);
+    BitSet inTree = new BitSet(grid.size());
+    byte[] exits = new byte[grid.size()];
+    inTree.set(random.nextInt(grid.size()));
+
+    for (int start = 0; start < grid.size(); start += 1) {
+      int tile = start;
+      while (!inTree.get(tile)) {
+        int dir = this.randomDirection(grid, tile, random);
+        exits[tile] = (byte) dir;
+        tile = grid.neighbor(tile, dir);
+      }
+
+      tile = start;
+      while (!inTree.get(tile)) {
+        int next = grid.neighbor(tile, exits[tile]);
+        grid.connect(tile, next);
+        inTree.set(tile);
+        tile = next;
+      }
+    }
+  }
+
+  // returns a random direction in which the given tile has a neighbor
+  int randomDirection(MazeGrid grid, int tile, SplittableRandom random) {
+    int dir = random.nextInt(4);
+    while (!grid.hasNeighbor(tile, dir)) {
+      dir = random.nextInt(4);
+    }
+    return dir;
+  }
+}
@@ -1,14 +1,11 @@
-import java.util.ArrayDeque;
-
-
-// represents a worklist containing mazetiles
+// represents a worklist containing the ids of maze tiles
 interface IWorkList {
   
   // Adds a tile to the worklist
-  void add(MazeTile tile);
+  void add(int tile);
   
   // Removes a tile from the worklist and return it
-  MazeTile remove();
+  int remove();
   
   // Determines whether this WorkList is empty
   boolean isEmpty();
@@ -17,22 +14,22 @@ interface IWorkList {
   int size();
 }
 
-// Represents a stack of MazeTiles (LIFO)
+// Represents a stack of tile ids (LIFO)
 class MazeStack implements IWorkList {
   
-  ArrayDeque<MazeTile> deque;
+  IntDeque deque;
 
   MazeStack() {
-    this.deque = new ArrayDeque<MazeTile>();
+    this.deque = new IntDeque();
   }
   
   // Adds the given tile to the front of the deque
-  public void add(MazeTile tile) {
+  public void add(int tile) {
     this.deque.addFirst(tile);
   }
   
   // Removes and returns the first element of the deque
-  public MazeTile remove() {
+  public int remove() {
     return this.deque.removeFirst();
   }
   
@@ -48,22 +45,22 @@ class MazeStack implements IWorkList {
 
 }
 
-//Represents a Queue of MazeTiles (FIFO)
+//Represents a Queue of tile ids (FIFO)
 class MazeQueue implements IWorkList {
   
-  ArrayDeque<MazeTile> deque;
+  IntDeque deque;
 
   MazeQueue() {
-    this.deque = new ArrayDeque<MazeTile>();
+    this.deque = new IntDeque();
   }
   
   // Adds the given tile to the front of the deque
-  public void add(MazeTile tile) {
+  public void add(int tile) {
     this.deque.addFirst(tile);
   }
   
   // Removes and returns the last element of the deque
-  public MazeTile remove() {
+  public int remove() {
     return this.deque.removeLast();
   }
   